@@ -1,5 +1,8 @@
 package xfp.java.accumulators;
 
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+
 import xfp.java.exceptions.Exceptions;
 
 /** Convenience interface for mutable, <em>non-</em>thread safe
@@ -13,7 +16,7 @@ import xfp.java.exceptions.Exceptions;
  * TODO: tighten this requirement.
  *
  * @author palisades dot lakes at gmail dot com
- * @version 2019-07-29
+ * @version 2019-10-17
  */
 
 @SuppressWarnings("unchecked")
@@ -23,10 +26,6 @@ public interface Accumulator<T extends Accumulator> {
   // start with only immediate needs
   //--------------------------------------------------------------
 
-  // TODO: numerical error bounds for inexact accumulators,
-  // or some other predicate for testing that results are as
-  // as accurate as expected.
-
   /** An <em>exact</em> accumulator returns values equivalent
    * to half-even rounding to nearest of infinite precision
    * calculation.
@@ -51,6 +50,28 @@ public interface Accumulator<T extends Accumulator> {
     throw
     Exceptions.unsupportedOperation(this,"doubleValue"); }
 
+  /** Rounding to <code>double</code> with <code>mode</code>.
+   * For exact accumulators, {@link RoundingMode#FLOOR} and
+   * {@link RoundingMode#CEILING} give the tightest
+   * <code>double</code> interval enclosing the exact result,
+   * from a single pass over the data, and
+   * {@link RoundingMode#HALF_EVEN} is {@link #doubleValue()}.
+   */
+  default double doubleValue (final RoundingMode mode) {
+    throw
+    Exceptions.unsupportedOperation(this,"doubleValue",mode); }
+
+  /** An upper bound on <code>|doubleValue() - s|</code>, where
+   * <code>s</code> is the exact result of the operations so far,
+   * ignoring underflow.
+   * Inexact accumulators track what they need as they go,
+   * so callers can decide, result by result, whether it's
+   * accurate enough, or needs an exact recomputation.
+   */
+  default double errorBound () {
+    throw
+    Exceptions.unsupportedOperation(this,"errorBound"); }
+
   /** Half-even rounding to nearest <code>float</code>. */
   default float floatValue () {
     throw
@@ -60,6 +81,52 @@ public interface Accumulator<T extends Accumulator> {
     throw
     Exceptions.unsupportedOperation(this,"clear"); }
 
+  /** Add the current state of <code>other</code> to this
+   * accumulator, as if all the values added to
+   * <code>other</code> had been added here.
+   * <code>other</code> is not modified.
+   * <p>
+   * Exact accumulators must merge exactly, so that reductions
+   * over partitions of a data set, in any order, give the same
+   * result as a single sequential reduction.
+   */
+  default T merge (final T other) {
+    throw
+    Exceptions.unsupportedOperation(this,"merge",other); }
+
+  //--------------------------------------------------------------
+  // binary encoding, for reductions across processes
+  //--------------------------------------------------------------
+
+  /** Bytes {@link #writeTo(ByteBuffer)} would write now. */
+  default int encodedSize () {
+    throw
+    Exceptions.unsupportedOperation(this,"encodedSize"); }
+
+  /** Write the current state to <code>b</code>, in a compact,
+   * versioned, binary format, sized to the live state, and
+   * exact, for exact accumulators.
+   */
+  default ByteBuffer writeTo (final ByteBuffer b) {
+    throw
+    Exceptions.unsupportedOperation(this,"writeTo",b); }
+
+  /** Replace the current state with one written by
+   * {@link #writeTo(ByteBuffer)}, from an accumulator of the
+   * same class.
+   */
+  default T readFrom (final ByteBuffer b) {
+    throw
+    Exceptions.unsupportedOperation(this,"readFrom",b); }
+
+  /** Like {@link #merge(Accumulator)}, with the state written
+   * by {@link #writeTo(ByteBuffer)}, from an accumulator of
+   * the same class, so exact accumulators merge exactly.
+   */
+  default T mergeFrom (final ByteBuffer b) {
+    throw
+    Exceptions.unsupportedOperation(this,"mergeFrom",b); }
+
   default T add (final double z) {
     throw
     Exceptions.unsupportedOperation(this,"add",z); }
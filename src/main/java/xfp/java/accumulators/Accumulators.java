@@ -0,0 +1,413 @@
+package xfp.java.accumulators;
+
+import java.math.RoundingMode;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import xfp.java.numbers.BigFloat;
+
+/** Static utilities for accumulators, in particular parallel
+ * reductions built from {@link Accumulator#merge}.
+ * <p>
+ * The data are split recursively into blocks, each block is
+ * reduced by a fresh accumulator from the factory, and the
+ * partial accumulators are merged. For exact accumulators the
+ * result is the same as a sequential reduction, independent of
+ * the split and the number of threads.
+ * <p>
+ * Partial sums (scans) take 2 parallel passes over fixed
+ * blocks: the first computes the exact total of each block,
+ * which are combined, in order, into the exact offset of each
+ * block; the second recomputes each block's running sums, and
+ * rounds them, starting from its offset. For exact accumulators
+ * the result is the same as {@link Accumulator#partialSums}, etc.
+ * <p>
+ * Euclidean norms and distances are the correctly rounded
+ * square root of the exact sum of squares, rather than the
+ * square root of the rounded sum, which may be off by an ulp,
+ * or overflow.
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2019-10-17
+ */
+@SuppressWarnings("unchecked")
+public final class Accumulators {
+
+  /** Blocks at most this long are reduced sequentially. */
+  public static final int PARALLEL_THRESHOLD = 1 << 14;
+
+  //--------------------------------------------------------------
+
+  private interface Block<T extends Accumulator<T>> {
+    T reduce (T a, int start, int end); }
+
+  private static final class Task<T extends Accumulator<T>>
+  extends RecursiveTask<T> {
+
+    private static final long serialVersionUID = 0L;
+
+    private final Supplier<T> _factory;
+    private final Block<T> _block;
+    private final int _start;
+    private final int _end;
+    private final int _threshold;
+
+    @Override
+    protected final T compute () {
+      if ((_end-_start) <= _threshold) {
+        return _block.reduce(_factory.get(),_start,_end); }
+      final int middle = (_start + _end) >>> 1;
+      final Task<T> lo =
+        new Task<T>(_factory,_block,_start,middle,_threshold);
+      final Task<T> hi =
+        new Task<T>(_factory,_block,middle,_end,_threshold);
+      hi.fork();
+      final T a = lo.compute();
+      return a.merge(hi.join()); }
+
+    Task (final Supplier<T> factory,
+          final Block<T> block,
+          final int start,
+          final int end,
+          final int threshold) {
+      _factory = factory;
+      _block = block;
+      _start = start;
+      _end = end;
+      _threshold = Math.max(1,threshold); } }
+
+  private static final <T extends Accumulator<T>> T
+  reduce (final Supplier<T> factory,
+          final Block<T> block,
+          final int n,
+          final int threshold) {
+    if (n <= threshold) { return block.reduce(factory.get(),0,n); }
+    return ForkJoinPool.commonPool().invoke(
+      new Task<T>(factory,block,0,n,threshold)); }
+
+  //--------------------------------------------------------------
+  // parallel reductions
+  //--------------------------------------------------------------
+
+  /** Sum of <code>z</code>, computed in parallel.
+   * @param factory must return a new, clear accumulator on each
+   * call, whose <code>merge</code> is supported.
+   */
+  public static final <T extends Accumulator<T>> T
+  parallelAddAll (final Supplier<T> factory,
+                  final double[] z,
+                  final int threshold) {
+    return reduce(
+      factory,
+      (a,start,end) -> {
+        for (int i=start;i<end;i++) { a = a.add(z[i]); }
+        return a; },
+      z.length,
+      threshold); }
+
+  public static final <T extends Accumulator<T>> T
+  parallelAddAll (final Supplier<T> factory,
+                  final double[] z) {
+    return parallelAddAll(factory,z,PARALLEL_THRESHOLD); }
+
+  /** Dot product of <code>z0</code> and <code>z1</code>,
+   * computed in parallel.
+   */
+  public static final <T extends Accumulator<T>> T
+  parallelAddProducts (final Supplier<T> factory,
+                       final double[] z0,
+                       final double[] z1,
+                       final int threshold) {
+    //assert z0.length == z1.length;
+    return reduce(
+      factory,
+      (a,start,end) -> {
+        for (int i=start;i<end;i++) {
+          a = a.addProduct(z0[i],z1[i]); }
+        return a; },
+      z0.length,
+      threshold); }
+
+  public static final <T extends Accumulator<T>> T
+  parallelAddProducts (final Supplier<T> factory,
+                       final double[] z0,
+                       final double[] z1) {
+    return parallelAddProducts(factory,z0,z1,PARALLEL_THRESHOLD); }
+
+  /** Squared euclidean distance between <code>z0</code> and
+   * <code>z1</code>, computed in parallel.
+   */
+  public static final <T extends Accumulator<T>> T
+  parallelAddL2Distance (final Supplier<T> factory,
+                         final double[] z0,
+                         final double[] z1,
+                         final int threshold) {
+    //assert z0.length == z1.length;
+    return reduce(
+      factory,
+      (a,start,end) -> {
+        for (int i=start;i<end;i++) {
+          a = a.addL2(z0[i],z1[i]); }
+        return a; },
+      z0.length,
+      threshold); }
+
+  public static final <T extends Accumulator<T>> T
+  parallelAddL2Distance (final Supplier<T> factory,
+                         final double[] z0,
+                         final double[] z1) {
+    return parallelAddL2Distance(factory,z0,z1,PARALLEL_THRESHOLD); }
+
+  //--------------------------------------------------------------
+  // parallel scans
+  //--------------------------------------------------------------
+
+  private interface Step<T extends Accumulator<T>> {
+    T add (T a, int i); }
+
+  private static final <T extends Accumulator<T>> double[]
+  scan (final Supplier<T> factory,
+        final Step<T> step,
+        final int n,
+        final int threshold) {
+    final int b = Math.max(1,threshold);
+    final int nblocks = (n+b-1)/b;
+    // pass 1: exact block totals, except the last, which isn't
+    // needed
+    final T[] offsets = (T[]) new Accumulator<?>[nblocks];
+    IntStream.range(0,nblocks-1).parallel().forEach(k -> {
+      T a = factory.get();
+      final int end = (k+1)*b;
+      for (int i=k*b;i<end;i++) { a = step.add(a,i); }
+      offsets[k] = a; });
+    // exclusive prefix of the totals, in place
+    final T total = factory.get();
+    for (int k=0;k<nblocks;k++) {
+      final T t = offsets[k];
+      offsets[k] = factory.get().merge(total);
+      if (null != t) { total.merge(t); } }
+    // pass 2: running sums from each block's offset
+    final double[] s = new double[n];
+    IntStream.range(0,nblocks).parallel().forEach(k -> {
+      T a = offsets[k];
+      final int end = Math.min(n,(k+1)*b);
+      for (int i=k*b;i<end;i++) {
+        a = step.add(a,i);
+        s[i] = a.doubleValue(); } });
+    return s; }
+
+  /** Partial sums of <code>z</code>, computed in parallel.
+   * @param factory must return a new, clear accumulator on each
+   * call, whose <code>merge</code> is supported.
+   * @param threshold block length.
+   */
+  public static final <T extends Accumulator<T>> double[]
+  parallelPartialSums (final Supplier<T> factory,
+                       final double[] z,
+                       final int threshold) {
+    return scan(factory,(a,i) -> a.add(z[i]),z.length,threshold); }
+
+  public static final <T extends Accumulator<T>> double[]
+  parallelPartialSums (final Supplier<T> factory,
+                       final double[] z) {
+    return parallelPartialSums(factory,z,PARALLEL_THRESHOLD); }
+
+  public static final <T extends Accumulator<T>> double[]
+  parallelPartialL1s (final Supplier<T> factory,
+                      final double[] z,
+                      final int threshold) {
+    return scan(factory,(a,i) -> a.addAbs(z[i]),z.length,threshold); }
+
+  public static final <T extends Accumulator<T>> double[]
+  parallelPartialL1s (final Supplier<T> factory,
+                      final double[] z) {
+    return parallelPartialL1s(factory,z,PARALLEL_THRESHOLD); }
+
+  public static final <T extends Accumulator<T>> double[]
+  parallelPartialL2s (final Supplier<T> factory,
+                      final double[] z,
+                      final int threshold) {
+    return scan(factory,(a,i) -> a.add2(z[i]),z.length,threshold); }
+
+  public static final <T extends Accumulator<T>> double[]
+  parallelPartialL2s (final Supplier<T> factory,
+                      final double[] z) {
+    return parallelPartialL2s(factory,z,PARALLEL_THRESHOLD); }
+
+  public static final <T extends Accumulator<T>> double[]
+  parallelPartialDots (final Supplier<T> factory,
+                       final double[] z0,
+                       final double[] z1,
+                       final int threshold) {
+    //assert z0.length == z1.length;
+    return scan(
+      factory,
+      (a,i) -> a.addProduct(z0[i],z1[i]),
+      z0.length,
+      threshold); }
+
+  public static final <T extends Accumulator<T>> double[]
+  parallelPartialDots (final Supplier<T> factory,
+                       final double[] z0,
+                       final double[] z1) {
+    return parallelPartialDots(factory,z0,z1,PARALLEL_THRESHOLD); }
+
+  public static final <T extends Accumulator<T>> double[]
+  parallelPartialL1Distances (final Supplier<T> factory,
+                              final double[] z0,
+                              final double[] z1,
+                              final int threshold) {
+    //assert z0.length == z1.length;
+    return scan(
+      factory,
+      (a,i) -> a.addL1(z0[i],z1[i]),
+      z0.length,
+      threshold); }
+
+  public static final <T extends Accumulator<T>> double[]
+  parallelPartialL1Distances (final Supplier<T> factory,
+                              final double[] z0,
+                              final double[] z1) {
+    return parallelPartialL1Distances(
+      factory,z0,z1,PARALLEL_THRESHOLD); }
+
+  public static final <T extends Accumulator<T>> double[]
+  parallelPartialL2Distances (final Supplier<T> factory,
+                              final double[] z0,
+                              final double[] z1,
+                              final int threshold) {
+    //assert z0.length == z1.length;
+    return scan(
+      factory,
+      (a,i) -> a.addL2(z0[i],z1[i]),
+      z0.length,
+      threshold); }
+
+  public static final <T extends Accumulator<T>> double[]
+  parallelPartialL2Distances (final Supplier<T> factory,
+                              final double[] z0,
+                              final double[] z1) {
+    return parallelPartialL2Distances(
+      factory,z0,z1,PARALLEL_THRESHOLD); }
+
+  /** Merge <code>b</code> into <code>a</code>, where the
+   * element types aren't known statically, as with
+   * accumulators from an <code>Accumulator&lt;?&gt;</code>
+   * factory. <code>b</code> must be the same class as
+   * <code>a</code>.
+   */
+  static final <T extends Accumulator<T>> T
+  merge (final Accumulator<T> a,
+         final Accumulator<?> b) {
+    return a.merge((T) b); }
+
+  //--------------------------------------------------------------
+  // correctly rounded norms
+  //--------------------------------------------------------------
+
+  /** Smallest sum of squares for which the fast path in
+   * {@link #certainSqrt(double)} can't underflow.
+   */
+  private static final double CERTAIN_MIN = 0x1.0p-900;
+
+  /** <code>Math.sqrt(s)</code>, if it's certainly the correctly
+   * rounded square root of every <code>t</code> with
+   * <code>|t-s| &le; ulp(s)/2</code>, <code>NaN</code> otherwise.
+   * <p>
+   * <code>r = sqrt(s)</code> rounds to <code>r</code> if
+   * <code>(r-u/2)<sup>2</sup> &lt; t &lt; (r+u/2)<sup>2</sup></code>,
+   * <code>u = ulp(nextDown(r))</code>, ie,
+   * <code>|t-r<sup>2</sup>| &lt; r*u - u<sup>2</sup>/4</code>,
+   * and <code>s-r<sup>2</sup></code> is exact with
+   * {@link Math#fma}.
+   */
+  private static final double certainSqrt (final double s) {
+    if ((CERTAIN_MIN > s) || (Double.MAX_VALUE < s)) {
+      return Double.NaN; }
+    final double r = Math.sqrt(s);
+    final double u = Math.ulp(Math.nextDown(r));
+    final double e = Math.abs(Math.fma(-r,r,s)) + 0.5*Math.ulp(s);
+    if (e < ((r*u) - (0.25*u*u))*(1.0-0x1.0p-50)) { return r; }
+    return Double.NaN; }
+
+  /** Correctly rounded square root of the sum of squares
+   * accumulated by <code>squares</code>.
+   */
+  private static final double
+  sqrtOfSum (final BigFloatAccumulator squares) {
+    final double r = certainSqrt(squares.doubleValue());
+    if (! Double.isNaN(r)) { return r; }
+    final BigFloat s = (BigFloat) squares.value();
+    return s.sqrt(RoundingMode.HALF_EVEN); }
+
+  /** Half-even rounded
+   * <code>sqrt(&Sigma;z<sub>i</sub><sup>2</sup>)</code>,
+   * from the exact sum of squares, so never off by an ulp,
+   * and never overflowing unless the result does.
+   */
+  public static final double l2Norm (final double[] z) {
+    return sqrtOfSum(BigFloatAccumulator.make().add2All(z)); }
+
+  /** Half-even rounded
+   * <code>sqrt(&Sigma;(z0<sub>i</sub>-z1<sub>i</sub>)<sup>2</sup>)</code>,
+   * from the exact sum of squares.
+   */
+  public static final double l2Distance (final double[] z0,
+                                         final double[] z1) {
+    //assert z0.length == z1.length;
+    return sqrtOfSum(BigFloatAccumulator.make().addL2Distance(z0,z1)); }
+
+  /** Half-even rounded <code>sqrt(x<sup>2</sup>+y<sup>2</sup>)</code>,
+   * without overflow or underflow.
+   * Infinite if either argument is, like {@link Math#hypot},
+   * otherwise <code>NaN</code> if either is.
+   */
+  public static final double hypot (final double x,
+                                    final double y) {
+    if (Double.isInfinite(x) || Double.isInfinite(y)) {
+      return Double.POSITIVE_INFINITY; }
+    if (Double.isNaN(x) || Double.isNaN(y)) { return Double.NaN; }
+    return sqrtOfSum(BigFloatAccumulator.make().add2(x).add2(y)); }
+
+  /** Half-even rounded
+   * <code>sqrt(x<sup>2</sup>+y<sup>2</sup>+z<sup>2</sup>)</code>.
+   */
+  public static final double hypot (final double x,
+                                    final double y,
+                                    final double z) {
+    if (Double.isInfinite(x)
+      || Double.isInfinite(y)
+      || Double.isInfinite(z)) {
+      return Double.POSITIVE_INFINITY; }
+    if (Double.isNaN(x) || Double.isNaN(y) || Double.isNaN(z)) {
+      return Double.NaN; }
+    return
+      sqrtOfSum(BigFloatAccumulator.make().add2(x).add2(y).add2(z)); }
+
+  //--------------------------------------------------------------
+  // error bounds
+  //--------------------------------------------------------------
+
+  /** Higham's <code>&gamma;<sub>n</sub> = nu/(1-nu)</code>,
+   * <code>u = 2<sup>-53</sup></code>, which bounds the relative
+   * error from <code>n</code> roundings.
+   * Infinite if <code>nu &ge; 1</code>.
+   */
+  public static final double gamma (final long n) {
+    final double nu = n*0x1.0p-53;
+    if (1.0 <= nu) { return Double.POSITIVE_INFINITY; }
+    return nu/(1.0-nu); }
+
+  //--------------------------------------------------------------
+  // disable constructor
+  //--------------------------------------------------------------
+
+  private Accumulators () {
+    throw new UnsupportedOperationException(
+      "can't instantiate " + getClass()); }
+
+  //--------------------------------------------------------------
+}
+//--------------------------------------------------------------
@@ -0,0 +1,458 @@
+package xfp.java.accumulators;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import xfp.java.exceptions.Exceptions;
+
+//----------------------------------------------------------------
+/** Correctly rounded summation that only pays for exact
+ * arithmetic when the data needs it.
+ * <p>
+ * Every term is split exactly into doubles, as in
+ * {@link ExactAccumulator}, and added to a double-double
+ * running sum <code>hi + lo</code> (DWPlusFP, as in
+ * {@link DoubleDoubleAccumulator}), along with a running
+ * bound on its error:
+ * each add is off by at most
+ * <code>2u<sup>2</sup>/(1-2u)</code> times the magnitude of
+ * its result, <code>u = 2<sup>-53</sup></code>, so the
+ * total error is at most
+ * <code>4u<sup>2</sup>&Sigma;<sub>k</sub>|hi<sub>k</sub>|</code>,
+ * summed over the adds so far, with room to spare for the
+ * rounding of that sum itself.
+ * <p>
+ * Products whose TwoProd split would underflow or overflow, and
+ * differences that overflow, go straight to the exact
+ * accumulator.
+ * <p>
+ * The terms are also kept in a buffer.
+ * {@link #doubleValue()} returns <code>hi + lo</code>, rounded,
+ * when the whole error interval rounds to the same double.
+ * Otherwise the buffer is replayed into an exact accumulator
+ * (by default a {@link LongAccumulator}), which takes over
+ * for good. A full buffer is flushed into the exact
+ * accumulator, so memory is bounded by the buffer capacity.
+ * <p>
+ * The result is always the same as
+ * {@link BigFloatAccumulator}'s. The certificate only fails for
+ * sums whose condition number is around
+ * <code>1/(nu)</code> or more, for <code>n</code> terms,
+ * or which are exact ties, tiny, or overflow.
+ * <p>
+ * Mutable! Not thread safe!
+ * <p>
+ * @see <a href="https://doi.org/10.1145/3121432">
+ * Mioara Joldes, Jean-Michel Muller, Valentina Popescu,
+ * "Tight and rigorous error bounds for basic building blocks of
+ * double-word arithmetic", ACM TOMS 44(2), 2017.</a>
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2019-10-17
+ */
+@SuppressWarnings("unchecked")
+public final class AdaptiveAccumulator
+extends ExactAccumulator<AdaptiveAccumulator> {
+
+  //--------------------------------------------------------------
+
+  /** <code>4u<sup>2</sup></code>, twice the DWPlusFP bound. */
+  private static final double ERROR_FACTOR = 0x1.0p-104;
+
+  /** Half the spacing, less a little, to cover the rounding
+   * of the comparisons.
+   */
+  private static final double HALF_SPACING = 0x1.ffffffffffffcp-2;
+
+  /** Below this the spacing of doubles isn't normal, and
+   * isn't worth the trouble.
+   */
+  private static final double MIN_CERTIFIED = 0x1.0p-969;
+
+  /** TwoProd is exact for products at least this big. */
+  private static final double MIN_EXACT_PRODUCT = 0x1.0p-969;
+
+  private final int _capacity;
+  private final Accumulator<?> _exact;
+  private boolean _escalated = false;
+
+  private double _hi = 0.0;
+  private double _lo = 0.0;
+  /** Sum of <code>|hi|</code> after each add. */
+  private double _err = 0.0;
+
+  private double[] _buffer = new double[64];
+  private int _n = 0;
+
+  //--------------------------------------------------------------
+  /** DWPlusFP: add <code>y</code> to <code>hi + lo</code>. */
+
+  private final void addFP (final double y) {
+    // TwoSum(hi,y)
+    final double sh = _hi + y;
+    final double yy = sh - _hi;
+    final double v = _lo + ((_hi - (sh - yy)) + (y - yy));
+    // FastTwoSum(sh,v)
+    _hi = sh + v;
+    _lo = v - (_hi - sh);
+    _err += Math.abs(_hi); }
+
+  /** Buffer and add an exact term. */
+
+  private final void term (final double z) {
+    if (_n >= _buffer.length) { reserve(1); }
+    _buffer[_n++] = z;
+    addFP(z); }
+
+  /** Is <code>z0*z1 - p</code>, from <code>Math.fma</code>, exact?
+   * Not if the product overflows, or is too small for its
+   * rounding error to be a normal double.
+   */
+
+  private static final boolean exactProduct (final double z0,
+                                             final double z1,
+                                             final double p) {
+    final double ap = Math.abs(p);
+    return
+      ((MIN_EXACT_PRODUCT <= ap) && (ap <= Double.MAX_VALUE))
+      || (0.0 == z0) || (0.0 == z1); }
+
+  //--------------------------------------------------------------
+
+  private final void flush () {
+    if (_n == _buffer.length) { _exact.addAll(_buffer); }
+    else { _exact.addAll(Arrays.copyOf(_buffer,_n)); }
+    _n = 0; }
+
+  /** Make room for up to <code>m</code> more terms, flushing the
+   * buffer if it's at capacity.
+   * @return how many fit.
+   */
+  private final int reserve (final int m) {
+    if (_n >= _capacity) { flush(); }
+    final int k = Math.min(m,_capacity-_n);
+    if ((_n+k) > _buffer.length) {
+      final int len =
+        (int) Math.min(_capacity,Math.max(_n+k,2L*_buffer.length));
+      _buffer = Arrays.copyOf(_buffer,len); }
+    return k; }
+
+  /** Replay the buffer into the exact accumulator, which is
+   * used from now on.
+   */
+  private final void escalate () {
+    flush();
+    _escalated = true; }
+
+  /** Does every value in
+   * <code>r + d &plusmn; e</code> round to <code>r</code>?
+   */
+  private final boolean certified (final double r,
+                                   final double d) {
+    final double ar = Math.abs(r);
+    if (! ((MIN_CERTIFIED <= ar) && (ar < Double.MAX_VALUE))) {
+      return false; }
+    // infinite or NaN e fails
+    final double e = ERROR_FACTOR*_err;
+    final double up = HALF_SPACING*(Math.nextUp(r) - r);
+    final double down = HALF_SPACING*(r - Math.nextDown(r));
+    return ((d + e) < up) && ((e - d) < down); }
+
+  /** Has the sum needed exact arithmetic? */
+  public final boolean isEscalated () { return _escalated; }
+
+  //--------------------------------------------------------------
+  // Accumulator
+  //--------------------------------------------------------------
+
+  @Override
+  public final boolean noOverflow () { return _exact.noOverflow(); }
+
+  @Override
+  public final Object value () {
+    return Double.valueOf(doubleValue()); }
+
+  @Override
+  public final double doubleValue () {
+    if (! _escalated) {
+      final double r = _hi + _lo;
+      // exact, since |lo| <= ulp(hi)/2
+      final double d = _lo - (r - _hi);
+      if (certified(r,d)) { return r; }
+      escalate(); }
+    return _exact.doubleValue(); }
+
+  @Override
+  public final AdaptiveAccumulator clear () {
+    _exact.clear();
+    _escalated = false;
+    _hi = 0.0; _lo = 0.0; _err = 0.0;
+    _n = 0;
+    return this; }
+
+  @Override
+  public final AdaptiveAccumulator
+  merge (final AdaptiveAccumulator other) {
+    // other may be this
+    final double oh = other._hi;
+    final double ol = other._lo;
+    final double oerr = other._err;
+    final double[] z = Arrays.copyOf(other._buffer,other._n);
+    if (other._escalated && (! _escalated)) { escalate(); }
+    Accumulators.merge(_exact,other._exact);
+    if (_escalated) { _exact.addAll(z); return this; }
+    _err += oerr;
+    addFP(oh);
+    addFP(ol);
+    int k = 0;
+    while (k < z.length) {
+      final int m = reserve(z.length-k);
+      System.arraycopy(z,k,_buffer,_n,m);
+      _n += m;
+      k += m; }
+    return this; }
+
+  //--------------------------------------------------------------
+  // binary encoding
+  //--------------------------------------------------------------
+  /** Flushes the buffer, so the exact accumulator holds every
+   * term, and encodes that, after a header of its own.
+   */
+  @Override
+  public final int encodedSize () {
+    flush();
+    return HEADER_BYTES + _exact.encodedSize(); }
+
+  @Override
+  public final ByteBuffer writeTo (final ByteBuffer b) {
+    flush();
+    writeHeader(b,ADAPTIVE);
+    return _exact.writeTo(b); }
+
+  /** The decoded sum is only held exactly, so escalates. */
+  @Override
+  public final AdaptiveAccumulator readFrom (final ByteBuffer b) {
+    readHeader(b,ADAPTIVE);
+    clear();
+    _exact.readFrom(b);
+    _escalated = true;
+    return this; }
+
+  @Override
+  public final AdaptiveAccumulator mergeFrom (final ByteBuffer b) {
+    readHeader(b,ADAPTIVE);
+    if (! _escalated) { escalate(); }
+    _exact.mergeFrom(b);
+    return this; }
+
+  //--------------------------------------------------------------
+
+  @Override
+  public final AdaptiveAccumulator add (final double z) {
+    //assert Double.isFinite(z);
+    if (_escalated) { _exact.add(z); return this; }
+    term(z);
+    return this; }
+
+  @Override
+  public final AdaptiveAccumulator addAbs (final double z) {
+    return add(Math.abs(z)); }
+
+  @Override
+  public final AdaptiveAccumulator add2 (final double z) {
+    //assert Double.isFinite(z);
+    if (! _escalated) {
+      final double zz = z*z;
+      if (exactProduct(z,z,zz)) {
+        term(zz);
+        term(Math.fma(z,z,-zz));
+        return this; }
+      escalate(); }
+    _exact.add2(z);
+    return this; }
+
+  @Override
+  public final AdaptiveAccumulator addProduct (final double z0,
+                                               final double z1) {
+    //assert Double.isFinite(z0);
+    //assert Double.isFinite(z1);
+    if (! _escalated) {
+      final double zz = z0*z1;
+      if (exactProduct(z0,z1,zz)) {
+        term(zz);
+        term(Math.fma(z0,z1,-zz));
+        return this; }
+      escalate(); }
+    _exact.addProduct(z0,z1);
+    return this; }
+
+  /** Two independent double-double sums, of the even and odd
+   * elements, to overlap the latency of the dependent adds.
+   */
+  @Override
+  public final AdaptiveAccumulator addAll (final double[] z) {
+    if (_escalated) { _exact.addAll(z); return this; }
+    final int n = z.length;
+    int k = 0;
+    while (k < n) {
+      final int m = reserve(n-k);
+      System.arraycopy(z,k,_buffer,_n,m);
+      _n += m;
+      k += m; }
+    double h0 = _hi; double l0 = _lo; double e0 = _err;
+    double h1 = 0.0; double l1 = 0.0; double e1 = 0.0;
+    int i = 0;
+    for (;i+1<n;i+=2) {
+      final double y0 = z[i];
+      final double s0 = h0 + y0;
+      final double yy0 = s0 - h0;
+      final double v0 = l0 + ((h0 - (s0 - yy0)) + (y0 - yy0));
+      h0 = s0 + v0;
+      l0 = v0 - (h0 - s0);
+      e0 += Math.abs(h0);
+      final double y1 = z[i+1];
+      final double s1 = h1 + y1;
+      final double yy1 = s1 - h1;
+      final double v1 = l1 + ((h1 - (s1 - yy1)) + (y1 - yy1));
+      h1 = s1 + v1;
+      l1 = v1 - (h1 - s1);
+      e1 += Math.abs(h1); }
+    _hi = h0; _lo = l0; _err = e0 + e1;
+    addFP(h1);
+    addFP(l1);
+    if (i < n) { addFP(z[i]); }
+    return this; }
+
+  /** Products split exactly with TwoProd; one double-double sum
+   * of the rounded products, and an independent one of their
+   * errors.
+   */
+  @Override
+  public final AdaptiveAccumulator addProducts (final double[] z0,
+                                                final double[] z1) {
+    if (_escalated) { _exact.addProducts(z0,z1); return this; }
+    final int n = z0.length;
+    //assert n==z1.length;
+    double h0 = _hi; double l0 = _lo; double e0 = _err;
+    double h1 = 0.0; double l1 = 0.0; double e1 = 0.0;
+    int i = 0;
+    boolean exact = true;
+    while (exact && (i < n)) {
+      final int m = reserve(2*(n-i)) >>> 1;
+      if (0 == m) { flush(); continue; }
+      final double[] b = _buffer;
+      int j = _n;
+      final int end = i + m;
+      for (;i<end;i++) {
+        final double a = z0[i];
+        final double c = z1[i];
+        final double y0 = a*c;
+        if (! exactProduct(a,c,y0)) { exact = false; break; }
+        final double y1 = Math.fma(a,c,-y0);
+        b[j++] = y0;
+        b[j++] = y1;
+        final double s0 = h0 + y0;
+        final double yy0 = s0 - h0;
+        final double v0 = l0 + ((h0 - (s0 - yy0)) + (y0 - yy0));
+        h0 = s0 + v0;
+        l0 = v0 - (h0 - s0);
+        e0 += Math.abs(h0);
+        final double s1 = h1 + y1;
+        final double yy1 = s1 - h1;
+        final double v1 = l1 + ((h1 - (s1 - yy1)) + (y1 - yy1));
+        h1 = s1 + v1;
+        l1 = v1 - (h1 - s1);
+        e1 += Math.abs(h1); }
+      _n = j; }
+    _hi = h0; _lo = l0; _err = e0 + e1;
+    addFP(h1);
+    addFP(l1);
+    if (! exact) {
+      escalate();
+      _exact.addProducts(
+        Arrays.copyOfRange(z0,i,n),
+        Arrays.copyOfRange(z1,i,n)); }
+    return this; }
+
+  /** Exact difference with TwoSum, then its absolute value. */
+  @Override
+  public final AdaptiveAccumulator addL1 (final double z0,
+                                          final double z1) {
+    //assert Double.isFinite(z0);
+    //assert Double.isFinite(z1);
+    if (! _escalated) {
+      final double zz = z0 - z1;
+      if (Double.isFinite(zz)) {
+        final double dz = zz - z0;
+        final double e = (z0 - (zz - dz)) + ((-z1) - dz);
+        // e == 0 when zz == 0, otherwise zz has the sign
+        if (zz < 0.0) { term(-zz); term(-e); }
+        else { term(zz); term(e); }
+        return this; }
+      escalate(); }
+    _exact.addL1(z0,z1);
+    return this; }
+
+  /** Exact difference <code>zz + e</code> with TwoSum, then its
+   * square as 8 terms, with TwoProd.
+   */
+  @Override
+  public final AdaptiveAccumulator addL2 (final double z0,
+                                          final double z1) {
+    //assert Double.isFinite(z0);
+    //assert Double.isFinite(z1);
+    if (! _escalated) {
+      final double zz = z0 - z1;
+      final double dz = zz - z0;
+      final double e = (z0 - (zz - dz)) + ((-z1) - dz);
+      final double zzzz = zz*zz;
+      final double ezz = e*zz;
+      final double ee = e*e;
+      if (exactProduct(zz,zz,zzzz)
+        && exactProduct(e,zz,ezz)
+        && exactProduct(e,e,ee)) {
+        term(zzzz);
+        term(Math.fma(zz,zz,-zzzz));
+        final double eezz = Math.fma(e,zz,-ezz);
+        term(ezz); term(ezz);
+        term(eezz); term(eezz);
+        term(ee);
+        term(Math.fma(e,e,-ee));
+        return this; }
+      escalate(); }
+    _exact.addL2(z0,z1);
+    return this; }
+
+  //--------------------------------------------------------------
+  // construction
+  //--------------------------------------------------------------
+
+  private AdaptiveAccumulator (final Supplier<? extends Accumulator<?>> factory,
+                               final int capacity) {
+    super();
+    _capacity = Math.max(2,capacity);
+    _exact = factory.get();
+    if (! _exact.isExact()) {
+      throw Exceptions.unsupportedOperation(
+        null,"AdaptiveAccumulator",_exact); } }
+
+  /** @param factory must return a new, clear, exact accumulator,
+   * whose <code>merge</code> is supported.
+   * @param capacity maximum number of terms buffered before
+   * they are flushed into the exact accumulator.
+   */
+  public static final AdaptiveAccumulator
+  make (final Supplier<? extends Accumulator<?>> factory,
+        final int capacity) {
+    return new AdaptiveAccumulator(factory,capacity); }
+
+  /** Falls back to a {@link LongAccumulator},
+   * buffering up to 2<sup>22</sup> terms (32MB).
+   */
+  public static final AdaptiveAccumulator make () {
+    return make(LongAccumulator::make,1<<22); }
+
+  //--------------------------------------------------------------
+}
+//--------------------------------------------------------------
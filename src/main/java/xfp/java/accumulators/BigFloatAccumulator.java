@@ -1,194 +1,116 @@
 package xfp.java.accumulators;
 
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+
 import xfp.java.numbers.BigFloat;
+import xfp.java.numbers.MutableBigFloat;
 
-/** Naive sum of <code>double</code> values with a BigFloat
- * accumulator.
+/** Naive sum of <code>double</code> values with a
+ * {@link MutableBigFloat} accumulator, updated in place.
  *
  * @author palisades dot lakes at gmail dot com
- * @version 2019-08-16
+ * @version 2019-10-17
  */
 public final class BigFloatAccumulator
 extends ExactAccumulator<BigFloatAccumulator> {
 
-  private BigFloat _sum;
+  private final MutableBigFloat _sum;
 
   //--------------------------------------------------------------
 
   @Override
   public final boolean noOverflow () { return true; }
 
+  /** An immutable copy of the current sum, as a
+   * {@link xfp.java.numbers.BigFloat}.
+   */
   @Override
-  public final Object value () { return _sum; }
+  public final Object value () { return _sum.bigFloatValue(); }
 
   @Override
   public final double doubleValue () {
     return _sum.doubleValue(); }
 
+  @Override
+  public final double doubleValue (final RoundingMode mode) {
+    return _sum.doubleValue(mode); }
+
   @Override
   public final float floatValue () {
     return _sum.floatValue(); }
 
   @Override
   public final BigFloatAccumulator clear () {
-    _sum = BigFloat.ZERO;
+    _sum.clear();
     return this; }
 
   @Override
-  public final BigFloatAccumulator add (final double z) {
-    _sum = _sum.add(z);
+  public final BigFloatAccumulator merge (final BigFloatAccumulator other) {
+    _sum.add(other._sum);
     return this; }
 
   @Override
-  public final BigFloatAccumulator addAll (final double[] z) {
-    _sum = _sum.addAll(z); 
-    return this; }
+  public final int encodedSize () {
+    return HEADER_BYTES + _sum.encodedSize(); }
 
   @Override
-  public final BigFloatAccumulator addAbs (final double z) {
-    _sum = _sum.addAbs(z);
+  public final ByteBuffer writeTo (final ByteBuffer b) {
+    writeHeader(b,BIG_FLOAT);
+    return _sum.writeTo(b); }
+
+  @Override
+  public final BigFloatAccumulator readFrom (final ByteBuffer b) {
+    readHeader(b,BIG_FLOAT);
+    _sum.readFrom(b);
     return this; }
 
   @Override
-  public final BigFloatAccumulator addAbsAll (final double[] z) {
-    _sum = _sum.addAbsAll(z); 
+  public final BigFloatAccumulator mergeFrom (final ByteBuffer b) {
+    readHeader(b,BIG_FLOAT);
+    _sum.add(BigFloat.readFrom(b));
     return this; }
 
   @Override
-  public final BigFloatAccumulator add2 (final double z) {
-    _sum = _sum.add2(z);
+  public final BigFloatAccumulator add (final double z) {
+    _sum.add(z);
     return this; }
 
   @Override
-  public final BigFloatAccumulator add2All (final double[] z)  {
-    _sum = _sum.add2All(z);
+  public final BigFloatAccumulator addAbs (final double z) {
+    _sum.addAbs(z);
     return this; }
 
   @Override
-  public final BigFloatAccumulator addProduct (final double z0,
-                                               final double z1) {
-    _sum = _sum.addProduct(z0,z1);
+  public final BigFloatAccumulator add2 (final double z) {
+    _sum.add2(z);
     return this; }
 
   @Override
-  public final BigFloatAccumulator addProducts (final double[] z0,
-                                                final double[] z1)  {
-    _sum = _sum.addProducts(z0,z1); 
+  public final BigFloatAccumulator addProduct (final double z0,
+                                               final double z1) {
+    _sum.addProduct(z0,z1);
     return this; }
 
   @Override
   public final BigFloatAccumulator addL1 (final double z0,
                                           final double z1) {
-
-    _sum = _sum.addL1(z0,z1);
-    return this; }
-
-   @Override
-  public final BigFloatAccumulator addL1Distance (final double[] z0,
-                                                  final double[] z1)  {
-    _sum = _sum.addL1Distance(z0,z1); 
+    _sum.addL1(z0,z1);
     return this; }
 
   @Override
   public final BigFloatAccumulator addL2 (final double z0,
                                           final double z1) {
-    _sum = _sum.addL2(z0,z1);
-    return this; }
-
-  @Override
-  public final BigFloatAccumulator addL2Distance (final double[] z0,
-                                                  final double[] z1)  {
-    _sum = _sum.addL2Distance(z0,z1); 
+    _sum.addL2(z0,z1);
     return this; }
 
-  //--------------------------------------------------------------
-  // TODO: these don't make sense for a = a.op paradigm
-
-  @Override
-  public final void partialSums (final double[] x,
-                                 final double[] s) {
-    final int n = x.length;
-    //assert s.length==n;
-    BigFloat sum = BigFloat.ZERO;
-    for (int i=0;i<n;i++) { 
-      sum = sum.add(x[i]);
-      s[i] = sum.doubleValue(); } 
-    _sum = sum; }
-
-  @Override
-  public final double[] partialSums (final double[] x) {
-    final int n = x.length;
-    final double[] s = new double[n];
-    BigFloat sum = BigFloat.ZERO;
-    for (int i=0;i<n;i++) { 
-      sum = sum.add(x[i]);
-      s[i] = sum.doubleValue(); } 
-    _sum = sum;
-    return s; }
-
-  @Override
-  public final  double[] partialL1s (final double[] x) {
-    final int n = x.length;
-    final double[] s = new double[n];
-    BigFloat sum = BigFloat.ZERO;
-    for (int i=0;i<n;i++) { 
-      sum = sum.addAbs(x[i]);
-      s[i] = sum.doubleValue(); } 
-    _sum = sum;
-    return s; }
-
-  @Override
-  public final  double[] partialL2s (final double[] x) {
-    final int n = x.length;
-    final double[] s = new double[n];
-    BigFloat sum = BigFloat.ZERO;
-    for (int i=0;i<n;i++) { 
-      sum = sum.add2(x[i]);
-      s[i] = sum.doubleValue(); } 
-    _sum = sum;
-    return s; }
-
-  @Override
-  public final  double[] partialDots (final double[] x0,
-                                      final double[] x1) {
-    final int n = x0.length;
-    final double[] s = new double[n];
-    BigFloat sum = BigFloat.ZERO;
-    for (int i=0;i<n;i++) {
-      sum = sum.addProduct(x0[i],x1[i]);
-      s[i] = sum.doubleValue(); } 
-    _sum = sum;
-    return s; }
-
-  @Override
-  public final  double[] partialL1Distances (final double[] x0,
-                                             final double[] x1) {
-    final int n = x0.length;
-    final double[] s = new double[n];
-    BigFloat sum = BigFloat.ZERO;
-    for (int i=0;i<n;i++) {
-      sum = sum.addL1(x0[i],x1[i]);
-      s[i] = sum.doubleValue(); } 
-    _sum = sum;
-    return s; }
-
-  @Override
-  public final  double[] partialL2Distances (final double[] x0,
-                                             final double[] x1) {
-    final int n = x0.length;
-    final double[] s = new double[n];
-    BigFloat sum = BigFloat.ZERO;
-    for (int i=0;i<n;i++) {
-      sum = sum.addL2(x0[i],x1[i]);
-      s[i] = sum.doubleValue(); } 
-    _sum = sum;
-    return s; }
-
   //--------------------------------------------------------------
   // construction
   //--------------------------------------------------------------
 
-  private BigFloatAccumulator () { super(); clear(); }
+  private BigFloatAccumulator () {
+    super();
+    _sum = MutableBigFloat.make(); }
 
   public static final BigFloatAccumulator make () {
     return new BigFloatAccumulator(); }
@@ -0,0 +1,208 @@
+package xfp.java.accumulators;
+
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+
+/** Static utilities for reducing <code>java.util.stream</code>
+ * streams with accumulators, in particular exact, correctly
+ * rounded reductions of parallel streams.
+ * <p>
+ * Each thread fills a fresh accumulator from the factory, and
+ * the partial accumulators are merged, as in
+ * {@link Accumulators}. With an exact factory the result is the
+ * same as a sequential reduction, whatever the split, so the
+ * collectors are {@link Collector.Characteristics#UNORDERED}.
+ * The default factory is {@link LongAccumulator}, which merges
+ * without allocation.
+ * <p>
+ * There are 3 flavors, none of which box the elements:
+ * <ul>
+ * <li> reducers of a {@link DoubleStream}, for sums and sums of
+ * squares,
+ * <li> reducers of an {@link IntStream} of indexes into 2 arrays,
+ * for dot products and distances,
+ * <li> {@link Collector}s of a <code>Stream&lt;double[]&gt;</code>
+ * of blocks, for sums and sums of squares, or of a
+ * <code>Stream&lt;double[][]&gt;</code> of pairs of blocks of the
+ * same length, <code>{z0,z1}</code>, for dot products and
+ * distances.
+ * </ul>
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2019-10-17
+ */
+@SuppressWarnings("unchecked")
+public final class Collectors {
+
+  //--------------------------------------------------------------
+  // DoubleStream
+  //--------------------------------------------------------------
+
+  public static final <T extends Accumulator<T>> T
+  sum (final Supplier<T> factory,
+       final DoubleStream z) {
+    return z.collect(factory,(a,zi) -> a.add(zi),(a,b) -> a.merge(b)); }
+
+  /** Exact sum of <code>z</code>, rounded half-even. */
+  public static final double sum (final DoubleStream z) {
+    return sum(LongAccumulator::make,z).doubleValue(); }
+
+  public static final <T extends Accumulator<T>> T
+  sumOfSquares (final Supplier<T> factory,
+                final DoubleStream z) {
+    return z.collect(factory,(a,zi) -> a.add2(zi),(a,b) -> a.merge(b)); }
+
+  /** Exact sum of the squares of <code>z</code>,
+   * rounded half-even.
+   */
+  public static final double sumOfSquares (final DoubleStream z) {
+    return sumOfSquares(LongAccumulator::make,z).doubleValue(); }
+
+  //--------------------------------------------------------------
+  // IntStream of indexes
+  //--------------------------------------------------------------
+
+  public static final <T extends Accumulator<T>> T
+  dot (final Supplier<T> factory,
+       final IntStream i,
+       final double[] z0,
+       final double[] z1) {
+    return i.collect(
+      factory,
+      (a,k) -> a.addProduct(z0[k],z1[k]),
+      (a,b) -> a.merge(b)); }
+
+  /** Exact dot product of <code>z0</code> and <code>z1</code>,
+   * over the indexes in <code>i</code>, rounded half-even.
+   * For example,
+   * <code>dot(IntStream.range(0,n).parallel(),z0,z1)</code>.
+   */
+  public static final double dot (final IntStream i,
+                                  final double[] z0,
+                                  final double[] z1) {
+    return dot(LongAccumulator::make,i,z0,z1).doubleValue(); }
+
+  public static final <T extends Accumulator<T>> T
+  l1Distance (final Supplier<T> factory,
+              final IntStream i,
+              final double[] z0,
+              final double[] z1) {
+    return i.collect(
+      factory,
+      (a,k) -> a.addL1(z0[k],z1[k]),
+      (a,b) -> a.merge(b)); }
+
+  public static final double l1Distance (final IntStream i,
+                                         final double[] z0,
+                                         final double[] z1) {
+    return l1Distance(LongAccumulator::make,i,z0,z1).doubleValue(); }
+
+  /** Squared euclidean distance. */
+  public static final <T extends Accumulator<T>> T
+  l2Distance (final Supplier<T> factory,
+              final IntStream i,
+              final double[] z0,
+              final double[] z1) {
+    return i.collect(
+      factory,
+      (a,k) -> a.addL2(z0[k],z1[k]),
+      (a,b) -> a.merge(b)); }
+
+  /** Squared euclidean distance. */
+  public static final double l2Distance (final IntStream i,
+                                         final double[] z0,
+                                         final double[] z1) {
+    return l2Distance(LongAccumulator::make,i,z0,z1).doubleValue(); }
+
+  //--------------------------------------------------------------
+  // Collectors of blocks
+  //--------------------------------------------------------------
+
+  private static final <T extends Accumulator<T>> Double
+  finish (final T a) {
+    return Double.valueOf(a.doubleValue()); }
+
+  public static final <T extends Accumulator<T>>
+  Collector<double[],T,Double>
+  sum (final Supplier<T> factory) {
+    return Collector.of(
+      factory,
+      (a,z) -> a.addAll(z),
+      (a,b) -> a.merge(b),
+      Collectors::finish,
+      Collector.Characteristics.UNORDERED); }
+
+  /** Exact sum of all the elements of all the blocks. */
+  public static final Collector<double[],?,Double> sum () {
+    return sum(LongAccumulator::make); }
+
+  public static final <T extends Accumulator<T>>
+  Collector<double[],T,Double>
+  sumOfSquares (final Supplier<T> factory) {
+    return Collector.of(
+      factory,
+      (a,z) -> a.add2All(z),
+      (a,b) -> a.merge(b),
+      Collectors::finish,
+      Collector.Characteristics.UNORDERED); }
+
+  public static final Collector<double[],?,Double> sumOfSquares () {
+    return sumOfSquares(LongAccumulator::make); }
+
+  public static final <T extends Accumulator<T>>
+  Collector<double[][],T,Double>
+  dot (final Supplier<T> factory) {
+    return Collector.of(
+      factory,
+      (a,z) -> a.addProducts(z[0],z[1]),
+      (a,b) -> a.merge(b),
+      Collectors::finish,
+      Collector.Characteristics.UNORDERED); }
+
+  /** Exact dot product, over pairs of blocks,
+   * <code>{z0,z1}</code>.
+   */
+  public static final Collector<double[][],?,Double> dot () {
+    return dot(LongAccumulator::make); }
+
+  public static final <T extends Accumulator<T>>
+  Collector<double[][],T,Double>
+  l1Distance (final Supplier<T> factory) {
+    return Collector.of(
+      factory,
+      (a,z) -> a.addL1Distance(z[0],z[1]),
+      (a,b) -> a.merge(b),
+      Collectors::finish,
+      Collector.Characteristics.UNORDERED); }
+
+  public static final Collector<double[][],?,Double> l1Distance () {
+    return l1Distance(LongAccumulator::make); }
+
+  /** Squared euclidean distance. */
+  public static final <T extends Accumulator<T>>
+  Collector<double[][],T,Double>
+  l2Distance (final Supplier<T> factory) {
+    return Collector.of(
+      factory,
+      (a,z) -> a.addL2Distance(z[0],z[1]),
+      (a,b) -> a.merge(b),
+      Collectors::finish,
+      Collector.Characteristics.UNORDERED); }
+
+  /** Squared euclidean distance. */
+  public static final Collector<double[][],?,Double> l2Distance () {
+    return l2Distance(LongAccumulator::make); }
+
+  //--------------------------------------------------------------
+  // disable constructor
+  //--------------------------------------------------------------
+
+  private Collectors () {
+    throw new UnsupportedOperationException(
+      "can't instantiate " + getClass()); }
+
+  //--------------------------------------------------------------
+}
+//--------------------------------------------------------------
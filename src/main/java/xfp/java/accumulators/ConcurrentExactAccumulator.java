@@ -0,0 +1,287 @@
+package xfp.java.accumulators;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import xfp.java.exceptions.Exceptions;
+
+//----------------------------------------------------------------
+/** Exact summation with concurrent updates from many threads,
+ * like {@link java.util.concurrent.atomic.DoubleAdder}, but
+ * exact.
+ * <p>
+ * Updates are striped over a fixed number of cells, each
+ * holding an exact, mergeable accumulator and a lock.
+ * A writer starts at a cell chosen from its thread, and
+ * moves on to the next cell if that one is busy, so writers
+ * only wait when every cell is in use.
+ * <p>
+ * {@link #doubleValue()} and the other value methods merge the
+ * cells, one at a time, into a fresh accumulator, and round
+ * that, so readers hold each lock only for one merge, and are
+ * exact for the values added before each cell is merged. As
+ * with <code>DoubleAdder.sum()</code>, values added
+ * concurrently with the read may or may not be included.
+ * <p>
+ * Thread safe, unlike the other accumulators.
+ * <p>
+ * @author palisades dot lakes at gmail dot com
+ * @version 2019-10-17
+ */
+
+@SuppressWarnings("unchecked")
+public final class ConcurrentExactAccumulator
+implements Accumulator<ConcurrentExactAccumulator> {
+
+  //--------------------------------------------------------------
+  // cells
+  //--------------------------------------------------------------
+
+  private static final class Cell extends ReentrantLock {
+    private static final long serialVersionUID = 0L;
+    private final Accumulator<?> _accumulator;
+    Cell (final Accumulator<?> accumulator) {
+      _accumulator = accumulator; } }
+
+  private final Supplier<? extends Accumulator<?>> _factory;
+  private final Cell[] _cells;
+  private final int _mask;
+
+  /** Spread thread ids over the cells. */
+  private final int home () {
+    final long h =
+      Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+    return (int) (h >>> 32) & _mask; }
+
+  /** Lock and return the first free cell, starting from this
+   * thread's home cell, waiting only if all are busy.
+   */
+  private final Cell acquire () {
+    final int h = home();
+    for (int k=0;k<=_mask;k++) {
+      final Cell c = _cells[(h+k) & _mask];
+      if (c.tryLock()) { return c; } }
+    final Cell c = _cells[h];
+    c.lock();
+    return c; }
+
+  /** A new accumulator, holding the exact sum of all the
+   * cells, each locked only while it is being merged.
+   */
+  public final Accumulator<?> snapshot () {
+    final Accumulator<?> a = _factory.get();
+    for (final Cell c : _cells) {
+      c.lock();
+      try { Accumulators.merge(a,c._accumulator); }
+      finally { c.unlock(); } }
+    return a; }
+
+  //--------------------------------------------------------------
+  // Accumulator interface
+  //--------------------------------------------------------------
+
+  @Override
+  public final boolean isExact () { return true; }
+
+  @Override
+  public final boolean noOverflow () {
+    return _cells[0]._accumulator.noOverflow(); }
+
+  @Override
+  public final Object value () { return snapshot().value(); }
+
+  @Override
+  public final double doubleValue () {
+    return snapshot().doubleValue(); }
+
+  @Override
+  public final float floatValue () {
+    return snapshot().floatValue(); }
+
+  @Override
+  public final ConcurrentExactAccumulator clear () {
+    for (final Cell c : _cells) {
+      c.lock();
+      try { c._accumulator.clear(); }
+      finally { c.unlock(); } }
+    return this; }
+
+  @Override
+  public final ConcurrentExactAccumulator
+  merge (final ConcurrentExactAccumulator other) {
+    final Accumulator<?> s = other.snapshot();
+    final Cell c = acquire();
+    try { Accumulators.merge(c._accumulator,s); }
+    finally { c.unlock(); }
+    return this; }
+
+  //--------------------------------------------------------------
+  // binary encoding
+  //--------------------------------------------------------------
+  /** A {@link #snapshot()}, after a header of its own, so
+   * only the same size as {@link #writeTo(ByteBuffer)} writes
+   * if nothing is added in between.
+   */
+  @Override
+  public final int encodedSize () {
+    return ExactAccumulator.HEADER_BYTES + snapshot().encodedSize(); }
+
+  @Override
+  public final ByteBuffer writeTo (final ByteBuffer b) {
+    final Accumulator<?> s = snapshot();
+    ExactAccumulator.writeHeader(b,ExactAccumulator.CONCURRENT);
+    return s.writeTo(b); }
+
+  /** The decoded state goes into one cell. */
+  @Override
+  public final ConcurrentExactAccumulator
+  readFrom (final ByteBuffer b) {
+    ExactAccumulator.readHeader(b,ExactAccumulator.CONCURRENT);
+    clear();
+    final Cell c = acquire();
+    try { c._accumulator.readFrom(b); }
+    finally { c.unlock(); }
+    return this; }
+
+  @Override
+  public final ConcurrentExactAccumulator
+  mergeFrom (final ByteBuffer b) {
+    ExactAccumulator.readHeader(b,ExactAccumulator.CONCURRENT);
+    final Cell c = acquire();
+    try { c._accumulator.mergeFrom(b); }
+    finally { c.unlock(); }
+    return this; }
+
+  //--------------------------------------------------------------
+
+  @Override
+  public final ConcurrentExactAccumulator add (final double z) {
+    final Cell c = acquire();
+    try { c._accumulator.add(z); }
+    finally { c.unlock(); }
+    return this; }
+
+  /** Holds one cell for the whole array. */
+  @Override
+  public final ConcurrentExactAccumulator
+  addAll (final double[] z) {
+    final Cell c = acquire();
+    try { c._accumulator.addAll(z); }
+    finally { c.unlock(); }
+    return this; }
+
+  @Override
+  public final ConcurrentExactAccumulator addAbs (final double z) {
+    final Cell c = acquire();
+    try { c._accumulator.addAbs(z); }
+    finally { c.unlock(); }
+    return this; }
+
+  @Override
+  public final ConcurrentExactAccumulator add2 (final double z) {
+    final Cell c = acquire();
+    try { c._accumulator.add2(z); }
+    finally { c.unlock(); }
+    return this; }
+
+  @Override
+  public final ConcurrentExactAccumulator
+  add2All (final double[] z) {
+    final Cell c = acquire();
+    try { c._accumulator.add2All(z); }
+    finally { c.unlock(); }
+    return this; }
+
+  @Override
+  public final ConcurrentExactAccumulator
+  addProduct (final double z0,
+              final double z1) {
+    final Cell c = acquire();
+    try { c._accumulator.addProduct(z0,z1); }
+    finally { c.unlock(); }
+    return this; }
+
+  @Override
+  public final ConcurrentExactAccumulator
+  addProducts (final double[] z0,
+               final double[] z1) {
+    final Cell c = acquire();
+    try { c._accumulator.addProducts(z0,z1); }
+    finally { c.unlock(); }
+    return this; }
+
+  @Override
+  public final ConcurrentExactAccumulator
+  addL1 (final double z0,
+         final double z1) {
+    final Cell c = acquire();
+    try { c._accumulator.addL1(z0,z1); }
+    finally { c.unlock(); }
+    return this; }
+
+  @Override
+  public final ConcurrentExactAccumulator
+  addL1Distance (final double[] z0,
+                 final double[] z1) {
+    final Cell c = acquire();
+    try { c._accumulator.addL1Distance(z0,z1); }
+    finally { c.unlock(); }
+    return this; }
+
+  @Override
+  public final ConcurrentExactAccumulator
+  addL2 (final double z0,
+         final double z1) {
+    final Cell c = acquire();
+    try { c._accumulator.addL2(z0,z1); }
+    finally { c.unlock(); }
+    return this; }
+
+  @Override
+  public final ConcurrentExactAccumulator
+  addL2Distance (final double[] z0,
+                 final double[] z1) {
+    final Cell c = acquire();
+    try { c._accumulator.addL2Distance(z0,z1); }
+    finally { c.unlock(); }
+    return this; }
+
+  //--------------------------------------------------------------
+  // construction
+  //--------------------------------------------------------------
+
+  private ConcurrentExactAccumulator (final Supplier<? extends Accumulator<?>> factory,
+                                      final int ncells) {
+    _factory = factory;
+    // power of 2, so the cell index is a mask
+    final int n = Integer.highestOneBit(Math.max(1,ncells-1)) << 1;
+    _cells = new Cell[n];
+    _mask = n - 1;
+    for (int i=0;i<n;i++) {
+      final Accumulator<?> a = factory.get();
+      if (! a.isExact()) {
+        throw Exceptions.unsupportedOperation(
+          null,"ConcurrentExactAccumulator",a); }
+      _cells[i] = new Cell(a); } }
+
+  /** @param factory must return a new, clear, exact accumulator
+   * on each call, whose <code>merge</code> is supported.
+   * @param ncells rounded up to a power of 2.
+   */
+  public static final ConcurrentExactAccumulator
+  make (final Supplier<? extends Accumulator<?>> factory,
+        final int ncells) {
+    return new ConcurrentExactAccumulator(factory,ncells); }
+
+  /** One cell per available processor, each a
+   * {@link LongAccumulator}, which merges without allocation.
+   */
+  public static final ConcurrentExactAccumulator make () {
+    return make(
+      LongAccumulator::make,
+      Runtime.getRuntime().availableProcessors()); }
+
+  //--------------------------------------------------------------
+}
+//--------------------------------------------------------------
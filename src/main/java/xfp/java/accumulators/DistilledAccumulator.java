@@ -1,5 +1,6 @@
 package xfp.java.accumulators;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /** Eager distillation.
@@ -7,7 +8,7 @@ import java.util.Arrays;
  * Mutable! Not thread safe!
  * <p>
  * @author palisades dot lakes at gmail dot com
- * @version 2019-07-23
+ * @version 2019-10-17
  */
 @SuppressWarnings("unchecked")
 public final class DistilledAccumulator
@@ -103,6 +104,67 @@ extends ExactAccumulator<DistilledAccumulator> {
       while (distill()) { compact(); } }
     return this; }
 
+  @Override
+  public final DistilledAccumulator merge (final DistilledAccumulator other) {
+    if (! Double.isFinite(_sums[0])) { return this; }
+    if (0 > other._end) { return this; }
+    if (! Double.isFinite(other._sums[0])) {
+      _sums[0] = other._sums[0];
+      return this; }
+    // other may be this
+    final double[] z = Arrays.copyOf(other._sums,other._end+1);
+    for (final double zi : z) { addValue(zi); }
+    while (distill()) { compact(); }
+    return this; }
+
+  //--------------------------------------------------------------
+  // binary encoding
+  //--------------------------------------------------------------
+
+  private final int nonZero () {
+    int m = 0;
+    for (int i=0;i<=_end;i++) { if (0.0 != _sums[i]) { m++; } }
+    return m; }
+
+  @Override
+  public final int encodedSize () {
+    return HEADER_BYTES + Integer.BYTES + (Double.BYTES*nonZero()); }
+
+  /** The partial count, then the non-zero partials, largest
+   * first.
+   */
+  @Override
+  public final ByteBuffer writeTo (final ByteBuffer b) {
+    writeHeader(b,DISTILLED);
+    b.putInt(nonZero());
+    for (int i=0;i<=_end;i++) {
+      final double zi = _sums[i];
+      if (0.0 != zi) { b.putDouble(zi); } }
+    return b; }
+
+  @Override
+  public final DistilledAccumulator readFrom (final ByteBuffer b) {
+    readHeader(b,DISTILLED);
+    final double[] z = readDoubles(b);
+    clear();
+    for (final double zi : z) { if (0.0 != zi) { addValue(zi); } }
+    // already distilled, if written by writeTo
+    while (distill()) { compact(); }
+    return this; }
+
+  @Override
+  public final DistilledAccumulator mergeFrom (final ByteBuffer b) {
+    readHeader(b,DISTILLED);
+    final double[] z = readDoubles(b);
+    if (! Double.isFinite(_sums[0])) { return this; }
+    if ((0 < z.length) && (! Double.isFinite(z[0]))) {
+      _sums[0] = z[0];
+      _end = Math.max(0,_end);
+      return this; }
+    for (final double zi : z) { addValue(zi); }
+    while (distill()) { compact(); }
+    return this; }
+
   //--------------------------------------------------------------
   // construction
   //--------------------------------------------------------------
@@ -1,15 +1,25 @@
 package xfp.java.accumulators;
 
 /** Naive sum of <code>double</code> values.
+ * <p>
+ * Also tracks <code>&Sigma;|t<sub>i</sub>|</code>, over the
+ * terms added, and the number of roundings <code>n</code>,
+ * for Higham's bound on recursive summation,
+ * <code>|doubleValue() - s| &le;
+ * &gamma;<sub>n</sub>&Sigma;|t<sub>i</sub>|</code>.
+ * See {@link #errorBound()}.
  *
  * @author palisades dot lakes at gmail dot com
- * @version 2019-06-05
+ * @version 2019-10-17
  */
 
 public final class DoubleAccumulator
 implements Accumulator<DoubleAccumulator> {
 
   private double _sum;
+  private double _absSum;
+  /** Number of roundings. */
+  private long _n;
 
   //--------------------------------------------------------------
 
@@ -27,44 +37,83 @@ implements Accumulator<DoubleAccumulator> {
   @Override
   public final double doubleValue () { return _sum; }
 
+  /** <code>&gamma;<sub>2n+2</sub>&Sigma;|t<sub>i</sub>|</code>:
+   * <code>&gamma;<sub>n</sub></code> for the sum, as much again
+   * for the rounding of <code>&Sigma;|t<sub>i</sub>|</code>
+   * itself, and a little for the bound's.
+   */
+  @Override
+  public final double errorBound () {
+    return Accumulators.gamma((2*_n)+2)*_absSum; }
+
   @Override
   public final DoubleAccumulator clear () {
-    _sum = 0.0; return this; }
+    _sum = 0.0; _absSum = 0.0; _n = 0; return this; }
 
   @Override
   public final DoubleAccumulator add (final double z) {
     _sum += z;
+    _absSum += Math.abs(z);
+    _n += 1;
     return this; }
 
   @Override
   public final DoubleAccumulator addAbsAll (final double[] z) {
-    for (final double zi : z) { _sum += Math.abs(zi); }
+    double s = _sum;
+    double a = _absSum;
+    for (final double zi : z) {
+      final double az = Math.abs(zi);
+      s += az; a += az; }
+    _sum = s;
+    _absSum = a;
+    _n += z.length;
     return this; }
 
   @Override
   public final DoubleAccumulator addAbs (final double z) {
-    _sum += Math.abs(z);
+    final double az = Math.abs(z);
+    _sum += az;
+    _absSum += az;
+    _n += 1;
     return this; }
 
   @Override
   public final DoubleAccumulator addAll (final double[] z) {
-    for (final double zi : z) { _sum += zi; }
+    double s = _sum;
+    double a = _absSum;
+    for (final double zi : z) { s += zi; a += Math.abs(zi); }
+    _sum = s;
+    _absSum = a;
+    _n += z.length;
     return this; }
 
   @Override
   public final DoubleAccumulator add2 (final double z) {
-    _sum += z*z;
+    final double zz = z*z;
+    _sum += zz;
+    _absSum += zz;
+    _n += 2;
     return this; }
 
   @Override
   public final DoubleAccumulator add2All (final double[] z) {
-    for (final double zi : z) { _sum += zi*zi; }
+    double s = _sum;
+    double a = _absSum;
+    for (final double zi : z) {
+      final double zz = zi*zi;
+      s += zz; a += zz; }
+    _sum = s;
+    _absSum = a;
+    _n += 2L*z.length;
     return this; }
 
   @Override
   public final DoubleAccumulator addProduct (final double z0,
                                              final double z1) {
-    _sum += z0*z1;
+    final double zz = z0*z1;
+    _sum += zz;
+    _absSum += Math.abs(zz);
+    _n += 2;
     return this; }
 
   @Override
@@ -72,7 +121,14 @@ implements Accumulator<DoubleAccumulator> {
                                               final double[] z1) {
     final int n = z0.length;
     //assert n == z1.length;
-    for (int i=0;i<n;i++) { _sum += z0[i]*z1[i]; }
+    double s = _sum;
+    double a = _absSum;
+    for (int i=0;i<n;i++) {
+      final double zz = z0[i]*z1[i];
+      s += zz; a += Math.abs(zz); }
+    _sum = s;
+    _absSum = a;
+    _n += 2L*n;
     return this; }
 
   @Override
@@ -80,7 +136,10 @@ implements Accumulator<DoubleAccumulator> {
                                   final double x1) {
     //assert Double.isFinite(x0);
     //assert Double.isFinite(x1);
-    _sum += Math.abs(x0-x1);
+    final double dx = Math.abs(x0-x1);
+    _sum += dx;
+    _absSum += dx;
+    _n += 2;
     return this; }
 
   @Override
@@ -88,18 +147,29 @@ implements Accumulator<DoubleAccumulator> {
                                           final double[] z1)  {
     final int n = z0.length;
     //assert n == z1.length;
+    double s = _sum;
+    double a = _absSum;
     for (int i=0;i<n;i++) { 
-      final double dz = z0[i]-z1[i]; 
-      _sum += Math.abs(dz); }
+      final double dz = Math.abs(z0[i]-z1[i]); 
+      s += dz; a += dz; }
+    _sum = s;
+    _absSum = a;
+    _n += 2L*n;
     return this; }
 
+  /** The square of the rounded difference is 3 roundings
+   * from the exact one.
+   */
   @Override
   public DoubleAccumulator addL2 (final double x0,
                                   final double x1) {
     //assert Double.isFinite(x0);
     //assert Double.isFinite(x1);
     final double dx = x0-x1;
-    _sum += dx*dx;
+    final double dx2 = dx*dx;
+    _sum += dx2;
+    _absSum += dx2;
+    _n += 4;
     return this; }
 
   @Override
@@ -107,16 +177,23 @@ implements Accumulator<DoubleAccumulator> {
                                           final double[] z1)  {
     final int n = z0.length;
     //assert n == z1.length;
+    double s = _sum;
+    double a = _absSum;
     for (int i=0;i<n;i++) { 
       final double dz = z0[i]-z1[i]; 
-      _sum += dz*dz; }
+      final double dz2 = dz*dz;
+      s += dz2; a += dz2; }
+    _sum = s;
+    _absSum = a;
+    _n += 4L*n;
     return this; }
 
   //--------------------------------------------------------------
   // construction
   //--------------------------------------------------------------
 
-  private DoubleAccumulator () { super(); _sum = 0.0; }
+  private DoubleAccumulator () {
+    super(); _sum = 0.0; _absSum = 0.0; _n = 0; }
 
   public static final DoubleAccumulator make () {
     return new DoubleAccumulator(); }
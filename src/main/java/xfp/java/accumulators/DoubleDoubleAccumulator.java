@@ -0,0 +1,305 @@
+package xfp.java.accumulators;
+
+//----------------------------------------------------------------
+/** Double-double (double-word) summation: the running sum is
+ * the unevaluated sum <code>hi + lo</code> of 2 doubles, with
+ * <code>|lo| &le; ulp(hi)/2</code>, about 106 significant bits.
+ * <p>
+ * Each term is split exactly into 1 or 2 doubles with
+ * branch-free TwoSum and <code>Math.fma</code> TwoProd,
+ * and added with the double-word algorithms analyzed by
+ * Joldes, Muller and Popescu:
+ * <ul>
+ * <li> {@link #add(double)}: DWPlusFP, relative error at most
+ * <code>2u<sup>2</sup></code>,
+ * <li> {@link #addProduct(double,double)}, {@link #add2(double)},
+ * {@link #addL2(double,double)}: AccurateDWPlusDW, relative
+ * error at most <code>3u<sup>2</sup>+13u<sup>3</sup></code>,
+ * </ul>
+ * where <code>u = 2<sup>-53</sup></code>.
+ * <p>
+ * So, after <code>n</code> terms <code>t<sub>i</sub></code>,
+ * ignoring underflow and higher order terms,
+ * <code>|doubleValue() - &Sigma;t<sub>i</sub>| &le;
+ * u|&Sigma;t<sub>i</sub>| + 4nu<sup>2</sup>&Sigma;|t<sub>i</sub>|</code>
+ * (<code>8nu<sup>2</sup></code> for <code>addL2</code>, whose
+ * terms are themselves rounded to double-double).
+ * That's the correctly rounded sum unless the data have a
+ * condition number near <code>1/(nu)</code>.
+ * {@link #errorBound()} tracks <code>n</code> and
+ * <code>&Sigma;|t<sub>i</sub>|</code> to evaluate it.
+ * <p>
+ * Mutable! Not thread safe!
+ * <p>
+ * @see <a href="https://doi.org/10.1145/3121432">
+ * Mioara Joldes, Jean-Michel Muller, Valentina Popescu,
+ * "Tight and rigorous error bounds for basic building blocks of
+ * double-word arithmetic", ACM TOMS 44(2), 2017.</a>
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2019-10-17
+ */
+
+public final class DoubleDoubleAccumulator
+implements Accumulator<DoubleDoubleAccumulator> {
+
+  private double hi = 0.0;
+  private double lo = 0.0;
+  private double absSum = 0.0;
+  private long n = 0;
+
+  //--------------------------------------------------------------
+  /** DWPlusFP: add <code>y</code> to <code>hi + lo</code>. */
+
+  private final void addFP (final double y) {
+    // TwoSum(hi,y)
+    final double sh = hi + y;
+    final double yy = sh - hi;
+    final double sl = (hi - (sh - yy)) + (y - yy);
+    absSum += Math.abs(y);
+    n += 1;
+    if (Double.isInfinite(sh)) { hi = sh; lo = 0.0; return; }
+    final double v = lo + sl;
+    // FastTwoSum(sh,v)
+    hi = sh + v;
+    lo = v - (hi - sh); }
+
+  /** AccurateDWPlusDW: add <code>yh + yl</code>,
+   * with <code>|yl| &le; ulp(yh)/2</code>, to
+   * <code>hi + lo</code>.
+   */
+
+  private final void addDW (final double yh,
+                            final double yl) {
+    // TwoSum(hi,yh)
+    final double sh = hi + yh;
+    final double yy = sh - hi;
+    final double sl = (hi - (sh - yy)) + (yh - yy);
+    absSum += Math.abs(yh);
+    n += 1;
+    if (Double.isInfinite(sh)) { hi = sh; lo = 0.0; return; }
+    // TwoSum(lo,yl)
+    final double th = lo + yl;
+    final double zz = th - lo;
+    final double tl = (lo - (th - zz)) + (yl - zz);
+    final double c = sl + th;
+    // FastTwoSum(sh,c)
+    final double vh = sh + c;
+    final double vl = c - (vh - sh);
+    final double w = tl + vl;
+    // FastTwoSum(vh,w)
+    hi = vh + w;
+    lo = w - (hi - vh); }
+
+  //--------------------------------------------------------------
+
+  @Override
+  public final boolean isExact () { return false; }
+
+  @Override
+  public final boolean noOverflow () { return false; }
+
+  @Override
+  public final Object value () {
+    return Double.valueOf(doubleValue()); }
+
+  @Override
+  public final double doubleValue () { return hi + lo; }
+
+  /** Half an ulp for rounding <code>hi + lo</code>, plus
+   * <code>4nu<sup>2</sup>&Sigma;|t<sub>i</sub>|</code>,
+   * inflated by <code>&gamma;<sub>n+2</sub></code> for the
+   * rounding of <code>&Sigma;|t<sub>i</sub>|</code> itself.
+   */
+  @Override
+  public final double errorBound () {
+    final double r = hi + lo;
+    return
+      (0.5*Math.ulp(r))
+      + (n*0x1.0p-104*(1.0 + Accumulators.gamma(n+2))*absSum); }
+
+  @Override
+  public final DoubleDoubleAccumulator clear () {
+    hi = 0.0; lo = 0.0; absSum = 0.0; n = 0; return this; }
+
+  @Override
+  public final DoubleDoubleAccumulator
+  merge (final DoubleDoubleAccumulator other) {
+    // other may be this
+    final double oa = other.absSum;
+    final long on = other.n;
+    addDW(other.hi,other.lo);
+    absSum += oa;
+    n += on;
+    return this; }
+
+  //--------------------------------------------------------------
+
+  @Override
+  public final DoubleDoubleAccumulator add (final double z) {
+    //assert Double.isFinite(z);
+    addFP(z);
+    return this; }
+
+  /** Two independent double-double sums, of the even and odd
+   * elements, to overlap the latency of the dependent adds,
+   * merged at the end; redone one at a time on overflow.
+   */
+  @Override
+  public final DoubleDoubleAccumulator addAll (final double[] z) {
+    final int m = z.length;
+    double h0 = hi; double l0 = lo;
+    double h1 = 0.0; double l1 = 0.0;
+    double a = absSum;
+    int i = 0;
+    for (;i+1<m;i+=2) {
+      final double y0 = z[i];
+      final double s0 = h0 + y0;
+      final double yy0 = s0 - h0;
+      final double v0 = l0 + ((h0 - (s0 - yy0)) + (y0 - yy0));
+      h0 = s0 + v0;
+      l0 = v0 - (h0 - s0);
+      final double y1 = z[i+1];
+      final double s1 = h1 + y1;
+      final double yy1 = s1 - h1;
+      final double v1 = l1 + ((h1 - (s1 - yy1)) + (y1 - yy1));
+      h1 = s1 + v1;
+      l1 = v1 - (h1 - s1);
+      a += Math.abs(y0);
+      a += Math.abs(y1); }
+    if (! (Double.isFinite(h0) && Double.isFinite(h1))) {
+      for (final double zi : z) { addFP(zi); }
+      return this; }
+    hi = h0; lo = l0;
+    absSum = a;
+    n += i;
+    addDW(h1,l1);
+    if (i < m) { addFP(z[i]); }
+    return this; }
+
+  @Override
+  public final DoubleDoubleAccumulator addAbs (final double z) {
+    addFP(Math.abs(z));
+    return this; }
+
+  @Override
+  public final DoubleDoubleAccumulator add2 (final double z) {
+    //assert Double.isFinite(z);
+    // TwoProd
+    final double zz = z*z;
+    addDW(zz,Math.fma(z,z,-zz));
+    return this; }
+
+  @Override
+  public final DoubleDoubleAccumulator addProduct (final double z0,
+                                                   final double z1) {
+    //assert Double.isFinite(z0);
+    //assert Double.isFinite(z1);
+    // TwoProd
+    final double zz = z0*z1;
+    addDW(zz,Math.fma(z0,z1,-zz));
+    return this; }
+
+  /** Like {@link #addAll(double[])}, 2 independent sums of
+   * TwoProd products, with AccurateDWPlusDW.
+   */
+  @Override
+  public final DoubleDoubleAccumulator addProducts (final double[] z0,
+                                                    final double[] z1) {
+    final int m = z0.length;
+    //assert m==z1.length;
+    double h0 = hi; double l0 = lo;
+    double h1 = 0.0; double l1 = 0.0;
+    double a = absSum;
+    int i = 0;
+    for (;i+1<m;i+=2) {
+      final double a0 = z0[i];
+      final double b0 = z1[i];
+      final double p0 = a0*b0;
+      final double q0 = Math.fma(a0,b0,-p0);
+      final double sh0 = h0 + p0;
+      final double yy0 = sh0 - h0;
+      final double sl0 = (h0 - (sh0 - yy0)) + (p0 - yy0);
+      final double th0 = l0 + q0;
+      final double zz0 = th0 - l0;
+      final double tl0 = (l0 - (th0 - zz0)) + (q0 - zz0);
+      final double c0 = sl0 + th0;
+      final double vh0 = sh0 + c0;
+      final double w0 = tl0 + (c0 - (vh0 - sh0));
+      h0 = vh0 + w0;
+      l0 = w0 - (h0 - vh0);
+      final double a1 = z0[i+1];
+      final double b1 = z1[i+1];
+      final double p1 = a1*b1;
+      final double q1 = Math.fma(a1,b1,-p1);
+      final double sh1 = h1 + p1;
+      final double yy1 = sh1 - h1;
+      final double sl1 = (h1 - (sh1 - yy1)) + (p1 - yy1);
+      final double th1 = l1 + q1;
+      final double zz1 = th1 - l1;
+      final double tl1 = (l1 - (th1 - zz1)) + (q1 - zz1);
+      final double c1 = sl1 + th1;
+      final double vh1 = sh1 + c1;
+      final double w1 = tl1 + (c1 - (vh1 - sh1));
+      h1 = vh1 + w1;
+      l1 = w1 - (h1 - vh1);
+      a += Math.abs(p0);
+      a += Math.abs(p1); }
+    if (! (Double.isFinite(h0) && Double.isFinite(h1))) {
+      for (int j=0;j<m;j++) { addProduct(z0[j],z1[j]); }
+      return this; }
+    hi = h0; lo = l0;
+    absSum = a;
+    n += i;
+    addDW(h1,l1);
+    if (i < m) { addProduct(z0[i],z1[i]); }
+    return this; }
+
+  /** Exact difference with TwoSum, then its absolute value. */
+  @Override
+  public final DoubleDoubleAccumulator addL1 (final double z0,
+                                              final double z1) {
+    //assert Double.isFinite(z0);
+    //assert Double.isFinite(z1);
+    final double dh = z0 - z1;
+    final double dd = dh - z0;
+    final double dl = (z0 - (dh - dd)) + ((-z1) - dd);
+    // dl == 0 when dh == 0, otherwise dh has the sign
+    if (dh < 0.0) { addDW(-dh,-dl); }
+    else { addDW(dh,dl); }
+    return this; }
+
+  /** Exact difference <code>dh + dl</code> with TwoSum, then
+   * <code>dh<sup>2</sup> + 2 dh dl</code> with TwoProd and fma,
+   * dropping <code>dl<sup>2</sup> &le;
+   * u<sup>2</sup>dh<sup>2</sup></code>.
+   */
+  @Override
+  public final DoubleDoubleAccumulator addL2 (final double z0,
+                                              final double z1) {
+    //assert Double.isFinite(z0);
+    //assert Double.isFinite(z1);
+    final double dh = z0 - z1;
+    final double dd = dh - z0;
+    final double dl = (z0 - (dh - dd)) + ((-z1) - dd);
+    final double ph = dh*dh;
+    final double pl = Math.fma(2.0*dh,dl,Math.fma(dh,dh,-ph));
+    // FastTwoSum(ph,pl) to restore |pl| <= ulp(ph)/2
+    final double sh = ph + pl;
+    addDW(sh,pl - (sh - ph));
+    // counts twice, for the rounding of the square
+    n += 1;
+    return this; }
+
+  //--------------------------------------------------------------
+  // construction
+  //--------------------------------------------------------------
+
+  private DoubleDoubleAccumulator () { }
+
+  public static final DoubleDoubleAccumulator make () {
+    return new DoubleDoubleAccumulator(); }
+
+  //--------------------------------------------------------------
+}
+//--------------------------------------------------------------
@@ -1,12 +1,14 @@
 package xfp.java.accumulators;
 
+import java.nio.ByteBuffer;
+
 /** Basre class for some exact accumulators.
  * <p>
  * Use twoAdd and twoMul to convert operations to sequence of 
  * adds, so that they are exact if {@link #add(double)} is.
  * 
  * @author palisades dot lakes at gmail dot com
- * @version 2019-09-06
+ * @version 2019-10-17
  */
 @SuppressWarnings("unchecked")
 public abstract class ExactAccumulator<T extends ExactAccumulator>
@@ -17,6 +19,11 @@ implements Accumulator<T> {
   @Override
   public final boolean isExact () { return true; }
 
+  /** Half an ulp of the correctly rounded result. */
+  @Override
+  public double errorBound () {
+    return 0.5*Math.ulp(doubleValue()); }
+
   @Override
   public T add2 (final double z) {
     // WARNING: WRONG: only works when 
@@ -84,6 +91,53 @@ implements Accumulator<T> {
     add(eee);
     return (T) this; } 
 
+  //--------------------------------------------------------------
+  // binary encoding
+  //--------------------------------------------------------------
+  /** Every encoding starts with this, and a tag for the
+   * format of the rest, so an old or foreign encoding fails
+   * fast, rather than decoding to garbage.
+   */
+  public static final byte ENCODING_VERSION = 1;
+
+  protected static final int HEADER_BYTES = 2;
+
+  protected static final byte BIG_FLOAT = 1;
+  protected static final byte RATIONAL_FLOAT = 2;
+  protected static final byte ZHU_HAYES = 3;
+  protected static final byte FIXED_POINT = 4;
+  protected static final byte SHEWCHUK = 5;
+  protected static final byte DISTILLED = 6;
+  protected static final byte ADAPTIVE = 7;
+  protected static final byte CONCURRENT = 8;
+
+  protected static final void writeHeader (final ByteBuffer b,
+                                           final byte tag) {
+    b.put(ENCODING_VERSION);
+    b.put(tag); }
+
+  protected static final void readHeader (final ByteBuffer b,
+                                          final byte tag) {
+    final byte version = b.get();
+    if (ENCODING_VERSION != version) {
+      throw new IllegalArgumentException(
+        "unsupported encoding version: " + version); }
+    final byte t = b.get();
+    if (tag != t) {
+      throw new IllegalArgumentException(
+        "expected encoding " + tag + ", not " + t); } }
+
+  /** A count, then that many doubles, checked against what's
+   * left in <code>b</code>.
+   */
+  protected static final double[] readDoubles (final ByteBuffer b) {
+    final int m = b.getInt();
+    if ((0 > m) || ((b.remaining()/Double.BYTES) < m)) {
+      throw new IllegalArgumentException("bad count: " + m); }
+    final double[] z = new double[m];
+    for (int k=0;k<m;k++) { z[k] = b.getDouble(); }
+    return z; }
+
   //--------------------------------------------------------------
   // construction
   //--------------------------------------------------------------
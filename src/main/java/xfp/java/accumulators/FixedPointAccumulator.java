@@ -0,0 +1,308 @@
+package xfp.java.accumulators;
+
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import xfp.java.numbers.Doubles;
+import xfp.java.numbers.Floats;
+
+//----------------------------------------------------------------
+/** Shared state and rounding for exact accumulators that hold
+ * the sum as a fixed point number in a <code>long[]</code>.
+ * <p>
+ * Each word holds a 32 bit 'digit' in the low half of a signed
+ * <code>long</code>, leaving the high half for carries,
+ * which subclasses must propagate, via {@link #touch(int,int)},
+ * before any word can overflow.
+ * <p>
+ * Only the range of words actually touched is cleared,
+ * normalized, merged or scanned when rounding.
+ * <p>
+ * <em>NOT</em> thread safe!
+ * <p>
+ * @author palisades dot lakes at gmail dot com
+ * @version 2019-10-17
+ */
+
+@SuppressWarnings("unchecked")
+public abstract class FixedPointAccumulator<T extends FixedPointAccumulator<T>>
+extends ExactAccumulator<T> {
+
+  //--------------------------------------------------------------
+
+  protected static final long LOW = 0xFFFFFFFFL;
+
+  /** Bit 0 of word 0 has value
+   * <code>2<sup>-offset</sup></code>.
+   */
+  private final int _offset;
+
+  /** Maximum number of operations between carry propagation.
+   */
+  private final int _nadds;
+
+  protected final long[] _words;
+
+  // scratch for the magnitude of a negative sum
+  private final long[] _magnitude;
+
+  // inclusive range of possibly non-zero words;
+  // empty when _lo > _hi
+  private int _lo;
+  private int _hi;
+
+  // operations since carries were last propagated
+  private int _count;
+
+  //--------------------------------------------------------------
+  // accumulate
+  //--------------------------------------------------------------
+
+  /** Record that words <code>lo</code> to <code>hi</code>
+   * (inclusive) may have been changed by one operation.
+   */
+  protected final void touch (final int lo,
+                              final int hi) {
+    if (lo < _lo) { _lo = lo; }
+    if (hi > _hi) { _hi = hi; }
+    if (++_count >= _nadds) { propagateCarries(); } }
+
+  //--------------------------------------------------------------
+  /** Leaves every touched word but the highest in
+   * <code>[0,2<sup>32</sup>)</code>, and the highest in
+   * <code>[-2<sup>32</sup>,2<sup>32</sup>)</code>,
+   * with the sign of the sum.
+   * Shrinks the touched range to exclude zero words at either
+   * end.
+   */
+  private final void propagateCarries () {
+    _count = 0;
+    if (_lo > _hi) { return; }
+    final int n = _words.length;
+    long carry = 0L;
+    for (int k=_lo;k<_hi;k++) {
+      final long w = _words[k] + carry;
+      _words[k] = w & LOW;
+      carry = w >> 32; }
+    int k = _hi;
+    long w = _words[k] + carry;
+    while (k < n-1) {
+      final long c = w >> 32;
+      if ((0L == c) || (-1L == c)) { break; }
+      _words[k] = w & LOW;
+      k++;
+      w = _words[k] + c; }
+    _words[k] = w;
+    _hi = k;
+    while ((_hi >= _lo) && (0L == _words[_hi])) { _hi--; }
+    while ((_lo <= _hi) && (0L == _words[_lo])) { _lo++; }
+    if (_lo > _hi) { _lo = n; _hi = -1; } }
+
+  //--------------------------------------------------------------
+  // rounding
+  //--------------------------------------------------------------
+  // leading 64 bits of the magnitude, whether any lower bits
+  // are non-zero, and the exponent of the low bit of _m.
+
+  private long _m;
+  private boolean _sticky;
+  private int _e;
+
+  /** Assumes carries have been propagated and the sum is not
+   * zero. Returns the sign.
+   */
+  private final boolean leadingBits () {
+    final boolean negative = (_words[_hi] < 0L);
+    final long[] w;
+    if (negative) {
+      w = _magnitude;
+      long carry = 0L;
+      for (int k=_lo;k<_hi;k++) {
+        final long v = carry - _words[k];
+        w[k] = v & LOW;
+        carry = v >> 32; }
+      w[_hi] = carry - _words[_hi]; }
+    else {
+      w = _words; }
+    int h = _hi;
+    while (0L == w[h]) { h--; }
+    // top word may have 33 bits
+    final int hb = 64 - Long.numberOfLeadingZeros(w[h]);
+    long m = w[h] << (64-hb);
+    boolean sticky = false;
+    int filled = hb;
+    int k = h-1;
+    for (;(k >= _lo) && (filled < 64);k--) {
+      final int shift = 32 - filled;
+      if (shift >= 0) { m |= w[k] << shift; }
+      else {
+        m |= w[k] >>> -shift;
+        sticky = (0L != (w[k] & ((1L << -shift) - 1L))); }
+      filled += 32; }
+    for (;(k >= _lo) && (! sticky);k--) { sticky = (0L != w[k]); }
+    _m = m;
+    _sticky = sticky;
+    _e = (32*h) + hb - 64 - _offset;
+    return negative; }
+
+  //--------------------------------------------------------------
+  // Accumulator interface
+  //--------------------------------------------------------------
+
+  @Override
+  public final Object value () {
+    return Double.valueOf(doubleValue()); }
+
+  @Override
+  public double doubleValue () {
+    propagateCarries();
+    if (_lo > _hi) { return 0.0; }
+    final boolean negative = leadingBits();
+    return Doubles.roundHalfEven(! negative,_m,_sticky,_e); }
+
+  @Override
+  public double doubleValue (final RoundingMode mode) {
+    propagateCarries();
+    if (_lo > _hi) { return 0.0; }
+    final boolean negative = leadingBits();
+    return Doubles.round(! negative,_m,_sticky,_e,mode); }
+
+  @Override
+  public float floatValue () {
+    propagateCarries();
+    if (_lo > _hi) { return 0.0F; }
+    final boolean negative = leadingBits();
+    return Floats.roundHalfEven(! negative,_m,_sticky,_e); }
+
+  //--------------------------------------------------------------
+
+  @Override
+  public T clear () {
+    if (_lo <= _hi) { Arrays.fill(_words,_lo,_hi+1,0L); }
+    _lo = _words.length;
+    _hi = -1;
+    _count = 0;
+    return (T) this; }
+
+  @Override
+  public T merge (final T other) {
+    final FixedPointAccumulator<T> that = other;
+    if (that._lo > that._hi) { return (T) this; }
+    if ((_count + that._count) >= _nadds) { propagateCarries(); }
+    // other may be this
+    final int lo = that._lo;
+    final int hi = that._hi;
+    final int count = that._count;
+    for (int k=lo;k<=hi;k++) { _words[k] += that._words[k]; }
+    if (lo < _lo) { _lo = lo; }
+    if (hi > _hi) { _hi = hi; }
+    _count += count + 1;
+    return (T) this; }
+
+  //--------------------------------------------------------------
+  // binary encoding
+  //--------------------------------------------------------------
+  // the layout, the first touched word, the number of words,
+  // then the words, after carry propagation, so all but the
+  // highest fit in an int.
+
+  @Override
+  public final int encodedSize () {
+    propagateCarries();
+    final int n = _hi - _lo + 1;
+    if (0 >= n) { return HEADER_BYTES + (4*Integer.BYTES); }
+    return HEADER_BYTES + (4*Integer.BYTES)
+      + (Integer.BYTES*(n-1)) + Long.BYTES; }
+
+  @Override
+  public final ByteBuffer writeTo (final ByteBuffer b) {
+    propagateCarries();
+    writeHeader(b,FIXED_POINT);
+    b.putInt(_offset);
+    b.putInt(_words.length);
+    if (_lo > _hi) { b.putInt(0); b.putInt(0); return b; }
+    b.putInt(_lo);
+    b.putInt(_hi - _lo + 1);
+    for (int k=_lo;k<_hi;k++) { b.putInt((int) _words[k]); }
+    b.putLong(_words[_hi]);
+    return b; }
+
+  /** Check the layout matches, and read the first touched word
+   * and the number of words.
+   */
+  private final void readRange (final ByteBuffer b,
+                                final int[] range) {
+    readHeader(b,FIXED_POINT);
+    final int offset = b.getInt();
+    final int nwords = b.getInt();
+    if ((_offset != offset) || (_words.length != nwords)) {
+      throw new IllegalArgumentException(
+        "layout " + offset + "," + nwords
+        + " doesn't match " + _offset + "," + _words.length); }
+    final int lo = b.getInt();
+    final int n = b.getInt();
+    if ((0 > lo) || (0 > n) || (nwords < (lo + (long) n))) {
+      throw new IllegalArgumentException(
+        "bad word range: " + lo + "," + n); }
+    range[0] = lo;
+    range[1] = n; }
+
+  @Override
+  public final T readFrom (final ByteBuffer b) {
+    final int[] range = new int[2];
+    readRange(b,range);
+    clear();
+    final int lo = range[0];
+    final int n = range[1];
+    if (0 == n) { return (T) this; }
+    final int hi = lo + n - 1;
+    for (int k=lo;k<hi;k++) {
+      _words[k] = Integer.toUnsignedLong(b.getInt()); }
+    _words[hi] = b.getLong();
+    _lo = lo;
+    _hi = hi;
+    // strips any zero words at the ends
+    propagateCarries();
+    return (T) this; }
+
+  /** Like {@link #merge}: each word added
+   * is less than <code>2<sup>32</sup></code> in absolute value,
+   * so it counts as one operation.
+   */
+  @Override
+  public final T mergeFrom (final ByteBuffer b) {
+    final int[] range = new int[2];
+    readRange(b,range);
+    final int lo = range[0];
+    final int n = range[1];
+    if (0 == n) { return (T) this; }
+    if ((_count + 1) >= _nadds) { propagateCarries(); }
+    final int hi = lo + n - 1;
+    for (int k=lo;k<hi;k++) {
+      _words[k] += Integer.toUnsignedLong(b.getInt()); }
+    _words[hi] += b.getLong();
+    if (lo < _lo) { _lo = lo; }
+    if (hi > _hi) { _hi = hi; }
+    _count += 1;
+    return (T) this; }
+
+  //--------------------------------------------------------------
+  // construction
+  //--------------------------------------------------------------
+
+  protected FixedPointAccumulator (final int nwords,
+                                   final int offset,
+                                   final int nadds) {
+    super();
+    _words = new long[nwords];
+    _magnitude = new long[nwords];
+    _offset = offset;
+    _nadds = nadds;
+    _lo = nwords;
+    _hi = -1;
+    _count = 0; }
+
+  //--------------------------------------------------------------
+} // end of class
+//----------------------------------------------------------------
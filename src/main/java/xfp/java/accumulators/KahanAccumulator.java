@@ -7,6 +7,9 @@ package xfp.java.accumulators;
  * Use twoAdd and twoMul to convert, eg, dot products to 
  * multiple compensated additions. 
  * <p>
+ * Also tracks <code>&Sigma;|t<sub>i</sub>|</code>, over the
+ * doubles added, and their number, for {@link #errorBound()}.
+ * <p>
  * Mutable! Not thread safe!
  * <p>
  * @see <a
@@ -18,7 +21,7 @@ package xfp.java.accumulators;
  *      Graillat, Langlois, and Louvet, Accurate dot products with FMA"</a>
  *
  * @author palisades dot lakes at gmail dot com
- * @version 2019-08-05
+ * @version 2019-10-17
  */
 
 public final class KahanAccumulator
@@ -27,6 +30,8 @@ implements Accumulator<KahanAccumulator> {
 
   private double value = 0.0;
   private double correction = 0.0;
+  private double absSum = 0.0;
+  private long n = 0;
 
   //--------------------------------------------------------------
 
@@ -43,9 +48,28 @@ implements Accumulator<KahanAccumulator> {
   @Override
   public final double doubleValue () { return value; }
 
+  /** Higham's bound for compensated summation,
+   * <code>(2u + O(nu<sup>2</sup>))&Sigma;|t<sub>i</sub>|</code>,
+   * taking the second order term as
+   * <code>4nu<sup>2</sup></code>, and inflated by
+   * <code>&gamma;<sub>n+2</sub></code> for the rounding of
+   * <code>&Sigma;|t<sub>i</sub>|</code> itself.
+   * <p>
+   * See Nicholas J. Higham, "Accuracy and Stability of
+   * Numerical Algorithms", 2nd ed., SIAM, 2002, section 4.3.
+   */
+  @Override
+  public final double errorBound () {
+    final double nu = n*0x1.0p-53;
+    return
+      (0x1.0p-52 + (4.0*nu*0x1.0p-53))
+      * (1.0 + Accumulators.gamma(n+2))
+      * absSum; }
+
   @Override
   public final KahanAccumulator clear () {
-    value = 0.0; correction = 0.0; return this; }
+    value = 0.0; correction = 0.0; absSum = 0.0; n = 0;
+    return this; }
 
   //--------------------------------------------------------------
 
@@ -56,16 +80,22 @@ implements Accumulator<KahanAccumulator> {
     final double szc = value + zc;
     correction = (szc - value) - zc;
     value = szc;
+    absSum += Math.abs(z);
+    n += 1;
     return this; }
 
   @Override
   public final KahanAccumulator addAll (final double[] z) {
+    double a = absSum;
     for (final double zi : z) { 
       //assert Double.isFinite(z);
       final double zc = zi - correction;
       final double szc = value + zc;
       correction = (szc - value) - zc;
-      value = szc; }
+      value = szc;
+      a += Math.abs(zi); }
+    absSum = a;
+    n += z.length;
     return this; }
 
   //--------------------------------------------------------------
@@ -73,20 +103,28 @@ implements Accumulator<KahanAccumulator> {
   @Override
   public final KahanAccumulator addAbs (final double z) {
     //assert Double.isFinite(z);
-    final double zc = Math.abs(z) - correction;
+    final double az = Math.abs(z);
+    final double zc = az - correction;
     final double szc = value + zc;
     correction = (szc - value) - zc;
     value = szc;
+    absSum += az;
+    n += 1;
     return this; }
 
   @Override
   public final KahanAccumulator addAbsAll (final double[] z) {
+    double a = absSum;
     for (final double zi : z) { 
       //assert Double.isFinite(z);
-      final double zc = Math.abs(zi) - correction;
+      final double azi = Math.abs(zi);
+      final double zc = azi - correction;
       final double szc = value + zc;
       correction = (szc - value) - zc;
-      value = szc; }
+      value = szc;
+      a += azi; }
+    absSum = a;
+    n += z.length;
     return this; }
 
   //--------------------------------------------------------------
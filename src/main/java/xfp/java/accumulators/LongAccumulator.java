@@ -0,0 +1,200 @@
+package xfp.java.accumulators;
+
+import xfp.java.numbers.Doubles;
+
+//----------------------------------------------------------------
+/** Exact online summation with a Kulisch style fixed point
+ * 'long accumulator'.
+ * <p>
+ * The sum is held as a fixed point number, in a preallocated
+ * <code>long[]</code>, with enough bits to cover the exact
+ * product of any 2 finite <code>double</code>s.
+ * Carries are only propagated every <code>2<sup>29</sup></code>
+ * operations and before rounding.
+ * <p>
+ * No allocation after construction. Only the range of words
+ * actually touched is cleared, normalized or scanned when
+ * rounding.
+ * <p>
+ * Primary reference:
+ * <p>
+ * <a href="https://doi.org/10.1007/978-3-7091-0525-2">
+ * Ulrich Kulisch,
+ * "Computer Arithmetic and Validity: Theory, Implementation,
+ * and Applications",
+ * de Gruyter, 2nd ed, 2013.</a>
+ * <p>
+ * <em>NOT</em> thread safe!
+ * <p>
+ * @author palisades dot lakes at gmail dot com
+ * @version 2019-10-14
+ */
+
+public final class LongAccumulator
+extends FixedPointAccumulator<LongAccumulator> {
+
+  //--------------------------------------------------------------
+  // fixed point layout
+  //--------------------------------------------------------------
+
+  /** Bit 0 of word 0 has value
+   * <code>2<sup>-OFFSET</sup></code>, the smallest possible
+   * bit in the product of 2 subnormal <code>double</code>s.
+   */
+  private static final int OFFSET =
+    -2 * Doubles.MINIMUM_EXPONENT_INTEGRAL_SIGNIFICAND;
+
+  /** Bit position of the least significant bit of a
+   * subnormal double.
+   */
+  private static final int SUBNORMAL_OFFSET =
+    OFFSET + Doubles.MINIMUM_EXPONENT_INTEGRAL_SIGNIFICAND;
+
+  /** Enough words for the highest bit of the product of 2
+   * finite doubles, plus headroom for carries.
+   */
+  private static final int NWORDS =
+    ((OFFSET
+      + 2 * Doubles.MAXIMUM_EXPONENT_INTEGRAL_SIGNIFICAND
+      + 2 * Doubles.SIGNIFICAND_BITS) >>> 5) + 4;
+
+  /** Each operation adds less than
+   * <code>2<sup>33</sup></code> to any word, so carries must
+   * be propagated before <code>2<sup>30</sup></code>
+   * operations.
+   */
+  private static final int NADDS = 1 << 29;
+
+  //--------------------------------------------------------------
+  // accumulate
+  //--------------------------------------------------------------
+
+  /** Add <code>t*2<sup>b-OFFSET</sup></code>, where
+   * <code>|t| &lt; 2<sup>62</sup></code>.
+   */
+  private final void add64 (final long t,
+                            final int b) {
+    final int k = b >>> 5;
+    final int s = b & 0x1F;
+    final long c0 = (t & LOW) << s;
+    final long c1 = (t >> 32) << s;
+    _words[k] += c0 & LOW;
+    _words[k+1] += (c0 >>> 32) + (c1 & LOW);
+    _words[k+2] += c1 >> 32;
+    touch(k,k+2); }
+
+  /** Add <code>t*2<sup>b-OFFSET</sup></code>, where
+   * <code>t</code> is the 128 bit twos complement integer
+   * <code>hi*2<sup>64</sup> + lo</code>, and
+   * <code>|t| &lt; 2<sup>126</sup></code>.
+   */
+  private final void add128 (final long hi,
+                             final long lo,
+                             final int b) {
+    final int k = b >>> 5;
+    final int s = b & 0x1F;
+    final long c0 = (lo & LOW) << s;
+    final long c1 = (lo >>> 32) << s;
+    final long c2 = (hi & LOW) << s;
+    final long c3 = (hi >> 32) << s;
+    _words[k] += c0 & LOW;
+    _words[k+1] += (c0 >>> 32) + (c1 & LOW);
+    _words[k+2] += (c1 >>> 32) + (c2 & LOW);
+    _words[k+3] += (c2 >>> 32) + (c3 & LOW);
+    _words[k+4] += c3 >> 32;
+    touch(k,k+4); }
+
+  /** Add <code>t0*t1*2<sup>b-OFFSET</sup></code>, where
+   * <code>|t0|,t1 &lt; 2<sup>62</sup></code>.
+   */
+  private final void addProduct (final long t0,
+                                 final long t1,
+                                 final int b) {
+    add128(Math.multiplyHigh(t0,t1),t0*t1,b); }
+
+  //--------------------------------------------------------------
+  // Accumulator interface
+  //--------------------------------------------------------------
+
+  @Override
+  public final boolean noOverflow () { return true; }
+
+  @Override
+  public final LongAccumulator add (final double z) {
+    //assert Double.isFinite(z);
+    final long bits = Double.doubleToRawLongBits(z);
+    final int be = (int) ((bits & Doubles.EXPONENT_MASK)
+      >>> Doubles.STORED_SIGNIFICAND_BITS);
+    long t = bits & Doubles.STORED_SIGNIFICAND_MASK;
+    if (0 == be) {
+      if (0L == t) { return this; } }
+    else { t |= Doubles.STORED_SIGNIFICAND_MASK + 1L; }
+    // subnormals have the same exponent as biased exponent 1
+    add64(
+      ((bits < 0L) ? -t : t),
+      Math.max(be,1) - 1 + SUBNORMAL_OFFSET);
+    return this; }
+
+  @Override
+  public final LongAccumulator add2 (final double z) {
+    //assert Double.isFinite(z);
+    if (0.0 == z) { return this; }
+    final long t = Doubles.significand(z);
+    addProduct(t,t,(2*Doubles.exponent(z)) + OFFSET);
+    return this; }
+
+  @Override
+  public final LongAccumulator addProduct (final double z0,
+                                           final double z1) {
+    //assert Double.isFinite(z0);
+    //assert Double.isFinite(z1);
+    if ((0.0 == z0) || (0.0 == z1)) { return this; }
+    final long t0 = Doubles.significand(z0);
+    final long t1 = Doubles.significand(z1);
+    addProduct(
+      (((z0 < 0.0) ^ (z1 < 0.0)) ? -t0 : t0),
+      t1,
+      Doubles.exponent(z0) + Doubles.exponent(z1) + OFFSET);
+    return this; }
+
+  @Override
+  public final LongAccumulator addL1 (final double z0,
+                                      final double z1) {
+    //assert Double.isFinite(z0);
+    //assert Double.isFinite(z1);
+    if (z0 >= z1) { add(z0); add(-z1); }
+    else { add(z1); add(-z0); }
+    return this; }
+
+  /** <code>(z0-z1)<sup>2</sup> =
+   * z0<sup>2</sup> - 2*z0*z1 + z1<sup>2</sup></code>,
+   * with each product exact.
+   */
+  @Override
+  public final LongAccumulator addL2 (final double z0,
+                                      final double z1) {
+    //assert Double.isFinite(z0);
+    //assert Double.isFinite(z1);
+    add2(z0);
+    add2(z1);
+    if ((0.0 == z0) || (0.0 == z1)) { return this; }
+    final long t0 = Doubles.significand(z0);
+    final long t1 = Doubles.significand(z1);
+    addProduct(
+      (((z0 < 0.0) ^ (z1 < 0.0)) ? t0 : -t0),
+      t1,
+      Doubles.exponent(z0) + Doubles.exponent(z1) + 1 + OFFSET);
+    return this; }
+
+  //--------------------------------------------------------------
+  // construction
+  //--------------------------------------------------------------
+
+  private LongAccumulator () { super(NWORDS,OFFSET,NADDS); }
+
+  public static final LongAccumulator make () {
+    return new LongAccumulator(); }
+
+  //--------------------------------------------------------------
+} // end of class
+//----------------------------------------------------------------
@@ -0,0 +1,249 @@
+package xfp.java.accumulators;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/** Static utilities for reducing files of little-endian
+ * <code>double</code>s, of any size, without reading them into
+ * a <code>double[]</code>.
+ * <p>
+ * The files are mapped with {@link FileChannel#map}, in
+ * mappings of at most {@link #MAP_DOUBLES} elements, and the
+ * values copied, {@link #CHUNK} at a time, into a small
+ * <code>double[]</code>, which is passed to the accumulator's
+ * array method, eg, {@link Accumulator#addAll(double[])}.
+ * <p>
+ * With <code>nregions &gt; 1</code>, the files are split into
+ * that many contiguous regions, each reduced by a fresh
+ * accumulator from the factory, in parallel, and the
+ * accumulators are merged, as in {@link Accumulators}.
+ * <p>
+ * <code>IOException</code>s are rethrown, wrapped in a
+ * <code>RuntimeException</code>.
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2019-10-17
+ */
+public final class MappedFiles {
+
+  /** Elements copied to the heap at a time. */
+  public static final int CHUNK = 1 << 13;
+
+  /** Maximum elements in one mapping, 1GB. */
+  public static final int MAP_DOUBLES = 1 << 27;
+
+  //--------------------------------------------------------------
+
+  private interface Op<T extends Accumulator<T>> {
+    T add (T a, double[] z0, double[] z1); }
+
+  /** Number of doubles in the files, which must all be the
+   * same.
+   */
+  private static final long length (final FileChannel[] channels)
+    throws IOException {
+    final long bytes = channels[0].size();
+    if (0 != (bytes % Double.BYTES)) {
+      throw new IllegalArgumentException(
+        "file size " + bytes + " not a multiple of "
+          + Double.BYTES); }
+    for (final FileChannel c : channels) {
+      if (bytes != c.size()) {
+        throw new IllegalArgumentException(
+          "file sizes differ: " + bytes + " " + c.size()); } }
+    return bytes / Double.BYTES; }
+
+  /** Add the elements in <code>[start,end)</code> to
+   * <code>a</code>.
+   */
+  private static final <T extends Accumulator<T>> T
+  reduce (final T a0,
+          final FileChannel[] channels,
+          final long start,
+          final long end,
+          final Op<T> op)
+    throws IOException {
+    final int nf = channels.length;
+    final DoubleBuffer[] b = new DoubleBuffer[nf];
+    double[][] z = new double[nf][CHUNK];
+    T a = a0;
+    long i = start;
+    while (i < end) {
+      final long m = Math.min(end-i,MAP_DOUBLES);
+      for (int f=0;f<nf;f++) {
+        b[f] =
+          channels[f]
+          .map(FileChannel.MapMode.READ_ONLY,
+            i*Double.BYTES,m*Double.BYTES)
+          .order(ByteOrder.LITTLE_ENDIAN)
+          .asDoubleBuffer(); }
+      long k = 0;
+      while (k < m) {
+        final int c = (int) Math.min(CHUNK,m-k);
+        // the array methods use the whole array
+        if (c != z[0].length) { z = new double[nf][c]; }
+        for (int f=0;f<nf;f++) { b[f].get(z[f]); }
+        a = op.add(a,z[0],z[nf-1]);
+        k += c; }
+      i += m; }
+    return a; }
+
+  private static final <T extends Accumulator<T>> T
+  reduce (final Supplier<T> factory,
+          final Path[] files,
+          final int nregions,
+          final Op<T> op) {
+    final FileChannel[] channels = new FileChannel[files.length];
+    try {
+      try {
+        for (int f=0;f<files.length;f++) {
+          channels[f] =
+            FileChannel.open(files[f],StandardOpenOption.READ); }
+        final long n = length(channels);
+        final int r = (int) Math.max(1,Math.min(nregions,n));
+        if (1 == r) { return reduce(factory.get(),channels,0,n,op); }
+        return
+          IntStream.range(0,r)
+          .parallel()
+          .mapToObj(k -> {
+            try {
+              return reduce(
+                factory.get(),channels,(k*n)/r,((k+1)*n)/r,op); }
+            catch (final IOException e) {
+              throw new RuntimeException(e); } })
+          .reduce((a,b) -> a.merge(b))
+          .get(); }
+      finally {
+        for (final FileChannel c : channels) {
+          if (null != c) { c.close(); } } } }
+    catch (final IOException e) {
+      throw new RuntimeException(e); } }
+
+  //--------------------------------------------------------------
+  // one file
+  //--------------------------------------------------------------
+
+  /** Sum of the elements of <code>file</code>.
+   * @param factory must return a new, clear accumulator on each
+   * call, whose <code>merge</code> is supported, if
+   * <code>nregions &gt; 1</code>.
+   * @param nregions number of regions reduced in parallel.
+   */
+  public static final <T extends Accumulator<T>> T
+  sum (final Supplier<T> factory,
+       final Path file,
+       final int nregions) {
+    return reduce(
+      factory,new Path[] { file, },nregions,
+      (a,z0,z1) -> a.addAll(z0)); }
+
+  public static final <T extends Accumulator<T>> T
+  sum (final Supplier<T> factory,
+       final Path file) {
+    return sum(factory,file,1); }
+
+  /** Exact sum, rounded half-even. */
+  public static final double sum (final Path file) {
+    return sum(LongAccumulator::make,file).doubleValue(); }
+
+  public static final <T extends Accumulator<T>> T
+  sumOfSquares (final Supplier<T> factory,
+                final Path file,
+                final int nregions) {
+    return reduce(
+      factory,new Path[] { file, },nregions,
+      (a,z0,z1) -> a.add2All(z0)); }
+
+  public static final <T extends Accumulator<T>> T
+  sumOfSquares (final Supplier<T> factory,
+                final Path file) {
+    return sumOfSquares(factory,file,1); }
+
+  /** Exact sum of squares, rounded half-even. */
+  public static final double sumOfSquares (final Path file) {
+    return sumOfSquares(LongAccumulator::make,file).doubleValue(); }
+
+  //--------------------------------------------------------------
+  // 2 files of the same length
+  //--------------------------------------------------------------
+
+  public static final <T extends Accumulator<T>> T
+  dot (final Supplier<T> factory,
+       final Path file0,
+       final Path file1,
+       final int nregions) {
+    return reduce(
+      factory,new Path[] { file0, file1, },nregions,
+      (a,z0,z1) -> a.addProducts(z0,z1)); }
+
+  public static final <T extends Accumulator<T>> T
+  dot (final Supplier<T> factory,
+       final Path file0,
+       final Path file1) {
+    return dot(factory,file0,file1,1); }
+
+  /** Exact dot product, rounded half-even. */
+  public static final double dot (final Path file0,
+                                  final Path file1) {
+    return dot(LongAccumulator::make,file0,file1).doubleValue(); }
+
+  public static final <T extends Accumulator<T>> T
+  l1Distance (final Supplier<T> factory,
+              final Path file0,
+              final Path file1,
+              final int nregions) {
+    return reduce(
+      factory,new Path[] { file0, file1, },nregions,
+      (a,z0,z1) -> a.addL1Distance(z0,z1)); }
+
+  public static final <T extends Accumulator<T>> T
+  l1Distance (final Supplier<T> factory,
+              final Path file0,
+              final Path file1) {
+    return l1Distance(factory,file0,file1,1); }
+
+  public static final double l1Distance (final Path file0,
+                                         final Path file1) {
+    return l1Distance(LongAccumulator::make,file0,file1)
+      .doubleValue(); }
+
+  /** Squared euclidean distance. */
+  public static final <T extends Accumulator<T>> T
+  l2Distance (final Supplier<T> factory,
+              final Path file0,
+              final Path file1,
+              final int nregions) {
+    return reduce(
+      factory,new Path[] { file0, file1, },nregions,
+      (a,z0,z1) -> a.addL2Distance(z0,z1)); }
+
+  /** Squared euclidean distance. */
+  public static final <T extends Accumulator<T>> T
+  l2Distance (final Supplier<T> factory,
+              final Path file0,
+              final Path file1) {
+    return l2Distance(factory,file0,file1,1); }
+
+  /** Squared euclidean distance, exact, rounded half-even. */
+  public static final double l2Distance (final Path file0,
+                                         final Path file1) {
+    return l2Distance(LongAccumulator::make,file0,file1)
+      .doubleValue(); }
+
+  //--------------------------------------------------------------
+  // disable constructor
+  //--------------------------------------------------------------
+
+  private MappedFiles () {
+    throw new UnsupportedOperationException(
+      "can't instantiate " + getClass()); }
+
+  //--------------------------------------------------------------
+}
+//--------------------------------------------------------------
@@ -0,0 +1,283 @@
+package xfp.java.accumulators;
+
+import java.math.RoundingMode;
+import java.util.List;
+
+import xfp.java.numbers.BigFloat;
+import xfp.java.numbers.MutableBigFloat;
+import xfp.java.numbers.Natural;
+import xfp.java.numbers.RationalFloat;
+
+//----------------------------------------------------------------
+/** Exact sums of the first 2, 3 or 4 powers of
+ * <code>double</code> values, and the count, from which the
+ * mean, variance, standard deviation, and central moments are
+ * computed exactly, and rounded half-even, once, at the end.
+ * <p>
+ * The textbook formula,
+ * <code>(&Sigma;x<sup>2</sup> - (&Sigma;x)<sup>2</sup>/n)/(n-1)</code>,
+ * is notorious for cancellation in floating point; see
+ * Chan, Golub, and LeVeque, and Barlow, in the bibliography.
+ * Here the power sums are exact, so it's exact too, and the
+ * accumulator can be merged, in any order, with the same
+ * result, so it can be used with {@link Collectors},
+ * {@link MappedFiles}, and the parallel reductions in
+ * {@link Accumulators}.
+ * <p>
+ * {@link #add(double)} adds an observation;
+ * {@link #doubleValue()} is the mean.
+ * <p>
+ * <em>NOT</em> thread safe!
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2019-10-17
+ */
+
+public final class MomentsAccumulator
+implements Accumulator<MomentsAccumulator> {
+
+  /** Squares are split exactly into 2 doubles, with
+   * {@link Math#fma}, if <code>|x|</code> is in
+   * <code>[SPLIT_MIN,SPLIT_MAX)</code>, so the square is finite,
+   * and its rounding error doesn't underflow.
+   * Cubes and 4th powers of other values are computed with
+   * {@link BigFloat}.
+   */
+  private static final double SPLIT_MIN = 0x1.0p-480;
+  private static final double SPLIT_MAX = 0x1.0p500;
+
+  private final int _order;
+
+  private long _n;
+
+  /** <code>_sums[k-1] = &Sigma;x<sup>k</sup></code>. */
+  private final MutableBigFloat[] _sums;
+
+  //--------------------------------------------------------------
+
+  /** The highest power summed, 2, 3, or 4. */
+  public final int order () { return _order; }
+
+  public final long count () { return _n; }
+
+  /** Exact <code>&Sigma;x<sup>k</sup></code>,
+   * <code>1 &le; k &le; {@link #order()}</code>.
+   */
+  public final BigFloat powerSum (final int k) {
+    if ((1 > k) || (_order < k)) {
+      throw new IllegalArgumentException(
+        "no power sum " + k + " for order " + _order); }
+    return _sums[k-1].bigFloatValue(); }
+
+  //--------------------------------------------------------------
+  // exact rational arithmetic
+  //--------------------------------------------------------------
+
+  private static final RationalFloat rational (final BigFloat x) {
+    return RationalFloat.valueOf(
+      x.nonNegative(),x.significand(),x.exponent()); }
+
+  private static final RationalFloat rational (final long n) {
+    return RationalFloat.valueOf(true,Natural.valueOf(n),0); }
+
+  private static final RationalFloat divide (final BigFloat x,
+                                             final Natural d) {
+    return RationalFloat.valueOf(
+      x.nonNegative(),x.significand(),d,x.exponent()); }
+
+  /** Half-even rounded square root of
+   * <code>n*2<sup>e</sup>/d &ge; 0</code>.
+   * <p>
+   * The truncated quotient, scaled to 127 to 129 bits, with an
+   * extra low bit set if the remainder isn't zero, has the same
+   * correctly rounded square root: no rounding boundary of the
+   * root falls strictly between consecutive integers at that
+   * scale.
+   */
+  private static final double sqrt (final Natural n,
+                                    final Natural d,
+                                    final int e) {
+    if (n.isZero()) { return 0.0; }
+    final int k =
+      Math.floorDiv(128 - (n.hiBit() - d.hiBit()),2);
+    final List<Natural> qr =
+      (0 <= k)
+      ? n.shiftUp(2*k).divideAndRemainder(d)
+        : n.divideAndRemainder(d.shiftUp(-2*k));
+    Natural q = qr.get(0).shiftUp(1);
+    if (! qr.get(1).isZero()) { q = q.setBit(0); }
+    return
+      BigFloat.valueOf(true,q,e-(2*k)-1).sqrt(RoundingMode.HALF_EVEN); }
+
+  //--------------------------------------------------------------
+  // statistics
+  //--------------------------------------------------------------
+
+  /** Half-even rounded mean, <code>NaN</code> if empty. */
+  public final double mean () {
+    if (0L == _n) { return Double.NaN; }
+    return divide(powerSum(1),Natural.valueOf(_n)).doubleValue(); }
+
+  /** Exact <code>n*&Sigma;x<sup>2</sup> -
+   * (&Sigma;x)<sup>2</sup></code>, never negative.
+   */
+  private final BigFloat nSquaredDeviations () {
+    final BigFloat s1 = powerSum(1);
+    final BigFloat s2 = powerSum(2);
+    return
+      s2.multiply(BigFloat.valueOf(true,Natural.valueOf(_n),0))
+      .subtract(s1.square()); }
+
+  /** Half-even rounded unbiased sample variance,
+   * <code>&Sigma;(x-mean)<sup>2</sup>/(n-1)</code>,
+   * <code>NaN</code> if <code>n &lt; 2</code>.
+   */
+  public final double variance () {
+    if (2L > _n) { return Double.NaN; }
+    return
+      divide(nSquaredDeviations(),
+        Natural.valueOf(_n).multiply(Natural.valueOf(_n-1)))
+      .doubleValue(); }
+
+  /** Half-even rounded population variance,
+   * <code>&Sigma;(x-mean)<sup>2</sup>/n</code>,
+   * <code>NaN</code> if empty.
+   */
+  public final double populationVariance () {
+    if (0L == _n) { return Double.NaN; }
+    final Natural n = Natural.valueOf(_n);
+    return divide(nSquaredDeviations(),n.multiply(n)).doubleValue(); }
+
+  /** Half-even rounded square root of the exact
+   * {@link #variance()}, <em>not</em> the root of the rounded
+   * variance.
+   */
+  public final double standardDeviation () {
+    if (2L > _n) { return Double.NaN; }
+    final BigFloat v = nSquaredDeviations();
+    return sqrt(
+      v.significand(),
+      Natural.valueOf(_n).multiply(Natural.valueOf(_n-1)),
+      v.exponent()); }
+
+  /** Half-even rounded square root of the exact
+   * {@link #populationVariance()}.
+   */
+  public final double populationStandardDeviation () {
+    if (0L == _n) { return Double.NaN; }
+    final Natural n = Natural.valueOf(_n);
+    final BigFloat v = nSquaredDeviations();
+    return sqrt(v.significand(),n.multiply(n),v.exponent()); }
+
+  /** Half-even rounded <code>&Sigma;(x-mean)<sup>k</sup>/n</code>,
+   * <code>1 &le; k &le; {@link #order()}</code>,
+   * from the binomial expansion,
+   * <code>&Sigma;<sub>j</sub> C(k,j) (-mean)<sup>k-j</sup>
+   * &Sigma;x<sup>j</sup></code>, in exact rational arithmetic.
+   */
+  public final double centralMoment (final int k) {
+    if ((1 > k) || (_order < k)) {
+      throw new IllegalArgumentException(
+        "no central moment " + k + " for order " + _order); }
+    if (0L == _n) { return Double.NaN; }
+    final RationalFloat m =
+      divide(powerSum(1),Natural.valueOf(_n)).negate();
+    // mk[i] = (-mean)^i
+    final RationalFloat[] mk = new RationalFloat[k+1];
+    mk[0] = rational(1L);
+    for (int i=1;i<=k;i++) { mk[i] = mk[i-1].multiply(m); }
+    // j = 0 term: n*(-mean)^k
+    RationalFloat s = mk[k].multiply(rational(_n));
+    long c = 1L;
+    for (int j=1;j<=k;j++) {
+      c = (c*(k-j+1))/j;
+      s = s.add(
+        mk[k-j].multiply(rational(c)).multiply(rational(powerSum(j)))); }
+    return
+      s.multiply(
+        RationalFloat.valueOf(
+          true,Natural.valueOf(1L),Natural.valueOf(_n),0))
+      .doubleValue(); }
+
+  //--------------------------------------------------------------
+  // Accumulator interface
+  //--------------------------------------------------------------
+
+  @Override
+  public final boolean isExact () { return true; }
+
+  @Override
+  public final boolean noOverflow () { return true; }
+
+  @Override
+  public final Object value () { return Double.valueOf(mean()); }
+
+  /** The {@link #mean()}. */
+  @Override
+  public final double doubleValue () { return mean(); }
+
+  @Override
+  public final MomentsAccumulator clear () {
+    _n = 0L;
+    for (final MutableBigFloat s : _sums) { s.clear(); }
+    return this; }
+
+  @Override
+  public final MomentsAccumulator merge (final MomentsAccumulator other) {
+    if (_order != other._order) {
+      throw new IllegalArgumentException(
+        "can't merge order " + other._order + " into " + _order); }
+    _n += other._n;
+    for (int k=0;k<_order;k++) { _sums[k].add(other._sums[k]); }
+    return this; }
+
+  @Override
+  public final MomentsAccumulator add (final double x) {
+    //assert Double.isFinite(x);
+    _n++;
+    _sums[0].add(x);
+    _sums[1].add2(x);
+    if (2 == _order) { return this; }
+    final double ax = Math.abs(x);
+    if ((SPLIT_MIN <= ax) && (ax < SPLIT_MAX)) {
+      // x^2 == hi + lo, exactly
+      final double hi = x*x;
+      final double lo = Math.fma(x,x,-hi);
+      _sums[2].addProduct(x,hi);
+      _sums[2].addProduct(x,lo);
+      if (4 == _order) {
+        _sums[3].add2(hi);
+        _sums[3].addProduct(hi,2.0*lo);
+        _sums[3].add2(lo); } }
+    else if (0.0 != x) {
+      final BigFloat x2 = BigFloat.valueOf(x).multiply(x);
+      _sums[2].add(x2.multiply(x));
+      if (4 == _order) { _sums[3].add(x2.square()); } }
+    return this; }
+
+  //--------------------------------------------------------------
+  // construction
+  //--------------------------------------------------------------
+
+  private MomentsAccumulator (final int order) {
+    if ((2 > order) || (4 < order)) {
+      throw new IllegalArgumentException(
+        "order must be 2, 3 or 4: " + order); }
+    _order = order;
+    _n = 0L;
+    _sums = new MutableBigFloat[order];
+    for (int k=0;k<order;k++) { _sums[k] = MutableBigFloat.make(); } }
+
+  /** Mean and variance only. */
+  public static final MomentsAccumulator make () {
+    return new MomentsAccumulator(2); }
+
+  /** Sums powers up to <code>order</code>, which must be 2, 3,
+   * or 4.
+   */
+  public static final MomentsAccumulator make (final int order) {
+    return new MomentsAccumulator(order); }
+
+  //--------------------------------------------------------------
+}
+//--------------------------------------------------------------
@@ -0,0 +1,105 @@
+package xfp.java.accumulators;
+
+import xfp.java.numbers.Doubles;
+
+//----------------------------------------------------------------
+/** Exact online summation with a 'small superaccumulator':
+ * a fixed point number just wide enough for sums of finite
+ * <code>double</code>s, split into 32 bit chunks, indexed by
+ * the high bits of the exponent.
+ * <p>
+ * Each <code>add</code> touches 2 adjacent chunks, and
+ * only the range of chunks actually touched is cleared,
+ * normalized or scanned when rounding.
+ * When the data span only a few binary orders of magnitude,
+ * clearing and rounding cost a few words, rather than the
+ * 2048 slots of {@link ZhuHayesAccumulator}, making it cheap
+ * to create and reset one per row, for example when computing
+ * many short dot products.
+ * <p>
+ * Products are converted to 2 <code>add</code>s with
+ * <code>twoMul</code>, as in {@link ExactAccumulator}, so
+ * intermediate results may overflow.
+ * <p>
+ * Primary reference:
+ * <p>
+ * <a href="https://arxiv.org/abs/1505.05571">
+ * Radford M. Neal,
+ * "Fast exact summation using small and large superaccumulators",
+ * arXiv:1505.05571, 2015.</a>
+ * <p>
+ * <em>NOT</em> thread safe!
+ * <p>
+ * @author palisades dot lakes at gmail dot com
+ * @version 2019-10-15
+ */
+
+public final class NealAccumulator
+extends FixedPointAccumulator<NealAccumulator> {
+
+  //--------------------------------------------------------------
+  // fixed point layout
+  //--------------------------------------------------------------
+
+  /** Bit 0 of chunk 0 has value
+   * <code>2<sup>-OFFSET</sup></code>, the least significant
+   * bit of a subnormal <code>double</code>.
+   */
+  private static final int OFFSET =
+    -Doubles.MINIMUM_EXPONENT_INTEGRAL_SIGNIFICAND;
+
+  /** Enough chunks for the highest bit of a finite double,
+   * plus headroom for carries.
+   */
+  private static final int NCHUNKS =
+    ((OFFSET
+      + Doubles.MAXIMUM_EXPONENT_INTEGRAL_SIGNIFICAND
+      + Doubles.SIGNIFICAND_BITS) >>> 5) + 3;
+
+  /** Each <code>add</code> adds less than
+   * <code>2<sup>54</sup></code> to any chunk, so carries must
+   * be propagated before <code>2<sup>9</sup></code>
+   * operations.
+   */
+  private static final int NADDS = (1 << 9) - 1;
+
+  //--------------------------------------------------------------
+  // Accumulator interface
+  //--------------------------------------------------------------
+
+  @Override
+  public final boolean noOverflow () { return false; }
+
+  @Override
+  public final NealAccumulator add (final double z) {
+    //assert Double.isFinite(z);
+    final long bits = Double.doubleToRawLongBits(z);
+    final int be = (int) ((bits & Doubles.EXPONENT_MASK)
+      >>> Doubles.STORED_SIGNIFICAND_BITS);
+    long t = bits & Doubles.STORED_SIGNIFICAND_MASK;
+    if (0 == be) {
+      if (0L == t) { return this; } }
+    else { t |= Doubles.STORED_SIGNIFICAND_MASK + 1L; }
+    if (bits < 0L) { t = -t; }
+    // subnormals have the same exponent as biased exponent 1
+    final int b = Math.max(be,1) - 1;
+    final int k = b >>> 5;
+    final int s = b & 0x1F;
+    // low 32-s bits of t into chunk k, the rest into chunk k+1
+    _words[k] += (t << s) & LOW;
+    _words[k+1] += t >> (32 - s);
+    touch(k,k+1);
+    return this; }
+
+  //--------------------------------------------------------------
+  // construction
+  //--------------------------------------------------------------
+
+  private NealAccumulator () { super(NCHUNKS,OFFSET,NADDS); }
+
+  public static final NealAccumulator make () {
+    return new NealAccumulator(); }
+
+  //--------------------------------------------------------------
+} // end of class
+//----------------------------------------------------------------
@@ -1,18 +1,41 @@
 package xfp.java.accumulators;
 
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+
 import xfp.java.numbers.RationalFloat;
 
 /** Naive sum of <code>double</code> values with a RationalFloat
  * accumulator (for testing).
+ * <p>
+ * Optional lazy normalization: the sum is reduced (see
+ * {@link RationalFloat#reduce(int)}) only when its size in words
+ * reaches a threshold, which then doubles relative to the
+ * reduced size, so a sum that doesn't shrink isn't reduced
+ * again and again. A threshold of 0 reduces after every
+ * operation.
  *
  * @author palisades dot lakes at gmail dot com
- * @version 2019-10-09
+ * @version 2019-10-17
  */
 public final class RationalFloatAccumulator
 extends ExactAccumulator<RationalFloatAccumulator> {
 
   private RationalFloat _sum;
 
+  /** Never reduce if <code>Integer.MAX_VALUE</code>,
+   * always if <code>0</code>.
+   */
+  private final int _reduceThreshold;
+  private int _reduceAt;
+
+  private final RationalFloat normalize (final RationalFloat sum) {
+    if (sum.words() < _reduceAt) { return sum; }
+    final RationalFloat r = sum.reduce(0);
+    if (0 < _reduceThreshold) {
+      _reduceAt = Math.max(_reduceThreshold,2*r.words()); }
+    return r; }
+
   //--------------------------------------------------------------
 
   @Override
@@ -25,6 +48,10 @@ extends ExactAccumulator<RationalFloatAccumulator> {
   public final double doubleValue () {
     return _sum.doubleValue(); }
 
+  @Override
+  public final double doubleValue (final RoundingMode mode) {
+    return _sum.doubleValue(mode); }
+
   @Override
   public final float floatValue () {
     return _sum.floatValue(); }
@@ -32,76 +59,107 @@ extends ExactAccumulator<RationalFloatAccumulator> {
   @Override
   public final RationalFloatAccumulator clear () {
     _sum = RationalFloat.ZERO;
+    _reduceAt = _reduceThreshold;
+    return this; }
+
+  @Override
+  public final RationalFloatAccumulator merge (final RationalFloatAccumulator other) {
+    _sum = normalize(_sum.add(other._sum));
+    return this; }
+
+  @Override
+  public final int encodedSize () {
+    return HEADER_BYTES + _sum.encodedSize(); }
+
+  @Override
+  public final ByteBuffer writeTo (final ByteBuffer b) {
+    writeHeader(b,RATIONAL_FLOAT);
+    return _sum.writeTo(b); }
+
+  @Override
+  public final RationalFloatAccumulator readFrom (final ByteBuffer b) {
+    readHeader(b,RATIONAL_FLOAT);
+    clear();
+    _sum = normalize(RationalFloat.readFrom(b));
+    return this; }
+
+  @Override
+  public final RationalFloatAccumulator mergeFrom (final ByteBuffer b) {
+    readHeader(b,RATIONAL_FLOAT);
+    _sum = normalize(_sum.add(RationalFloat.readFrom(b)));
     return this; }
 
   @Override
   public final RationalFloatAccumulator add (final double z) {
-    _sum = _sum.add(z);
+    _sum = normalize(_sum.add(z));
     return this; }
 
   @Override
   public final RationalFloatAccumulator addAll (final double[] z) {
-    _sum = _sum.addAll(z); 
+    for (final double zi : z) { _sum = normalize(_sum.add(zi)); }
     return this; }
 
   @Override
   public final RationalFloatAccumulator addAbs (final double z) {
-    _sum = _sum.addAbs(z);
+    _sum = normalize(_sum.addAbs(z));
     return this; }
 
   @Override
   public final RationalFloatAccumulator addAbsAll (final double[] z) {
-    _sum = _sum.addAbsAll(z); 
+    for (final double zi : z) { _sum = normalize(_sum.addAbs(zi)); }
     return this; }
 
   @Override
   public final RationalFloatAccumulator add2 (final double z) {
-    _sum = _sum.add2(z);
+    _sum = normalize(_sum.add2(z));
     return this; }
 
   @Override
   public final RationalFloatAccumulator add2All (final double[] z)  {
-    _sum = _sum.add2All(z);
+    for (final double zi : z) { _sum = normalize(_sum.add2(zi)); }
     return this; }
 
   @Override
   public final RationalFloatAccumulator addProduct (final double z0,
                                                     final double z1) {
-    _sum = _sum.addProduct(z0,z1);
+    _sum = normalize(_sum.addProduct(z0,z1));
     return this; }
 
   @Override
   public final RationalFloatAccumulator 
   addProducts (final double[] z0,
                final double[] z1)  {
-    _sum = _sum.addProducts(z0,z1); 
+    final int n = z0.length;
+    for (int i=0;i<n;i++) { _sum = normalize(_sum.addProduct(z0[i],z1[i])); }
     return this; }
 
   @Override
   public final RationalFloatAccumulator addL1 (final double z0,
                                                final double z1) {
 
-    _sum = _sum.addL1(z0,z1);
+    _sum = normalize(_sum.addL1(z0,z1));
     return this; }
 
   @Override
   public final RationalFloatAccumulator 
   addL1Distance (final double[] z0,
                  final double[] z1)  {
-    _sum = _sum.addL1Distance(z0,z1); 
+    final int n = z0.length;
+    for (int i=0;i<n;i++) { _sum = normalize(_sum.addL1(z0[i],z1[i])); }
     return this; }
 
   @Override
   public final RationalFloatAccumulator addL2 (final double z0,
                                                final double z1) {
-    _sum = _sum.addL2(z0,z1);
+    _sum = normalize(_sum.addL2(z0,z1));
     return this; }
 
   @Override
   public final RationalFloatAccumulator 
   addL2Distance (final double[] z0,
                  final double[] z1)  {
-    _sum = _sum.addL2Distance(z0,z1); 
+    final int n = z0.length;
+    for (int i=0;i<n;i++) { _sum = normalize(_sum.addL2(z0[i],z1[i])); }
     return this; }
 
   //--------------------------------------------------------------
@@ -112,9 +170,10 @@ extends ExactAccumulator<RationalFloatAccumulator> {
                                  final double[] s) {
     final int n = x.length;
     //assert s.length==n;
+    _reduceAt = _reduceThreshold;
     RationalFloat sum = RationalFloat.ZERO;
     for (int i=0;i<n;i++) { 
-      sum = sum.add(x[i]);
+      sum = normalize(sum.add(x[i]));
       s[i] = sum.doubleValue(); } 
     _sum = sum; }
 
@@ -122,9 +181,10 @@ extends ExactAccumulator<RationalFloatAccumulator> {
   public final double[] partialSums (final double[] x) {
     final int n = x.length;
     final double[] s = new double[n];
+    _reduceAt = _reduceThreshold;
     RationalFloat sum = RationalFloat.ZERO;
     for (int i=0;i<n;i++) { 
-      sum = sum.add(x[i]);
+      sum = normalize(sum.add(x[i]));
       s[i] = sum.doubleValue(); } 
     _sum = sum;
     return s; }
@@ -133,9 +193,10 @@ extends ExactAccumulator<RationalFloatAccumulator> {
   public final  double[] partialL1s (final double[] x) {
     final int n = x.length;
     final double[] s = new double[n];
+    _reduceAt = _reduceThreshold;
     RationalFloat sum = RationalFloat.ZERO;
     for (int i=0;i<n;i++) { 
-      sum = sum.addAbs(x[i]);
+      sum = normalize(sum.addAbs(x[i]));
       s[i] = sum.doubleValue(); } 
     _sum = sum;
     return s; }
@@ -144,9 +205,10 @@ extends ExactAccumulator<RationalFloatAccumulator> {
   public final  double[] partialL2s (final double[] x) {
     final int n = x.length;
     final double[] s = new double[n];
+    _reduceAt = _reduceThreshold;
     RationalFloat sum = RationalFloat.ZERO;
     for (int i=0;i<n;i++) { 
-      sum = sum.add2(x[i]);
+      sum = normalize(sum.add2(x[i]));
       s[i] = sum.doubleValue(); } 
     _sum = sum;
     return s; }
@@ -156,9 +218,10 @@ extends ExactAccumulator<RationalFloatAccumulator> {
                                       final double[] x1) {
     final int n = x0.length;
     final double[] s = new double[n];
+    _reduceAt = _reduceThreshold;
     RationalFloat sum = RationalFloat.ZERO;
     for (int i=0;i<n;i++) {
-      sum = sum.addProduct(x0[i],x1[i]);
+      sum = normalize(sum.addProduct(x0[i],x1[i]));
       s[i] = sum.doubleValue(); } 
     _sum = sum;
     return s; }
@@ -168,9 +231,10 @@ extends ExactAccumulator<RationalFloatAccumulator> {
                                              final double[] x1) {
     final int n = x0.length;
     final double[] s = new double[n];
+    _reduceAt = _reduceThreshold;
     RationalFloat sum = RationalFloat.ZERO;
     for (int i=0;i<n;i++) {
-      sum = sum.addL1(x0[i],x1[i]);
+      sum = normalize(sum.addL1(x0[i],x1[i]));
       s[i] = sum.doubleValue(); } 
     _sum = sum;
     return s; }
@@ -180,9 +244,10 @@ extends ExactAccumulator<RationalFloatAccumulator> {
                                              final double[] x1) {
     final int n = x0.length;
     final double[] s = new double[n];
+    _reduceAt = _reduceThreshold;
     RationalFloat sum = RationalFloat.ZERO;
     for (int i=0;i<n;i++) {
-      sum = sum.addL2(x0[i],x1[i]);
+      sum = normalize(sum.addL2(x0[i],x1[i]));
       s[i] = sum.doubleValue(); } 
     _sum = sum;
     return s; }
@@ -191,10 +256,25 @@ extends ExactAccumulator<RationalFloatAccumulator> {
   // construction
   //--------------------------------------------------------------
 
-  private RationalFloatAccumulator () { super(); clear(); }
+  private RationalFloatAccumulator (final int reduceThreshold) {
+    super();
+    _reduceThreshold = reduceThreshold;
+    clear(); }
+
+  /** Never reduces the sum. */
 
   public static final RationalFloatAccumulator make () {
-    return new RationalFloatAccumulator(); }
+    return new RationalFloatAccumulator(Integer.MAX_VALUE); }
+
+  /** Reduces the sum lazily, when it has at least
+   * <code>reduceThreshold</code> words, or twice its size when
+   * last reduced, if that's more.
+   * <code>make(0)</code> reduces after every operation.
+   */
+
+  public static final RationalFloatAccumulator
+  make (final int reduceThreshold) {
+    return new RationalFloatAccumulator(reduceThreshold); }
 
   //--------------------------------------------------------------
 }
@@ -0,0 +1,243 @@
+package xfp.java.accumulators;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import xfp.java.numbers.Doubles;
+import xfp.java.numbers.Floats;
+
+//----------------------------------------------------------------
+/** Exact online summation by Shewchuk's grow-expansion with
+ * zero elimination, the algorithm behind Python's
+ * <code>math.fsum</code>.
+ * <p>
+ * The sum is held as an expansion: non-overlapping, non-zero
+ * partials, in increasing order of magnitude. Each add makes a
+ * single linear pass over the partials, and a finite sum of
+ * doubles has at most about 40 of them, so adds and
+ * {@link #doubleValue()} are cheap enough to call on every
+ * element, as in {@link #partialSums(double[])}.
+ * <p>
+ * Primary reference:
+ * <p>
+ * <a href="https://doi.org/10.1007/PL00009321">
+ * Jonathan Richard Shewchuk,
+ * "Adaptive Precision Floating-Point Arithmetic and Fast Robust
+ * Geometric Predicates",
+ * Discrete &amp; Computational Geometry 18(3), 305–363, 1997.</a>
+ * <p>
+ * Also see:
+ * <p>
+ * <a href="https://code.activestate.com/recipes/393090/">
+ * Raymond Hettinger, "Binary floating point summation accurate
+ * to full precision", Python recipe 393090</a>,
+ * for the half-even correction when rounding.
+ * <p>
+ * Mutable! Not thread safe!
+ * <p>
+ * @author palisades dot lakes at gmail dot com
+ * @version 2019-10-17
+ */
+@SuppressWarnings("unchecked")
+public final class ShewchukAccumulator
+extends ExactAccumulator<ShewchukAccumulator> {
+
+  //--------------------------------------------------------------
+
+  private double[] _partials = new double[32];
+  private int _n = 0;
+
+  /** Zero while the partials are finite, otherwise the
+   * infinity the sum overflowed to.
+   */
+  private double _overflow = 0.0;
+
+  /** The IEEE sign of a zero sum: set by adding
+   * <code>-0.0</code>, cleared by any other term.
+   */
+  private boolean _negativeZero = false;
+
+  //--------------------------------------------------------------
+  /** Grow-expansion: add <code>x</code> to each partial with
+   * fast two-sum, keeping the non-zero roundoff errors, which
+   * don't overlap, in place, and the running sum at the end.
+   */
+
+  private final void grow (final double z) {
+    double x = z;
+    int i = 0;
+    for (int j=0;j<_n;j++) {
+      double y = _partials[j];
+      // fast two-sum needs |x| >= |y|
+      if (Math.abs(x) < Math.abs(y)) {
+        final double t = x; x = y; y = t; }
+      final double hi = x + y;
+      final double lo = y - (hi - x);
+      if (0.0 != lo) { _partials[i++] = lo; }
+      x = hi; }
+    if (! Double.isFinite(x)) { _overflow = x; return; }
+    if (i >= _partials.length) {
+      _partials = Arrays.copyOf(_partials,2*_partials.length); }
+    _partials[i] = x;
+    // exact cancellation leaves no zero partial
+    _n = (0.0 == x) ? i : i+1; }
+
+  //--------------------------------------------------------------
+  // Accumulator
+  //--------------------------------------------------------------
+
+  @Override
+  public final boolean noOverflow () { return false; }
+
+  /** Sum the partials from the top, stopping at the first
+   * inexact addition, and correct for a half-even tie that the
+   * remaining partials break.
+   */
+  @Override
+  public final double doubleValue () {
+    if (0.0 != _overflow) { return _overflow; }
+    int j = _n;
+    if (0 == j) { return (_negativeZero ? -0.0 : 0.0); }
+    double hi = _partials[--j];
+    double lo = 0.0;
+    while (j > 0) {
+      final double x = hi;
+      final double y = _partials[--j];
+      hi = x + y;
+      lo = y - (hi - x);
+      if (0.0 != lo) { break; } }
+    if ((j > 0)
+      && (((lo < 0.0) && (_partials[j-1] < 0.0))
+        || ((lo > 0.0) && (_partials[j-1] > 0.0)))) {
+      final double y = 2.0 * lo;
+      final double x = hi + y;
+      if (y == (x - hi)) { hi = x; } }
+    return hi; }
+
+  @Override
+  public final Object value () {
+    return Double.valueOf(doubleValue()); }
+
+  /** Round the leading 64 bits of the sum, with a sticky bit
+   * from the partials below, directly to <code>float</code>.
+   * <code>(float) doubleValue()</code> would round twice.
+   */
+  @Override
+  public final float floatValue () {
+    if (0.0 != _overflow) { return (float) _overflow; }
+    int j = _n;
+    if (0 == j) { return (_negativeZero ? -0.0F : 0.0F); }
+    double hi = _partials[--j];
+    double lo = 0.0;
+    while (j > 0) {
+      final double x = hi;
+      final double y = _partials[--j];
+      hi = x + y;
+      lo = y - (hi - x);
+      if (0.0 != lo) { break; } }
+    // the sum is hi + lo + (partials below lo), and the partials
+    // below are smaller than the last bit of lo, so the rest has
+    // the sign of lo, and is less than ulp(hi)
+    final boolean nonNegative = (hi > 0.0);
+    final long s = Doubles.significand(hi);
+    final int shift = Long.numberOfLeadingZeros(s);
+    long m = s << shift;
+    int e = Doubles.exponent(hi) - shift;
+    final boolean sticky = (0.0 != lo);
+    if (sticky && ((lo > 0.0) != nonNegative)) {
+      // shift >= 11, so the low bits of m-1 are all ones
+      m -= 1L;
+      if (0L < m) { m = (m << 1) | 1L; e -= 1; } }
+    return Floats.roundHalfEven(nonNegative,m,sticky,e); }
+
+  @Override
+  public final ShewchukAccumulator clear () {
+    _n = 0;
+    _overflow = 0.0;
+    _negativeZero = false;
+    return this; }
+
+  @Override
+  public final ShewchukAccumulator add (final double z) {
+    //assert Double.isFinite(z);
+    if (0.0 == _overflow) {
+      if (0.0 != z) { grow(z); }
+      _negativeZero = (0.0 == z) && (0L > Double.doubleToRawLongBits(z)); }
+    return this; }
+
+  @Override
+  public final ShewchukAccumulator
+  merge (final ShewchukAccumulator other) {
+    if (0.0 != _overflow) { return this; }
+    if (0.0 != other._overflow) {
+      _overflow = other._overflow;
+      return this; }
+    // other may be this
+    final double[] z = Arrays.copyOf(other._partials,other._n);
+    if ((0 == z.length) && other._negativeZero) { add(-0.0); }
+    for (final double zi : z) { add(zi); }
+    return this; }
+
+  //--------------------------------------------------------------
+  // binary encoding
+  //--------------------------------------------------------------
+  /** An overflowed or negative zero sum is encoded as a single
+   * partial, the infinity or <code>-0.0</code>.
+   */
+  private final boolean special () {
+    return (0.0 != _overflow) || ((0 == _n) && _negativeZero); }
+
+  @Override
+  public final int encodedSize () {
+    return HEADER_BYTES + Integer.BYTES
+      + (Double.BYTES*(special() ? 1 : _n)); }
+
+  /** The partial count, then the partials, in increasing order
+   * of magnitude.
+   */
+  @Override
+  public final ByteBuffer writeTo (final ByteBuffer b) {
+    writeHeader(b,SHEWCHUK);
+    if (special()) {
+      b.putInt(1);
+      b.putDouble((0.0 != _overflow) ? _overflow : -0.0);
+      return b; }
+    b.putInt(_n);
+    for (int j=0;j<_n;j++) { b.putDouble(_partials[j]); }
+    return b; }
+
+  @Override
+  public final ShewchukAccumulator readFrom (final ByteBuffer b) {
+    readHeader(b,SHEWCHUK);
+    final double[] z = readDoubles(b);
+    clear();
+    if (z.length > _partials.length) {
+      _partials = new double[z.length]; }
+    for (final double zi : z) {
+      if (! Double.isFinite(zi)) { _overflow = zi; }
+      else if (0.0 == zi) { add(zi); }
+      else { _partials[_n++] = zi; } }
+    return this; }
+
+  @Override
+  public final ShewchukAccumulator mergeFrom (final ByteBuffer b) {
+    readHeader(b,SHEWCHUK);
+    final double[] z = readDoubles(b);
+    for (final double zi : z) {
+      if (! Double.isFinite(zi)) {
+        if (0.0 == _overflow) { _overflow = zi; } }
+      else { add(zi); } }
+    return this; }
+
+  //--------------------------------------------------------------
+  // construction
+  //--------------------------------------------------------------
+
+  private ShewchukAccumulator () { super(); }
+
+  public static final ShewchukAccumulator make () {
+    return new ShewchukAccumulator(); }
+
+  //--------------------------------------------------------------
+}
+//--------------------------------------------------------------
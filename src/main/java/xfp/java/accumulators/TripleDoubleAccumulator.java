@@ -0,0 +1,223 @@
+package xfp.java.accumulators;
+
+//----------------------------------------------------------------
+/** Triple-double summation: the running sum is the unevaluated
+ * sum <code>h + m + l</code> of 3 doubles, renormalized after
+ * each add so <code>|m| &le; ulp(h)</code> and
+ * <code>|l| &le; ulp(m)</code>, up to cancellation,
+ * about 159 significant bits.
+ * <p>
+ * Each term is split exactly into doubles with branch-free
+ * TwoSum and <code>Math.fma</code> TwoProd. Each double is
+ * added by cascading TwoSum through <code>h</code> and
+ * <code>m</code>. The only rounding is the add of the error into
+ * <code>l</code>, and a TwoSum renormalization is exact.
+ * With <code>u = 2<sup>-53</sup></code>, each of these adds
+ * has an absolute error of at most about
+ * <code>3u<sup>3</sup></code> times the magnitude of the
+ * running sum, which is at most
+ * <code>&Sigma;|t<sub>i</sub>|</code>.
+ * <p>
+ * So, after <code>n</code> adds, ignoring underflow and higher
+ * order terms,
+ * <code>|doubleValue() - &Sigma;t<sub>i</sub>| &le;
+ * u|&Sigma;t<sub>i</sub>| + 4nu<sup>3</sup>&Sigma;|t<sub>i</sub>|</code>.
+ * {@link #add(double)} and {@link #addL1(double,double)} are
+ * 1 add, {@link #add2(double)} and
+ * {@link #addProduct(double,double)} 2, and
+ * {@link #addL2(double,double)} 5.
+ * {@link #errorBound()} tracks <code>n</code> and
+ * <code>&Sigma;|t<sub>i</sub>|</code> to evaluate it.
+ * <p>
+ * Mutable! Not thread safe!
+ * <p>
+ * See Christoph Lauter, "Basic building blocks for a
+ * triple-double intermediate format", INRIA RR-5702, 2005.
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2019-10-17
+ */
+
+public final class TripleDoubleAccumulator
+implements Accumulator<TripleDoubleAccumulator> {
+
+  private double h = 0.0;
+  private double m = 0.0;
+  private double l = 0.0;
+  private double absSum = 0.0;
+  private long n = 0;
+
+  //--------------------------------------------------------------
+
+  private final void addFP (final double y) {
+    // TwoSum(h,y)
+    final double s0 = h + y;
+    final double y0 = s0 - h;
+    final double e0 = (h - (s0 - y0)) + (y - y0);
+    absSum += Math.abs(y);
+    n += 1;
+    if (Double.isInfinite(s0)) { h = s0; m = 0.0; l = 0.0; return; }
+    // TwoSum(m,e0)
+    final double s1 = m + e0;
+    final double y1 = s1 - m;
+    final double e1 = (m - (s1 - y1)) + (e0 - y1);
+    // the only rounding
+    final double s2 = l + e1;
+    // renormalize (s0,s1,s2) with exact TwoSums
+    final double t0 = s1 + s2;
+    final double y2 = t0 - s1;
+    final double t1 = (s1 - (t0 - y2)) + (s2 - y2);
+    h = s0 + t0;
+    final double y3 = h - s0;
+    final double t2 = (s0 - (h - y3)) + (t0 - y3);
+    m = t2 + t1;
+    final double y4 = m - t2;
+    l = (t2 - (m - y4)) + (t1 - y4); }
+
+  //--------------------------------------------------------------
+
+  @Override
+  public final boolean isExact () { return false; }
+
+  @Override
+  public final boolean noOverflow () { return false; }
+
+  @Override
+  public final Object value () {
+    return Double.valueOf(doubleValue()); }
+
+  @Override
+  public final double doubleValue () { return h + (m + l); }
+
+  /** An ulp for rounding <code>h + (m + l)</code>, plus
+   * <code>4nu<sup>3</sup>&Sigma;|t<sub>i</sub>|</code>,
+   * inflated by <code>&gamma;<sub>n+2</sub></code> for the
+   * rounding of <code>&Sigma;|t<sub>i</sub>|</code> itself.
+   */
+  @Override
+  public final double errorBound () {
+    return
+      Math.ulp(doubleValue())
+      + (n*0x1.0p-157*(1.0 + Accumulators.gamma(n+2))*absSum); }
+
+  @Override
+  public final TripleDoubleAccumulator clear () {
+    h = 0.0; m = 0.0; l = 0.0; absSum = 0.0; n = 0;
+    return this; }
+
+  @Override
+  public final TripleDoubleAccumulator
+  merge (final TripleDoubleAccumulator other) {
+    // other may be this
+    final double oh = other.h;
+    final double om = other.m;
+    final double ol = other.l;
+    final double oa = other.absSum;
+    final long on = other.n;
+    addFP(oh); addFP(om); addFP(ol);
+    absSum += oa;
+    n += on;
+    return this; }
+
+  //--------------------------------------------------------------
+
+  @Override
+  public final TripleDoubleAccumulator add (final double z) {
+    //assert Double.isFinite(z);
+    addFP(z);
+    return this; }
+
+  @Override
+  public final TripleDoubleAccumulator addAll (final double[] z) {
+    for (final double zi : z) { addFP(zi); }
+    return this; }
+
+  @Override
+  public final TripleDoubleAccumulator addAbs (final double z) {
+    addFP(Math.abs(z));
+    return this; }
+
+  @Override
+  public final TripleDoubleAccumulator add2 (final double z) {
+    //assert Double.isFinite(z);
+    // TwoProd
+    final double zz = z*z;
+    addFP(zz);
+    addFP(Math.fma(z,z,-zz));
+    return this; }
+
+  @Override
+  public final TripleDoubleAccumulator addProduct (final double z0,
+                                                   final double z1) {
+    //assert Double.isFinite(z0);
+    //assert Double.isFinite(z1);
+    // TwoProd
+    final double zz = z0*z1;
+    addFP(zz);
+    addFP(Math.fma(z0,z1,-zz));
+    return this; }
+
+  @Override
+  public final TripleDoubleAccumulator addProducts (final double[] z0,
+                                                    final double[] z1) {
+    final int k = z0.length;
+    //assert k==z1.length;
+    for (int i=0;i<k;i++) {
+      final double z0i = z0[i];
+      final double z1i = z1[i];
+      final double zz = z0i*z1i;
+      addFP(zz);
+      addFP(Math.fma(z0i,z1i,-zz)); }
+    return this; }
+
+  /** Exact difference with TwoSum, then its absolute value. */
+  @Override
+  public final TripleDoubleAccumulator addL1 (final double z0,
+                                              final double z1) {
+    //assert Double.isFinite(z0);
+    //assert Double.isFinite(z1);
+    final double dh = z0 - z1;
+    final double dd = dh - z0;
+    final double dl = (z0 - (dh - dd)) + ((-z1) - dd);
+    // dl == 0 when dh == 0, otherwise dh has the sign
+    if (dh < 0.0) { addFP(-dh); addFP(-dl); }
+    else { addFP(dh); addFP(dl); }
+    return this; }
+
+  /** Exact difference <code>dh + dl</code> with TwoSum, then
+   * <code>dh<sup>2</sup> + 2 dh dl + dl<sup>2</sup></code>,
+   * exact with TwoProd except <code>dl<sup>2</sup></code>,
+   * which is at most <code>u<sup>2</sup>dh<sup>2</sup></code>,
+   * so its rounding is within the <code>u<sup>3</sup></code>
+   * bound.
+   */
+  @Override
+  public final TripleDoubleAccumulator addL2 (final double z0,
+                                              final double z1) {
+    //assert Double.isFinite(z0);
+    //assert Double.isFinite(z1);
+    final double dh = z0 - z1;
+    final double dd = dh - z0;
+    final double dl = (z0 - (dh - dd)) + ((-z1) - dd);
+    final double p0 = dh*dh;
+    addFP(p0);
+    final double dh2 = 2.0*dh;
+    final double p1 = dh2*dl;
+    addFP(p1);
+    addFP(Math.fma(dh,dh,-p0));
+    addFP(Math.fma(dh2,dl,-p1));
+    addFP(dl*dl);
+    return this; }
+
+  //--------------------------------------------------------------
+  // construction
+  //--------------------------------------------------------------
+
+  private TripleDoubleAccumulator () { }
+
+  public static final TripleDoubleAccumulator make () {
+    return new TripleDoubleAccumulator(); }
+
+  //--------------------------------------------------------------
+}
+//--------------------------------------------------------------
@@ -2,9 +2,12 @@ package xfp.java.accumulators;
 
 import static xfp.java.numbers.Doubles.biasedExponent;
 
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import xfp.java.numbers.Doubles;
+import xfp.java.numbers.MutableBigFloat;
 
 //----------------------------------------------------------------
 /** Fast exact online summation. Basic idea is to use a separate
@@ -37,9 +40,11 @@ import xfp.java.numbers.Doubles;
  * (Apache 2.0 or MIT license, visited 2017-05-01)
  * <p>
  * <em>NOT</em> thread safe!
+ * Distinct instances share no state, so may be used by
+ * different threads concurrently.
  * <p>
  * @author palisades dot lakes at gmail dot com
- * @version 2019-07-29
+ * @version 2019-10-17
  */
 
 public final class ZhuHayesAccumulator
@@ -57,9 +62,13 @@ extends ExactAccumulator<ZhuHayesAccumulator> {
   // IFastSum
   //--------------------------------------------------------------
 
+  /** A power of 2, which is all a half ulp can be.
+   * Over-inclusive: smaller powers of 2 don't change
+   * {@link #round3(double,double,double)}.
+   */
   private static final boolean isHalfUlp (final double x) {
     // TODO: do we need to check for NaN and infinity?
-    return (0.0 != x) && (0L == Doubles.significand(x)); }
+    return (0.0 != x) && (1 == Long.bitCount(Doubles.significand(x))); }
 
   //--------------------------------------------------------------
 
@@ -92,7 +101,8 @@ extends ExactAccumulator<ZhuHayesAccumulator> {
 
     if ((isHalfUlp(s1)) &&
       (Math.signum(s1) == Math.signum(s2))) {
-      return s0 + Math.nextUp(s1); }
+      // break the tie away from s0
+      return s0 + ((0.0 < s1) ? Math.nextUp(s1) : Math.nextDown(s1)); }
     return s0; }
 
   //--------------------------------------------------------------
@@ -207,6 +217,8 @@ extends ExactAccumulator<ZhuHayesAccumulator> {
   private double[] a2;
   private double[] b1;
   private double[] b2;
+  /** Scratch space for {@link #doubleValue()}. */
+  private final double[] v;
 
   //--------------------------------------------------------------
 
@@ -302,18 +314,37 @@ extends ExactAccumulator<ZhuHayesAccumulator> {
   public final Object value () {
     return Double.valueOf(doubleValue()); }
 
-  private static final double[] v =  new double[2*NACCUMULATORS];
+  /** Copy the non-zero slots of {@link #a1} and {@link #a2}
+   * to {@link #v}, which {@link #iFastSum} overwrites, so it
+   * only visits the exponents actually seen.
+   */
   @Override
   public final double doubleValue () {
     // Step 5
-    System.arraycopy(a1,0,v,0,a1.length);
-    System.arraycopy(a2,0,v,a1.length,a2.length);
+    int m = 0;
+    for (final double x : a1) { if (0.0 != x) { v[m++] = x; } }
+    for (final double x : a2) { if (0.0 != x) { v[m++] = x; } }
     // Step 6
     // for checking IFastSum
     final int[] n = new int[1];
-    n[0] = v.length;
+    n[0] = m;
     return iFastSum(v,n,true); }
 
+  /** The exact sum of the live slots, rounded with
+   * <code>mode</code>, half-even included, independent of
+   * {@link #iFastSum}.
+   * If a slot has overflowed, so has the sum, which is
+   * {@link #doubleValue()} for any mode.
+   */
+  @Override
+  public final double doubleValue (final RoundingMode mode) {
+    final MutableBigFloat s = MutableBigFloat.make();
+    for (final double[] a : new double[][] { a1, a2, }) {
+      for (final double x : a) {
+        if (! Double.isFinite(x)) { return doubleValue(); }
+        if (0.0 != x) { s.add(x); } } }
+    return s.doubleValue(mode); }
+
   //--------------------------------------------------------------
 
   @Override
@@ -329,6 +360,143 @@ extends ExactAccumulator<ZhuHayesAccumulator> {
     if (i >= NADDS) { i = compact(); }
     return this; }
 
+  /** Batch version of {@link #add(double)}: runs of elements
+   * up to the next compaction go through {@link #twoInc}
+   * without the per element bookkeeping.
+   */
+  @Override
+  public final ZhuHayesAccumulator addAll (final double[] x) {
+    final int n = x.length;
+    int k = 0;
+    while (k < n) {
+      final int end = Math.min(n,k+(NADDS-i));
+      final double[] s = a1;
+      final double[] e = a2;
+      for (int m=k;m<end;m++) { twoInc(s,e,x[m]); }
+      i += end-k;
+      k = end;
+      if (i >= NADDS) { i = compact(); } }
+    return this; }
+
+  /** Batch version of {@link #addProduct(double,double)}:
+   * each product is split exactly into 2 adds with
+   * {@link Math#fma}.
+   */
+  @Override
+  public final ZhuHayesAccumulator addProducts (final double[] x0,
+                                                final double[] x1) {
+    final int n = x0.length;
+    //assert n == x1.length;
+    int k = 0;
+    while (k < n) {
+      final int end = Math.min(n,k+((NADDS-i)>>>1));
+      final double[] s = a1;
+      final double[] e = a2;
+      for (int m=k;m<end;m++) {
+        final double z0 = x0[m];
+        final double z1 = x1[m];
+        final double zz = z0*z1;
+        twoInc(s,e,zz);
+        twoInc(s,e,Math.fma(z0,z1,-zz)); }
+      i += 2*(end-k);
+      k = end;
+      // room for less than one more product
+      if (i >= (NADDS-1)) { i = compact(); } }
+    return this; }
+
+  /** Adds each non-zero (value,error) slot of <code>other</code>;
+   * the slots are exact, so the merge is too.
+   */
+  @Override
+  public final ZhuHayesAccumulator merge (final ZhuHayesAccumulator other) {
+    final double[] s;
+    final double[] e;
+    if (this == other) { s = a1.clone(); e = a2.clone(); }
+    else { s = other.a1; e = other.a2; }
+    for (int j=0;j<NACCUMULATORS;j++) {
+      final double sj = s[j];
+      if (0.0 != sj) { add(sj); }
+      final double ej = e[j];
+      if (0.0 != ej) { add(ej); } }
+    return this; }
+
+  //--------------------------------------------------------------
+  // binary encoding
+  //--------------------------------------------------------------
+
+  private static final int SLOT_BYTES =
+    Short.BYTES + (2*Double.BYTES);
+
+  private final int liveSlots () {
+    int m = 0;
+    for (int j=0;j<NACCUMULATORS;j++) {
+      if ((0.0 != a1[j]) || (0.0 != a2[j])) { m++; } }
+    return m; }
+
+  @Override
+  public final int encodedSize () {
+    return HEADER_BYTES + (2*Integer.BYTES)
+      + (SLOT_BYTES*liveSlots()); }
+
+  /** Only the live (value,error) slots, with their indexes,
+   * rather than all {@link #NACCUMULATORS}.
+   */
+  @Override
+  public final ByteBuffer writeTo (final ByteBuffer b) {
+    writeHeader(b,ZHU_HAYES);
+    b.putInt(i);
+    b.putInt(liveSlots());
+    for (int j=0;j<NACCUMULATORS;j++) {
+      final double sj = a1[j];
+      final double ej = a2[j];
+      if ((0.0 != sj) || (0.0 != ej)) {
+        b.putShort((short) j);
+        b.putDouble(sj);
+        b.putDouble(ej); } }
+    return b; }
+
+  /** Number of slots that follow, checked. */
+  private static final int readSlots (final ByteBuffer b) {
+    final int m = b.getInt();
+    if ((0 > m) || (NACCUMULATORS < m)
+      || (b.remaining() < (SLOT_BYTES*m))) {
+      throw new IllegalArgumentException("bad slot count: " + m); }
+    return m; }
+
+  private static final int readIndex (final ByteBuffer b) {
+    final int j = b.getShort();
+    if ((0 > j) || (NACCUMULATORS <= j)) {
+      throw new IllegalArgumentException("bad slot: " + j); }
+    return j; }
+
+  @Override
+  public final ZhuHayesAccumulator readFrom (final ByteBuffer b) {
+    readHeader(b,ZHU_HAYES);
+    final int adds = b.getInt();
+    if ((0 > adds) || (NADDS < adds)) {
+      throw new IllegalArgumentException("bad add count: " + adds); }
+    final int m = readSlots(b);
+    clear();
+    for (int k=0;k<m;k++) {
+      final int j = readIndex(b);
+      a1[j] = b.getDouble();
+      a2[j] = b.getDouble(); }
+    i = adds;
+    return this; }
+
+  @Override
+  public final ZhuHayesAccumulator mergeFrom (final ByteBuffer b) {
+    readHeader(b,ZHU_HAYES);
+    b.getInt();
+    final int m = readSlots(b);
+    for (int k=0;k<m;k++) {
+      readIndex(b);
+      final double sj = b.getDouble();
+      if (0.0 != sj) { add(sj); }
+      final double ej = b.getDouble();
+      if (0.0 != ej) { add(ej); } }
+    return this; }
+
   //--------------------------------------------------------------
   // construction
   //--------------------------------------------------------------
@@ -338,7 +506,8 @@ extends ExactAccumulator<ZhuHayesAccumulator> {
     a1 = new double[NACCUMULATORS];
     a2 = new double[NACCUMULATORS];
     b1 = new double[NACCUMULATORS];
-    b2 = new double[NACCUMULATORS]; }
+    b2 = new double[NACCUMULATORS];
+    v = new double[2*NACCUMULATORS]; }
 
 
   public static final ZhuHayesAccumulator make () {
@@ -4,6 +4,9 @@ import static xfp.java.numbers.Doubles.doubleMergeBits;
 import static xfp.java.numbers.Floats.floatMergeBits;
 import static xfp.java.numbers.Numbers.loBit;
 
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.Objects;
 
 import xfp.java.exceptions.Exceptions;
@@ -12,7 +15,7 @@ import xfp.java.exceptions.Exceptions;
  * <code>int</code> exponent.
  *
  * @author palisades dot lakes at gmail dot com
- * @version 2019-10-11
+ * @version 2019-10-17
  */
 
 @SuppressWarnings("unchecked")
@@ -75,7 +78,8 @@ implements Ringlike<BigFloat> {
       if (0>c01) { return valueOf(p1,t1.subtract(t0s),e1); }
       // t0s > t1
       if (0<c01) { return valueOf(p0,t0s.subtract(t1),e1); }
-      return ZERO; }
+      // zero in the significands' representation
+      return valueOf(true,t0s.subtract(t1),0); }
     // same signs
     if (0<de) { return valueOf(p0,t1.add(t0,de),e1);}
     return valueOf(p0,t0.add(t1),e1); }
@@ -107,7 +111,7 @@ implements Ringlike<BigFloat> {
     final int c = t0.compareTo(t1,upShift);
     if (0<c) { return valueOf(p0,t0.subtract(t1,upShift),e); }
     if (0>c) { return valueOf(p1,t0.subtractFrom(t1,upShift),e); }
-    return ZERO; }
+    return valueOf(true,t0.zero(),0); }
 
   //--------------------------------------------------------------
 
@@ -125,7 +129,7 @@ implements Ringlike<BigFloat> {
     if (0<c) { return valueOf(p0,t0.subtract(t1),e); }
     // t1>t0
     if (0>c) { return valueOf(p1,t0.subtractFrom(t1),e); }
-    return ZERO; }
+    return valueOf(true,t0.zero(),0); }
 
   //--------------------------------------------------------------
 
@@ -495,6 +499,10 @@ implements Ringlike<BigFloat> {
         Math.min(
           Floats.MAXIMUM_EXPONENT_INTEGRAL_SIGNIFICAND-e0-1,
           eh-Floats.SIGNIFICAND_BITS));
+    if (eh-es>Floats.SIGNIFICAND_BITS) {
+      return
+        (p0 ?
+          Float.POSITIVE_INFINITY : Float.NEGATIVE_INFINITY); }
     if (0==es) {
       return floatMergeBits(p0,s0.intValue(),e0); }
     if (0 > es) {
@@ -572,6 +580,64 @@ implements Ringlike<BigFloat> {
   public final double doubleValue () {
     return doubleValue(nonNegative(),significand(),exponent()); }
 
+  /** Rounding of <code>(p0 ? 1 : -1) s0 2<sup>e0</sup></code>
+   * with <code>mode</code>, from the leading 64 bits of
+   * <code>s0</code>, and whether the rest are zero.
+   * See {@link Doubles#round(boolean,long,boolean,int,RoundingMode)}.
+   */
+
+  public static final double doubleValue (final boolean p0,
+                                          final Natural s0,
+                                          final int e0,
+                                          final RoundingMode mode) {
+    if (s0.isZero()) { return (p0 ? 0.0 : -0.0); }
+    final int drop = s0.hiBit() - 64;
+    if (0 >= drop) {
+      return Doubles.round(p0,s0.longValue() << -drop,false,e0+drop,mode); }
+    return Doubles.round(
+      p0,s0.getShiftedLong(drop),(s0.loBit() < drop),e0+drop,mode); }
+
+  public final double doubleValue (final RoundingMode mode) {
+    return doubleValue(nonNegative(),significand(),exponent(),mode); }
+
+  //--------------------------------------------------------------
+  // square root
+  //--------------------------------------------------------------
+  /** The square root, rounded to a <code>double</code> with
+   * <code>mode</code>, directly from the exact value, so never
+   * overflowing or underflowing unless the result does.
+   * <p>
+   * The integer square root of the significand, scaled to 127
+   * or 128 bits, gives 64 leading bits, and the remainder, and
+   * any bits dropped by the scaling, say whether the rest are
+   * zero, which is enough for any rounding mode.
+   * <p>
+   * Like {@link Math#sqrt(double)}, <code>NaN</code> if
+   * negative, and the square root of zero is zero, with its
+   * sign.
+   * @throws ArithmeticException if <code>mode</code> is
+   * {@link RoundingMode#UNNECESSARY} and the root isn't a
+   * <code>double</code>.
+   */
+
+  public final double sqrt (final RoundingMode mode) {
+    if (isZero()) { return (nonNegative() ? 0.0 : -0.0); }
+    if (! nonNegative()) { return Double.NaN; }
+    Natural t = significand();
+    int e = exponent();
+    if (0 != (e & 1)) { t = t.shiftUp(1); e -= 1; }
+    final int k = Math.floorDiv(128 - t.hiBit(),2);
+    boolean sticky = false;
+    if (0 <= k) { t = t.shiftUp(2*k); }
+    else {
+      sticky = (t.loBit() < (-2*k));
+      t = t.shiftDown(-2*k); }
+    final List<Natural> sr = t.sqrtAndRemainder();
+    //assert 64 == sr.get(0).hiBit();
+    sticky = sticky || (! sr.get(1).isZero());
+    return Doubles.round(
+      true,sr.get(0).longValue(),sticky,(e/2)-k,mode); }
+
   //--------------------------------------------------------------
   // Comparable methods
   //--------------------------------------------------------------
@@ -592,6 +658,35 @@ implements Ringlike<BigFloat> {
     else { c = t0.shiftUp(e0-e1).compareTo(t1); }
     return (nonNegative() ? c : -c); }
 
+  //--------------------------------------------------------------
+  // binary encoding
+  //--------------------------------------------------------------
+  /** Bytes written by {@link #writeTo(ByteBuffer)}. */
+
+  public final int encodedSize () {
+    return 1 + Integer.BYTES + significand().encodedSize(); }
+
+  /** Write the sign, exponent, and significand (see
+   * {@link Natural#writeTo(ByteBuffer)}), exactly, in
+   * <code>b</code>'s byte order.
+   */
+
+  public final ByteBuffer writeTo (final ByteBuffer b) {
+    b.put((byte) (nonNegative() ? 0 : 1));
+    b.putInt(exponent());
+    return significand().writeTo(b); }
+
+  /** Inverse of {@link #writeTo(ByteBuffer)}. */
+
+  public static final BigFloat readFrom (final ByteBuffer b) {
+    final byte sign = b.get();
+    if ((0!=sign) && (1!=sign)) {
+      throw new IllegalArgumentException("bad sign: " + sign); }
+    final int e = b.getInt();
+    final Natural t = Natural.readFrom(b);
+    if (t.isZero()) { return ZERO; }
+    return valueOf(0==sign,t,e); }
+
   //--------------------------------------------------------------
   // Object methods
   //--------------------------------------------------------------
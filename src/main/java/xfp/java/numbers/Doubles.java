@@ -5,6 +5,7 @@ import static java.lang.Double.MIN_EXPONENT;
 import static java.lang.Double.doubleToRawLongBits;
 import static java.lang.Double.longBitsToDouble;
 
+import java.math.RoundingMode;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.function.BiPredicate;
@@ -32,7 +33,7 @@ import xfp.java.prng.GeneratorBase;
 /** Utilities for <code>double</code>, <code>double[]</code>.
  *
  * @author palisades dot lakes at gmail dot com
- * @version 2019-10-04
+ * @version 2019-10-17
  */
 public final class Doubles implements Set {
 
@@ -312,6 +313,78 @@ public final class Doubles implements Set {
 
     return unsafeBits(nonNegative,e,significand); }
 
+  //--------------------------------------------------------------
+  /** Half-even rounding of
+   * <code>(m+&delta;)*2<sup>e</sup></code>, where <code>m</code>
+   * is an unsigned <code>long</code> with its high bit set,
+   * and <code>0 &lt; &delta; &lt; 1</code> if <code>sticky</code>,
+   * <code>&delta; = 0</code> otherwise.
+   * <p>
+   * Allows correct rounding of arbitrary precision values
+   * from their leading 64 bits.
+   */
+
+  public static final double roundHalfEven (final boolean nonNegative,
+                                           final long m,
+                                           final boolean sticky,
+                                           final int e) {
+    return round(nonNegative,m,sticky,e,RoundingMode.HALF_EVEN); }
+
+  /** Like {@link #roundHalfEven(boolean,long,boolean,int)},
+   * with any {@link RoundingMode}.
+   * Overflow is infinite, or {@link Double#MAX_VALUE}, with the
+   * sign, when rounding toward zero, as in IEEE 754.
+   * @throws ArithmeticException if <code>mode</code> is
+   * {@link RoundingMode#UNNECESSARY} and the value isn't a
+   * <code>double</code>.
+   */
+
+  public static final double round (final boolean nonNegative,
+                                    final long m,
+                                    final boolean sticky,
+                                    final int e,
+                                    final RoundingMode mode) {
+    //assert m < 0L;
+    final int e0 = e + 64 - SIGNIFICAND_BITS;
+    final int drop =
+      (e0 >= MINIMUM_EXPONENT_INTEGRAL_SIGNIFICAND)
+      ? (64 - SIGNIFICAND_BITS)
+        : (64 - SIGNIFICAND_BITS
+          + MINIMUM_EXPONENT_INTEGRAL_SIGNIFICAND - e0);
+    final long q = (64 <= drop) ? 0L : (m >>> drop);
+    // the bit just below q, and whether any below that are set
+    final boolean half = (64 >= drop) && (0L != (m & (1L << (drop-1))));
+    final boolean rest =
+      sticky
+      || ((64 < drop) ? (0L != m) : (0L != (m & ((1L << (drop-1))-1L))));
+    final boolean inexact = half || rest;
+    final boolean away;
+    switch (mode) {
+    case UP: away = inexact; break;
+    case DOWN: away = false; break;
+    case CEILING: away = nonNegative && inexact; break;
+    case FLOOR: away = (! nonNegative) && inexact; break;
+    case HALF_UP: away = half; break;
+    case HALF_DOWN: away = half && rest; break;
+    case HALF_EVEN: away = half && (rest || (0L != (q & 1L))); break;
+    case UNNECESSARY:
+      if (inexact) {
+        throw new ArithmeticException("rounding necessary"); }
+      away = false; break;
+    default: throw new IllegalArgumentException(mode.toString()); }
+    // exact unless overflow
+    final double z = Math.scalb((double) (away ? q+1L : q),e+drop);
+    if (Double.isInfinite(z)) {
+      final boolean toZero =
+        (RoundingMode.DOWN == mode)
+        || ((RoundingMode.FLOOR == mode) && nonNegative)
+        || ((RoundingMode.CEILING == mode) && (! nonNegative));
+      if (RoundingMode.UNNECESSARY == mode) {
+        throw new ArithmeticException("rounding necessary"); }
+      if (toZero) {
+        return (nonNegative ? Double.MAX_VALUE : -Double.MAX_VALUE); } }
+    return (nonNegative ? z : -z); }
+
   //--------------------------------------------------------------
   private static final long SIGN_0 = 0x0L;
   private static final long SIGN_1 =
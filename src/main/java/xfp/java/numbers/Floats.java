@@ -306,6 +306,38 @@ public final class Floats implements Set {
 
     return unsafeBits(nonNegative,e,significand); }
 
+  //--------------------------------------------------------------
+  /** Half-even rounding of
+   * <code>(m+&delta;)*2<sup>e</sup></code>, where <code>m</code>
+   * is an unsigned <code>long</code> with its high bit set,
+   * and <code>0 &lt; &delta; &lt; 1</code> if <code>sticky</code>,
+   * <code>&delta; = 0</code> otherwise.
+   * <p>
+   * Allows correct rounding of arbitrary precision values
+   * from their leading 64 bits.
+   */
+
+  public static final float roundHalfEven (final boolean nonNegative,
+                                         final long m,
+                                         final boolean sticky,
+                                         final int e) {
+    //assert m < 0L;
+    final int e0 = e + 64 - SIGNIFICAND_BITS;
+    final int drop =
+      (e0 >= MINIMUM_EXPONENT_INTEGRAL_SIGNIFICAND)
+      ? (64 - SIGNIFICAND_BITS)
+        : (64 - SIGNIFICAND_BITS
+          + MINIMUM_EXPONENT_INTEGRAL_SIGNIFICAND - e0);
+    if (drop > 64) { return (nonNegative ? 0.0F : -0.0F); }
+    final long q = (64 == drop) ? 0L : (m >>> drop);
+    final long half = 1L << (drop-1);
+    final boolean up =
+      (0L != (m & half))
+      && (sticky || (0L != (m & (half-1L))) || (0L != (q & 1L)));
+    // exact unless overflow
+    final float z = Math.scalb((float) (up ? q+1L : q),e+drop);
+    return (nonNegative ? z : -z); }
+
   //--------------------------------------------------------------
   /**
    * @param negative boolean version of sign bit
@@ -0,0 +1,472 @@
+package xfp.java.numbers;
+
+import static xfp.java.numbers.Numbers.unsigned;
+
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/** A mutable sign times a natural number significand times
+ * 2 to an <code>int</code> exponent, for accumulation.
+ * <p>
+ * The significand is a little endian <code>int[]</code> buffer,
+ * updated in place, and only reallocated when it needs to grow.
+ * The exponent is kept a multiple of 32, so re-aligning the
+ * buffer for a smaller exponent is a word move.
+ * Adding a <code>double</code>, or the exact product of 2,
+ * touches an amortized constant number of words,
+ * rather than copying the whole significand, as
+ * {@link BigFloat#add(double)} must.
+ * <p>
+ * <em>NOT</em> thread safe!
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2019-10-17
+ */
+
+public final class MutableBigFloat {
+
+  //--------------------------------------------------------------
+  // instance fields and methods
+  //--------------------------------------------------------------
+
+  private boolean _nonNegative;
+  public final boolean nonNegative () { return _nonNegative; }
+
+  // always a multiple of 32
+  private int _exponent;
+  public final int exponent () { return _exponent; }
+
+  // words at or above _n are always zero
+  private int[] _words;
+  private int _n;
+
+  // scratch for addends given as longs
+  private final int[] _addend = new int[5];
+
+  public final boolean isZero () { return 0 == _n; }
+
+  //--------------------------------------------------------------
+
+  private final void ensureCapacity (final int n) {
+    if (n > _words.length) {
+      _words = Arrays.copyOf(_words,Math.max(n,2*_words.length)); } }
+
+  private final void stripLeadingZeros () {
+    while ((0 < _n) && (0 == _words[_n-1])) { _n--; }
+    if (0 == _n) { _nonNegative = true; } }
+
+  private final void shiftUpWords (final int iShift) {
+    if (0 == iShift) { return; }
+    ensureCapacity(_n+iShift);
+    System.arraycopy(_words,0,_words,iShift,_n);
+    Arrays.fill(_words,0,iShift,0);
+    _n += iShift; }
+
+  private static final int alignedExponent (final int e) {
+    return Math.floorDiv(e,Integer.SIZE)*Integer.SIZE; }
+
+  /** Word <code>j</code> of <code>v*2<sup>s</sup></code>,
+   * <code>0 &le; s &lt; 32</code>.
+   */
+  private static final int shiftedWord (final int[] v,
+                                        final int nv,
+                                        final int j,
+                                        final int s) {
+    if (0 == s) { return (j < nv) ? v[j] : 0; }
+    final int hi = (j < nv) ? (v[j] << s) : 0;
+    final int lo = (0 < j) ? (v[j-1] >>> (32-s)) : 0;
+    return hi | lo; }
+
+  //--------------------------------------------------------------
+  // magnitude operations on the shifted addend
+  // v*2<sup>32*i0+s</sup>, which has m words.
+
+  private final int compareMagnitude (final int[] v,
+                                      final int nv,
+                                      final int i0,
+                                      final int s,
+                                      final int m) {
+    final int[] w = _words;
+    for (int k=Math.max(_n,i0+m)-1;k>=0;k--) {
+      final int a = (k < _n) ? w[k] : 0;
+      final int b =
+        ((i0 <= k) && (k < i0+m)) ? shiftedWord(v,nv,k-i0,s) : 0;
+      if (a != b) { return Integer.compareUnsigned(a,b); } }
+    return 0; }
+
+  private final void addMagnitude (final int[] v,
+                                   final int nv,
+                                   final int i0,
+                                   final int s,
+                                   final int m) {
+    ensureCapacity(Math.max(_n,i0+m)+1);
+    final int[] w = _words;
+    long carry = 0L;
+    int k = i0;
+    for (int j=0;j<m;j++,k++) {
+      final long sum =
+        unsigned(w[k]) + unsigned(shiftedWord(v,nv,j,s)) + carry;
+      w[k] = (int) sum;
+      carry = (sum >>> 32); }
+    while (0L != carry) {
+      final long sum = unsigned(w[k]) + carry;
+      w[k] = (int) sum;
+      carry = (sum >>> 32);
+      k++; }
+    _n = Math.max(_n,k);
+    stripLeadingZeros(); }
+
+  /** Assumes this is at least as large as the addend. */
+  private final void subtractMagnitude (final int[] v,
+                                        final int nv,
+                                        final int i0,
+                                        final int s,
+                                        final int m) {
+    // the top shifted word may be zero and lie above _n
+    ensureCapacity(i0+m);
+    final int[] w = _words;
+    long borrow = 0L;
+    int k = i0;
+    for (int j=0;j<m;j++,k++) {
+      final long dif =
+        unsigned(w[k]) - unsigned(shiftedWord(v,nv,j,s)) - borrow;
+      w[k] = (int) dif;
+      borrow = (dif >>> 63); }
+    while (0L != borrow) {
+      final long dif = unsigned(w[k]) - borrow;
+      w[k] = (int) dif;
+      borrow = (dif >>> 63);
+      k++; }
+    stripLeadingZeros(); }
+
+  /** Assumes the addend is larger than this. */
+  private final void subtractFromMagnitude (final int[] v,
+                                            final int nv,
+                                            final int i0,
+                                            final int s,
+                                            final int m) {
+    final int n = i0+m;
+    ensureCapacity(n);
+    final int[] w = _words;
+    long borrow = 0L;
+    for (int k=0;k<n;k++) {
+      final long a =
+        (i0 <= k) ? unsigned(shiftedWord(v,nv,k-i0,s)) : 0L;
+      final long dif = a - unsigned(w[k]) - borrow;
+      w[k] = (int) dif;
+      borrow = (dif >>> 63); }
+    _n = n;
+    stripLeadingZeros(); }
+
+  //--------------------------------------------------------------
+  /** Add <code>(p ? 1 : -1) * v * 2<sup>e</sup></code>, where
+   * <code>v</code> is the natural number in the first
+   * <code>nv</code> words, which mustn't alias this buffer.
+   */
+
+  private final MutableBigFloat add (final boolean p,
+                                     final int[] v,
+                                     final int nv,
+                                     final int e) {
+    if (0 == nv) { return this; }
+    if (0 == _n) {
+      _nonNegative = p;
+      _exponent = alignedExponent(e); }
+    else if (e < _exponent) {
+      final int e1 = alignedExponent(e);
+      shiftUpWords((_exponent-e1) >>> 5);
+      _exponent = e1; }
+    final int upShift = e - _exponent;
+    final int i0 = (upShift >>> 5);
+    final int s = (upShift & 0x1F);
+    final int m = ((0 == s) ? nv : nv+1);
+    if (p == _nonNegative) { addMagnitude(v,nv,i0,s,m); }
+    else {
+      final int c = compareMagnitude(v,nv,i0,s,m);
+      if (0 < c) { subtractMagnitude(v,nv,i0,s,m); }
+      else if (0 > c) {
+        subtractFromMagnitude(v,nv,i0,s,m);
+        _nonNegative = p; }
+      else { clear(); } }
+    return this; }
+
+  /** Add <code>(p ? 1 : -1) *
+   * (hi*2<sup>64</sup> + lo) * 2<sup>e</sup></code>,
+   * treating <code>hi</code> and <code>lo</code> as unsigned.
+   */
+
+  private final MutableBigFloat add (final boolean p,
+                                     final long hi,
+                                     final long lo,
+                                     final int e) {
+    if ((0L == hi) && (0L == lo)) { return this; }
+    // pre-shift to a word aligned exponent, so the general
+    // method doesn't shift each word
+    final int e1 =
+      ((0 == _n) || (e < _exponent)) ? alignedExponent(e) : _exponent;
+    final int upShift = e - e1;
+    final int s = (upShift & 0x1F);
+    final long h;
+    final long l;
+    final int carry;
+    if (0 == s) { h = hi; l = lo; carry = 0; }
+    else {
+      h = (hi << s) | (lo >>> (64-s));
+      l = lo << s;
+      carry = (int) (hi >>> (64-s)); }
+    final int[] v = _addend;
+    v[0] = (int) l;
+    v[1] = (int) (l >>> 32);
+    v[2] = (int) h;
+    v[3] = (int) (h >>> 32);
+    v[4] = carry;
+    int nv = 5;
+    while (0 == v[nv-1]) { nv--; }
+    final int i0 = (upShift >>> 5);
+    if ((0 != _n) && (e1 == _exponent)) {
+      // common case: no re-alignment, so only the words at and
+      // above i0 change
+      if (p == _nonNegative) {
+        ensureCapacity(Math.max(_n,i0+nv)+1);
+        final int[] w = _words;
+        long sum = 0L;
+        int k = i0;
+        for (int j=0;j<nv;j++,k++) {
+          sum = unsigned(w[k]) + unsigned(v[j]) + (sum >>> 32);
+          w[k] = (int) sum; }
+        for (sum>>>=32;0L != sum;k++) {
+          sum += unsigned(w[k]);
+          w[k] = (int) sum;
+          sum >>>= 32; }
+        if (k > _n) { _n = k; }
+        return this; }
+      // subtract, negating the words if the result is negative
+      final int n = Math.max(_n,i0+nv);
+      ensureCapacity(n);
+      final int[] w = _words;
+      long dif = 0L;
+      int k = i0;
+      for (int j=0;j<nv;j++,k++) {
+        dif = unsigned(w[k]) - unsigned(v[j]) + (dif >> 32);
+        w[k] = (int) dif; }
+      for (dif>>=32;(0L != dif) && (k < n);k++) {
+        dif += unsigned(w[k]);
+        w[k] = (int) dif;
+        dif >>= 32; }
+      _n = n;
+      if (0L != dif) {
+        long neg = 1L;
+        for (int i=0;i<n;i++) {
+          neg += unsigned(~w[i]);
+          w[i] = (int) neg;
+          neg >>>= 32; }
+        _nonNegative = p; }
+      stripLeadingZeros();
+      return this; }
+    return add(p,v,nv,upShift-s+e1); }
+
+  //--------------------------------------------------------------
+
+  public final MutableBigFloat add (final double z) {
+    //assert Double.isFinite(z);
+    if (0.0 == z) { return this; }
+    return add(
+      Doubles.nonNegative(z),
+      0L,
+      Doubles.significand(z),
+      Doubles.exponent(z)); }
+
+  public final MutableBigFloat addAbs (final double z) {
+    //assert Double.isFinite(z);
+    if (0.0 == z) { return this; }
+    return add(
+      true,
+      0L,
+      Doubles.significand(z),
+      Doubles.exponent(z)); }
+
+  public final MutableBigFloat add2 (final double z) {
+    //assert Double.isFinite(z);
+    if (0.0 == z) { return this; }
+    final long t = Doubles.significand(z);
+    return add(
+      true,
+      Math.multiplyHigh(t,t),
+      t*t,
+      2*Doubles.exponent(z)); }
+
+  // add 2^shift*z0*z1
+  private final MutableBigFloat addProduct (final double z0,
+                                            final double z1,
+                                            final int shift) {
+    //assert Double.isFinite(z0);
+    //assert Double.isFinite(z1);
+    if ((0.0 == z0) || (0.0 == z1)) { return this; }
+    final long t0 = Doubles.significand(z0);
+    final long t1 = Doubles.significand(z1);
+    return add(
+      Doubles.nonNegative(z0) == Doubles.nonNegative(z1),
+      Math.multiplyHigh(t0,t1),
+      t0*t1,
+      Doubles.exponent(z0) + Doubles.exponent(z1) + shift); }
+
+  public final MutableBigFloat addProduct (final double z0,
+                                           final double z1) {
+    return addProduct(z0,z1,0); }
+
+  public final MutableBigFloat addL1 (final double z0,
+                                      final double z1) {
+    if (z0 > z1) { return add(z0).add(-z1); }
+    if (z0 < z1) { return add(-z0).add(z1); }
+    return this; }
+
+  public final MutableBigFloat addL2 (final double z0,
+                                      final double z1) {
+    return add2(z0).add2(z1).addProduct(z0,-z1,1); }
+
+  //--------------------------------------------------------------
+
+  public final MutableBigFloat add (final BigFloat q) {
+    final Natural t = q.significand();
+    return add(q.nonNegative(),t.words(),t.hiInt(),q.exponent()); }
+
+  public final MutableBigFloat add (final MutableBigFloat q) {
+    if (this == q) {
+      // double in place
+      if (0 == _n) { return this; }
+      final int n = _n;
+      ensureCapacity(n+1);
+      final int[] w = _words;
+      w[n] = (w[n-1] >>> 31);
+      for (int k=n-1;k>0;k--) { w[k] = (w[k] << 1) | (w[k-1] >>> 31); }
+      w[0] = (w[0] << 1);
+      _n = n+1;
+      stripLeadingZeros();
+      return this; }
+    return add(q._nonNegative,q._words,q._n,q._exponent); }
+
+  //--------------------------------------------------------------
+
+  public final MutableBigFloat clear () {
+    Arrays.fill(_words,0,_n,0);
+    _n = 0;
+    _nonNegative = true;
+    _exponent = 0;
+    return this; }
+
+  //--------------------------------------------------------------
+  // binary encoding, the same as BigFloat's
+  //--------------------------------------------------------------
+  /** Bytes written by {@link #writeTo(ByteBuffer)}. */
+
+  public final int encodedSize () {
+    return 1 + (Integer.BYTES*(2+_n)); }
+
+  /** Write the current value, exactly, without copying it,
+   * in the format of {@link BigFloat#writeTo(ByteBuffer)}.
+   */
+
+  public final ByteBuffer writeTo (final ByteBuffer b) {
+    b.put((byte) (_nonNegative ? 0 : 1));
+    b.putInt(_exponent);
+    b.putInt(_n);
+    for (int i=0;i<_n;i++) { b.putInt(_words[i]); }
+    return b; }
+
+  /** Replace the current value with one read by
+   * {@link BigFloat#readFrom(ByteBuffer)}.
+   */
+
+  public final MutableBigFloat readFrom (final ByteBuffer b) {
+    return clear().add(BigFloat.readFrom(b)); }
+
+  //--------------------------------------------------------------
+  // Number methods
+  //--------------------------------------------------------------
+  // leading 64 bits of the significand, whether any lower bits
+  // are non-zero, and the exponent of the low bit of _m.
+
+  private long _m;
+  private boolean _sticky;
+  private int _e;
+
+  private final void leadingBits () {
+    final int[] w = _words;
+    final int h = _n-1;
+    final int hb = Integer.SIZE - Integer.numberOfLeadingZeros(w[h]);
+    long m = unsigned(w[h]) << (64-hb);
+    boolean sticky = false;
+    int filled = hb;
+    int k = h-1;
+    for (;(k >= 0) && (filled < 64);k--) {
+      final int shift = 32 - filled;
+      final long wk = unsigned(w[k]);
+      if (shift >= 0) { m |= wk << shift; }
+      else {
+        m |= wk >>> -shift;
+        sticky = (0L != (wk & ((1L << -shift) - 1L))); }
+      filled += 32; }
+    for (;(k >= 0) && (! sticky);k--) { sticky = (0 != w[k]); }
+    _m = m;
+    _sticky = sticky;
+    _e = (32*h) + hb - 64 + _exponent; }
+
+  /** @return closest half-even rounded <code>double</code>
+   */
+
+  public final double doubleValue () {
+    if (0 == _n) { return 0.0; }
+    leadingBits();
+    return Doubles.roundHalfEven(_nonNegative,_m,_sticky,_e); }
+
+  /** @return <code>double</code> rounded with <code>mode</code>.
+   */
+
+  public final double doubleValue (final RoundingMode mode) {
+    if (0 == _n) { return 0.0; }
+    leadingBits();
+    return Doubles.round(_nonNegative,_m,_sticky,_e,mode); }
+
+  /** @return closest half-even rounded <code>float</code>
+   */
+
+  public final float floatValue () {
+    if (0 == _n) { return 0.0F; }
+    leadingBits();
+    return Floats.roundHalfEven(_nonNegative,_m,_sticky,_e); }
+
+  /** @return an immutable copy of the current value.
+   */
+
+  public final BigFloat bigFloatValue () {
+    if (0 == _n) { return BigFloat.ZERO; }
+    return BigFloat.valueOf(
+      _nonNegative,
+      Natural.unsafe(Arrays.copyOf(_words,_n)),
+      _exponent); }
+
+  //--------------------------------------------------------------
+  // Object methods
+  //--------------------------------------------------------------
+
+  @Override
+  public final String toString () {
+    return bigFloatValue().toString(); }
+
+  //--------------------------------------------------------------
+  // construction
+  //--------------------------------------------------------------
+
+  private MutableBigFloat () {
+    _words = new int[8];
+    _n = 0;
+    _nonNegative = true;
+    _exponent = 0; }
+
+  public static final MutableBigFloat make () {
+    return new MutableBigFloat(); }
+
+  //--------------------------------------------------------------
+}
+//--------------------------------------------------------------
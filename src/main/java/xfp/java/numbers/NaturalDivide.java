@@ -5,6 +5,7 @@ import static xfp.java.numbers.Numbers.loWord;
 import static xfp.java.numbers.Numbers.unsigned;
 
 import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.List;
 
 /** Division, gcd, etc., of natural numbers.
@@ -12,7 +13,7 @@ import java.util.List;
  * Non-instantiable.
  *
  * @author palisades dot lakes at gmail dot com
- * @version 2019-09-04
+ * @version 2019-10-17
  */
 
 @SuppressWarnings("unchecked")
@@ -48,38 +49,25 @@ public final class NaturalDivide {
     final long dd = unsigned(d);
     if (1==nu) {
       final long nn = u.uword(0);
-      final int q = (int) (nn/dd);
-      final int r = (int) (nn-(q*dd));
-      return List.of(Natural.valueOf(q),Natural.valueOf(r)); }
+      final long q = nn/dd;
+      return List.of(Natural.valueOf(q),Natural.valueOf(nn-(q*dd))); }
 
-    Natural qq = u;
-
-    final int shift = Integer.numberOfLeadingZeros(d);
-    int r = u.word(u.hiInt()-1);
-    long rr = unsigned(r);
-    if (rr < dd) { 
-      qq = qq.setWord(qq.hiInt()-1,0); }
-    else {
-      final int rrdd = (int) (rr / dd);
-      qq = qq.setWord(u.hiInt()-1,rrdd);
-      r = (int) (rr-(rrdd*dd));
-      rr = unsigned(r); }
-
-    int xlen = u.hiInt();
-    while (--xlen > 0) {
-      final long nEst = (rr << 32) | u.uword(xlen-1);
+    final int[] qq = new int[nu];
+    long rr = 0L;
+    for (int i=nu-1;i>=0;i--) {
+      final long nEst = (rr << 32) | u.uword(i);
       final int q;
+      final int r;
       if (nEst >= 0) {
         q = (int) (nEst / dd);
-        r = (int) (nEst - (q * dd)); }
+        r = (int) (nEst - (unsigned(q) * dd)); }
       else {
         final long tmp = Ints.divWord(nEst,dd);
         q = (int) Numbers.loWord(tmp);
         r = (int) Numbers.hiWord(tmp); }
-      qq = qq.setWord(xlen-1,q);
+      qq[i] = q;
       rr = unsigned(r); }
-    if (shift > 0) { return List.of(qq,Natural.valueOf(r%d)); }
-    return List.of(qq,Natural.valueOf(r)); }
+    return List.of(Natural.unsafe(qq),Natural.valueOf(rr)); }
 
   //--------------------------------------------------------------
   /** Special shifted fused multiply-subtract 
@@ -174,7 +162,8 @@ public final class NaturalDivide {
       final long rm = r.uword(i-1);
       long qhat; long qrem;
       if (rh==dh) {
-        qhat=0xFFFFFFFFL; qrem=rh+rm; correctQhat=(qrem>=rh); }
+        // no correction if qrem overflows 32 bits
+        qhat=0xFFFFFFFFL; qrem=rh+rm; correctQhat=(qrem<=0xFFFFFFFFL); }
       else {
         final long nChunk = (rh<<32) | rm;
         if (nChunk >= 0) {
@@ -214,7 +203,8 @@ public final class NaturalDivide {
     final long nh = r.uword(nd);
     final long nm =  r.uword(nd-1);
     if (nh==dh) {
-      qhat=0xFFFFFFFFL; qrem=nh+nm; correctQhat=(qrem>=nh); }
+      // no correction if qrem overflows 32 bits
+      qhat=0xFFFFFFFFL; qrem=nh+nm; correctQhat=(qrem<=0xFFFFFFFFL); }
     else {
       final long nChunk = (nh << 32) | nm;
       if (nChunk >= 0) {
@@ -524,7 +514,7 @@ public final class NaturalDivide {
       if ((an<2) && (bn<2)) {
         final int x = a.word(an-1);
         final int y = b.word(bn-1);
-        Natural r = Natural.valueOf(Ints.unsignedGcd(x,y));
+        Natural r = Natural.valueOf(unsigned(Ints.unsignedGcd(x,y)));
         if (s > 0) { r = r.shiftUp(s); }
         //assert a.isValid();
         //assert b.isValid();
@@ -562,8 +552,8 @@ public final class NaturalDivide {
    * same length, then use the Knuth algorithm.
    */
 
-  public static final Natural gcd (final Natural u,
-                                   final Natural v) {
+  private static final Natural gcdEuclid (final Natural u,
+                                          final Natural v) {
     Natural a = u;
     Natural b = v;
     //assert a.isValid();
@@ -581,6 +571,443 @@ public final class NaturalDivide {
       b = qr.get(1); }
     return a; }
 
+  //--------------------------------------------------------------
+  // Lehmer gcd
+  //--------------------------------------------------------------
+  /** Leading bits used for single precision quotients. */
+
+  private static final int LEHMER_BITS = 60;
+
+  /** Bound on the single precision cofactors, so that a cofactor
+   * times a word, plus another, fits in a <code>long</code>.
+   */
+
+  private static final long LEHMER_COFACTOR_LIMIT = (1L<<30);
+
+  /** Exclusive. */
+
+  private static final int hiBit (final int[] w,
+                                  final int n) {
+    if (0==n) { return 0; }
+    return ((n-1)<<5) + Numbers.hiBit(w[n-1]); }
+
+  private static final int hiInt (final int[] w,
+                                  final int n) {
+    int i = n;
+    while ((0<i) && (0==w[i-1])) { i--; }
+    return i; }
+
+  /** <code>floor(w / 2<sup>shift</sup>)</code>, assumed to fit
+   * in a <code>long</code>.
+   */
+
+  private static final long leadingBits (final int[] w,
+                                         final int n,
+                                         final int shift) {
+    final int i = (shift>>>5);
+    final int k = (shift&0x1F);
+    final long w0 = (i<n) ? unsigned(w[i]) : 0L;
+    final long w1 = ((i+1)<n) ? unsigned(w[i+1]) : 0L;
+    final long w2 = ((i+2)<n) ? unsigned(w[i+2]) : 0L;
+    final long lo = (w0|(w1<<32))>>>k;
+    if (0==k) { return lo; }
+    return lo|(w2<<(64-k)); }
+
+  /** Lehmer's algorithm (Knuth 4.5.2, Algorithm L), with the
+   * remainders updated in place in scratch arrays, so that a
+   * step costs no allocation unless a quotient is too large for
+   * single precision.
+   * <p>
+   * Optionally accumulates the cofactor matrix <code>m</code>,
+   * with <code>(u,v) = m (a,b)</code>, for the half gcd.
+   */
+
+  private static final class Lehmer {
+
+    private int[] _a;
+    private int _na;
+    private int[] _b;
+    private int _nb;
+
+    // null unless tracking the cofactors, whose elements are
+    // bounded by a, so fit in the same number of words
+    private int[] _m00;
+    private int[] _m01;
+    private int[] _m10;
+    private int[] _m11;
+    private int _nm;
+    // determinant of m is -1
+    private boolean _negative;
+
+    private static final Natural natural (final int[] w,
+                                          final int n) {
+      return Natural.unsafe(Arrays.copyOf(w,n)); }
+
+    final Natural a () { return natural(_a,_na); }
+
+    final Natural b () { return natural(_b,_nb); }
+
+    final Reduction reduction () {
+      return new Reduction(
+        natural(_m00,_nm), natural(_m01,_nm),
+        natural(_m10,_nm), natural(_m11,_nm),
+        _negative,a(),b()); }
+
+    final int nb () { return _nb; }
+
+    /** <code>(m0,m1) &larr; (c00 m0 + c10 m1, c01 m0 + c11 m1)</code>,
+     * for non-negative single precision <code>c</code>.
+     */
+
+    private static final void combine (final int[] m0,
+                                       final int[] m1,
+                                       final int n,
+                                       final long c00,
+                                       final long c01,
+                                       final long c10,
+                                       final long c11) {
+      long carry0 = 0L;
+      long carry1 = 0L;
+      for (int i=0;i<n;i++) {
+        final long w0 = unsigned(m0[i]);
+        final long w1 = unsigned(m1[i]);
+        carry0 += (c00*w0) + (c10*w1);
+        carry1 += (c01*w0) + (c11*w1);
+        m0[i] = (int) carry0;
+        m1[i] = (int) carry1;
+        carry0 >>>= 32;
+        carry1 >>>= 32; } }
+
+    /** <code>m &larr; m q</code>. */
+
+    private final void multiplyMatrix (final long q00,
+                                       final long q01,
+                                       final long q10,
+                                       final long q11) {
+      final int n = Math.min(_nm+1,_m00.length);
+      combine(_m00,_m01,n,q00,q01,q10,q11);
+      combine(_m10,_m11,n,q00,q01,q10,q11);
+      _nm = Math.max(hiInt(_m00,n),hiInt(_m10,n));
+      if (((q00*q11)-(q01*q10)) < 0L) { _negative = ! _negative; } }
+
+    /** <code>m &larr; m [[q,1],[1,0]]</code>. */
+
+    private final void multiplyMatrix (final Natural q) {
+      final Natural m00 = natural(_m00,_nm);
+      final Natural m10 = natural(_m10,_nm);
+      final Natural m01 = m00.multiply(q).add(natural(_m01,_nm));
+      final Natural m11 = m10.multiply(q).add(natural(_m11,_nm));
+      System.arraycopy(_m00,0,_m01,0,_nm);
+      System.arraycopy(_m10,0,_m11,0,_nm);
+      _nm = Math.max(m01.hiInt(),m11.hiInt());
+      Arrays.fill(_m00,0);
+      Arrays.fill(_m10,0);
+      System.arraycopy(m01.words(),0,_m00,0,m01.hiInt());
+      System.arraycopy(m11.words(),0,_m10,0,m11.hiInt());
+      _negative = ! _negative; }
+
+    /** Full precision step:
+     * <code>(a,b) &larr; (b, a mod b)</code>,
+     * unless the remainder is less than <code>2<sup>s</sup></code>.
+     */
+
+    private final boolean divisionStep (final int s) {
+      final List<Natural> qr = divideAndRemainder(a(),b());
+      final Natural r = qr.get(1);
+      if ((0<s) && (r.hiBit()<=s)) { return false; }
+      final int[] t = _a;
+      _a = _b; _na = _nb;
+      _b = t;
+      _nb = r.hiInt();
+      System.arraycopy(r.words(),0,_b,0,_nb);
+      Arrays.fill(_b,_nb,_b.length,0);
+      if (null != _m00) { multiplyMatrix(qr.get(0)); }
+      return true; }
+
+    /** One round of single precision quotients, applied to the
+     * full remainders at once. If <code>0&lt;s</code>, doesn't
+     * take a quotient that might reduce <code>b</code> below
+     * <code>2<sup>s</sup></code>.
+     * Returns false if no step was possible.
+     */
+
+    final boolean step (final int s) {
+      final int shift = Math.max(0,hiBit(_a,_na)-LEHMER_BITS);
+      long x = leadingBits(_a,_na,shift);
+      long y = leadingBits(_b,_nb,shift);
+      // the true remainder is within a cofactor of the leading bits
+      final int ds = s-shift;
+      final long t =
+        (s<=0) ? Long.MIN_VALUE :
+          ((ds<=0) ? 1L : ((ds>=62) ? Long.MAX_VALUE : (1L<<ds)));
+      long aa = 1L; long ab = 0L; long ba = 0L; long bb = 1L;
+      for (;;) {
+        final long y0 = y+ba;
+        final long y1 = y+bb;
+        if ((y0<=0L) || (y1<=0L)) { break; }
+        final long q = (x+aa)/y0;
+        if ((q > LEHMER_COFACTOR_LIMIT) || (q != ((x+ab)/y1))) { break; }
+        final long ca = aa-(q*ba);
+        final long cb = ab-(q*bb);
+        if ((Math.abs(ca) > LEHMER_COFACTOR_LIMIT)
+          || (Math.abs(cb) > LEHMER_COFACTOR_LIMIT)) { break; }
+        final long r = x-(q*y);
+        if ((r-Math.max(Math.abs(ca),Math.abs(cb))) < t) { break; }
+        aa = ba; ab = bb; ba = ca; bb = cb;
+        x = y; y = r; }
+
+      if (0L==ab) { return divisionStep(s); }
+
+      // (a,b) <- (aa a + ab b, ba a + bb b)
+      long carrya = 0L;
+      long carryb = 0L;
+      for (int i=0;i<_na;i++) {
+        final long ai = unsigned(_a[i]);
+        final long bi = unsigned(_b[i]);
+        carrya += (aa*ai) + (ab*bi);
+        carryb += (ba*ai) + (bb*bi);
+        _a[i] = (int) carrya;
+        _b[i] = (int) carryb;
+        carrya >>= 32;
+        carryb >>= 32; }
+      //assert 0L==carrya;
+      //assert 0L==carryb;
+      _na = hiInt(_a,_na);
+      _nb = hiInt(_b,_nb);
+      if (null != _m00) {
+        // the inverse, which has non-negative elements
+        multiplyMatrix(
+          Math.abs(bb),Math.abs(ab),Math.abs(ba),Math.abs(aa)); }
+      return true; }
+
+    /** <code>u &ge; v</code>. */
+
+    Lehmer (final Natural u,
+            final Natural v,
+            final boolean matrix) {
+      _na = u.hiInt();
+      _nb = v.hiInt();
+      _a = Arrays.copyOf(u.words(),_na);
+      _b = Arrays.copyOf(v.words(),_na);
+      if (matrix) {
+        _m00 = new int[_na+1]; _m01 = new int[_na+1];
+        _m10 = new int[_na+1]; _m11 = new int[_na+1];
+        _m00[0] = 1; _m11[0] = 1; _nm = 1; } } }
+
+  /** <code>u &ge; v</code>. */
+
+  private static final Natural gcdLehmer (final Natural u,
+                                          final Natural v) {
+    final Lehmer l = new Lehmer(u,v,false);
+    // until b fits in 2 words
+    while (2<l.nb()) { l.step(0); }
+    return gcdEuclid(l.a(),l.b()); }
+
+  //--------------------------------------------------------------
+  // half gcd
+  //--------------------------------------------------------------
+  /** Words below which the half gcd is just Lehmer's
+   * algorithm, tracking the cofactors.
+   */
+
+  private static final int HALF_GCD_THRESHOLD = 1024;
+
+  /** A cofactor matrix <code>m</code>, with non-negative
+   * elements and determinant <code>&plusmn;1</code>,
+   * and the reduced pair <code>(a,b) = m<sup>-1</sup> (x,y)</code>,
+   * <code>a &ge; b</code>.
+   */
+
+  private static final class Reduction {
+    final Natural m00;
+    final Natural m01;
+    final Natural m10;
+    final Natural m11;
+    // determinant is -1
+    final boolean negative;
+    final Natural a;
+    final Natural b;
+
+    Reduction (final Natural m00,
+               final Natural m01,
+               final Natural m10,
+               final Natural m11,
+               final boolean negative,
+               final Natural a,
+               final Natural b) {
+      this.m00 = m00; this.m01 = m01;
+      this.m10 = m10; this.m11 = m11;
+      this.negative = negative;
+      this.a = a; this.b = b; } }
+
+  private static final Reduction identity (final Natural x,
+                                           final Natural y) {
+    return new Reduction(
+      Natural.ONE,Natural.ZERO,Natural.ZERO,Natural.ONE,false,x,y); }
+
+  /** <code>x mod 2<sup>p</sup></code>. */
+
+  private static final Natural lowBits (final Natural x,
+                                        final int p) {
+    final int i = (p>>>5);
+    if (i >= x.hiInt()) { return x; }
+    final int k = (p&0x1F);
+    final int[] w = Arrays.copyOf(x.words(),i+1);
+    w[i] &= ((1<<k)-1);
+    return Natural.unsafe(w); }
+
+  /** Extend a reduction of the leading parts,
+   * <code>(x0,y0) = (x,y) / 2<sup>p</sup></code>,
+   * to <code>(x,y) = (x0,y0) 2<sup>p</sup> + (x1,y1)</code>:
+   * <code>m<sup>-1</sup> (x,y)
+   * = (a,b) 2<sup>p</sup> + m<sup>-1</sup> (x1,y1)</code>,
+   * so only the low parts need to be multiplied.
+   */
+
+  private static final Reduction adjust (final Reduction r,
+                                         final int p,
+                                         final Natural x,
+                                         final Natural y) {
+    final Natural x1 = lowBits(x,p);
+    final Natural y1 = lowBits(y,p);
+    // m^-1 = det [[m11,-m01],[-m10,m00]]
+    final Natural u0 = r.m11.multiply(x1);
+    final Natural u1 = r.m01.multiply(y1);
+    final Natural v0 = r.m00.multiply(y1);
+    final Natural v1 = r.m10.multiply(x1);
+    final boolean du = (u0.compareTo(u1) < 0) != r.negative;
+    final boolean dv = (v0.compareTo(v1) < 0) != r.negative;
+    final Natural eu = u0.absDiff(u1);
+    final Natural ev = v0.absDiff(v1);
+    final Natural a0 = r.a.shiftUp(p);
+    final Natural b0 = r.b.shiftUp(p);
+    final Natural a = du ? a0.subtract(eu) : a0.add(eu);
+    final Natural b = dv ? b0.subtract(ev) : b0.add(ev);
+    // keep a >= b, swapping the columns of m
+    if (a.compareTo(b) < 0) {
+      return new Reduction(
+        r.m01,r.m00,r.m11,r.m10,! r.negative,b,a); }
+    return new Reduction(
+      r.m00,r.m01,r.m10,r.m11,r.negative,a,b); }
+
+  /** <code>m<sub>r</sub> [[q,1],[1,0]]</code>. */
+
+  private static final Reduction step (final Reduction r,
+                                       final Natural q,
+                                       final Natural a,
+                                       final Natural b) {
+    return new Reduction(
+      r.m00.multiply(q).add(r.m01),r.m00,
+      r.m10.multiply(q).add(r.m11),r.m10,
+      ! r.negative,a,b); }
+
+  /** <code>m<sub>r0</sub> m<sub>r1</sub></code>. */
+
+  private static final Reduction compose (final Reduction r0,
+                                          final Reduction r1) {
+    return new Reduction(
+      r0.m00.multiply(r1.m00).add(r0.m01.multiply(r1.m10)),
+      r0.m00.multiply(r1.m01).add(r0.m01.multiply(r1.m11)),
+      r0.m10.multiply(r1.m00).add(r0.m11.multiply(r1.m10)),
+      r0.m10.multiply(r1.m01).add(r0.m11.multiply(r1.m11)),
+      r0.negative != r1.negative,
+      r1.a,r1.b); }
+
+  /** Half gcd, after Moller, <em>On Schonhage's algorithm and
+   * subquadratic integer gcd computation</em>, 2008:
+   * a cofactor matrix <code>m</code> that reduces
+   * <code>(x,y)</code>, <code>x &ge; y</code>, of <code>n</code>
+   * bits, to <code>(a,b) = m<sup>-1</sup> (x,y)</code>,
+   * with <code>a,b &ge; 2<sup>s</sup></code>,
+   * <code>s = floor(n/2)+1</code>,
+   * computed recursively from the leading halves,
+   * with Lehmer's algorithm at the leaves.
+   * <p>
+   * Keeping <code>a,b &ge; 2<sup>s</sup></code> bounds the
+   * elements of <code>m</code> by <code>a</code> and
+   * <code>b</code>, so <code>m</code> is also a valid reduction
+   * of any <code>(x 2<sup>p</sup> + x', y 2<sup>p</sup> + y')</code>,
+   * <code>x',y' &lt; 2<sup>p</sup></code>.
+   * <p>
+   * If not <code>matrix</code>, only the reduced pair is
+   * returned.
+   */
+
+  private static final Reduction halfGcd (final Natural x,
+                                          final Natural y,
+                                          final boolean matrix) {
+    final int n = x.hiBit();
+    final int s = (n>>>1) + 1;
+    if (y.hiBit() <= s) { return identity(x,y); }
+
+    if (x.hiInt() < HALF_GCD_THRESHOLD) {
+      final Lehmer l = new Lehmer(x,y,true);
+      while (l.step(s)) { /* */ }
+      return l.reduction(); }
+
+    // reduce the leading half
+    final int p0 = (n>>>1);
+    final Reduction r0 =
+      adjust(halfGcd(x.shiftDown(p0),y.shiftDown(p0),true),p0,x,y);
+    if (r0.b.hiBit() <= s) { return r0; }
+
+    // one full step
+    final List<Natural> qr = divideAndRemainder(r0.a,r0.b);
+    if (qr.get(1).hiBit() <= s) { return r0; }
+    final Reduction r1 = step(r0,qr.get(0),r0.b,qr.get(1));
+
+    // reduce the leading part again, down to about s bits,
+    // but never recursing on more than half of n
+    final int n1 = r1.a.hiBit();
+    final int p1 = Math.max(0,Math.max((2*s)-n1,n1-(n-p0)));
+    final Reduction r2 =
+      adjust(
+        halfGcd(r1.a.shiftDown(p1),r1.b.shiftDown(p1),true),
+        p1,r1.a,r1.b);
+    if (! matrix) { return r2; }
+    return compose(r1,r2); }
+
+  /** <code>u &ge; v</code>. */
+
+  private static final Natural gcdHalf (final Natural u,
+                                        final Natural v) {
+    Natural a = u;
+    Natural b = v;
+    while (b.hiInt() >= GCD_HALF_GCD_THRESHOLD) {
+      final int na = a.hiBit();
+      // unbalanced, or the half gcd made no progress
+      if ((na-b.hiBit()) < 32) {
+        final Reduction r = halfGcd(a,b,false);
+        if (r.a.hiBit() < na) { a = r.a; b = r.b; continue; } }
+      final List<Natural> qr = divideAndRemainder(a,b);
+      a = b;
+      b = qr.get(1); }
+    if (b.isZero()) { return a; }
+    return gcdLehmer(a,b); }
+
+  //--------------------------------------------------------------
+
+  // in words of the smaller argument
+  private static final int LEHMER_THRESHOLD = 3;
+  private static final int GCD_HALF_GCD_THRESHOLD = 65536;
+
+  /** Euclid and binary gcd for small numbers,
+   * Lehmer's algorithm for medium sized ones, and a recursive
+   * half gcd, with subquadratic multiplication, for large ones.
+   */
+
+  public static final Natural gcd (final Natural u,
+                                   final Natural v) {
+    if (u.isZero()) { return v; }
+    if (v.isZero()) { return u; }
+    final boolean ordered = (u.compareTo(v) >= 0);
+    final Natural a = ordered ? u : v;
+    final Natural b = ordered ? v : u;
+    final int n = b.hiInt();
+    if (n < LEHMER_THRESHOLD) { return gcdEuclid(a,b); }
+    if (n < GCD_HALF_GCD_THRESHOLD) { return gcdLehmer(a,b); }
+    return gcdHalf(a,b); }
+
   public static final List<Natural> reduce (final Natural n0,
                                             final Natural d0) {
     //assert n0.isValid();
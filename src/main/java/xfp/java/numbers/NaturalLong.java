@@ -0,0 +1,841 @@
+package xfp.java.numbers;
+
+import static xfp.java.numbers.Numbers.unsigned;
+import static xfp.java.numbers.Numbers.unsignedMultiplyHigh;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+/** {@link Natural} represented by little-endian
+ * unsigned <code>long[]</code>.
+ * <p>
+ * The same operations as <code>NaturalInt</code>, with 64 bit
+ * words, so half as many iterations in add and subtract loops,
+ * and a quarter as many word products in multiply and square.
+ * Word products use {@link Numbers#unsignedMultiplyHigh}, and
+ * carries and borrows are recovered from the top bits of the
+ * operands and result, so nothing is widened through
+ * {@link Numbers#unsigned(int)}.
+ * <p>
+ * Operations return <code>NaturalLong</code>, converting
+ * <code>NaturalInt</code> arguments first, and
+ * <code>NaturalInt</code> operations with a
+ * <code>NaturalLong</code> argument come here, so mixed
+ * arithmetic stays <code>NaturalLong</code>, like
+ * <code>int</code> and <code>long</code>.
+ * Division, gcd, reduction and square root go through
+ * <code>NaturalInt</code>.
+ * <p>
+ * {@link NaturalMultiply} converts mid-sized schoolbook
+ * products and squares of <code>NaturalInt</code>s to this.
+ * {@link BigFloat} and {@link RationalFloat} built from
+ * <code>NaturalLong</code>s use it throughout.
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2019-10-17
+ */
+
+@SuppressWarnings("unchecked")
+public final class NaturalLong extends Natural {
+
+  //--------------------------------------------------------------
+  // fields
+  //--------------------------------------------------------------
+  /** This array is never modified, and has no leading zeros.
+   */
+
+  private final long[] _words;
+
+  public final int hiLong () { return _words.length; }
+
+  @Override
+  public final int hiBit () {
+    final int i = hiLong()-1;
+    if (0>i) { return 0; }
+    return (i<<6)+Long.SIZE-Long.numberOfLeadingZeros(_words[i]); }
+
+  @Override
+  public final int loBit () {
+    final int n = hiLong();
+    for (int i=0;i<n;i++) {
+      final long wi = _words[i];
+      if (0L!=wi) { return (i<<6)+Long.numberOfTrailingZeros(wi); } }
+    return 0; }
+
+  public final long longWord (final int i) {
+    //assert 0<=i : "Negative index: " + i;
+    if (hiLong()<=i) { return 0L; }
+    return _words[i]; }
+
+  @Override
+  public final boolean testBit (final int n) {
+    //assert 0<=n;
+    final int i = (n>>>6);
+    if (hiLong()<=i) { return false; }
+    return 0L!=(_words[i] & (1L<<n)); }
+
+  /** Return the <code>[i0,i1)</code> words as a new
+   * <code>NaturalLong</code> with <code>[0,i1-i0)</code> words.
+   */
+
+  private final NaturalLong longWords (final int i0,
+                                       final int i1) {
+    final int i2 = Math.min(i1,hiLong());
+    if ((0==i0) && (hiLong()==i2)) { return this; }
+    final int n = i2-i0;
+    if (0>=n) { return ZERO; }
+    final long[] vv = new long[n];
+    System.arraycopy(_words,i0,vv,0,n);
+    return unsafe(vv); }
+
+  @Override
+  public final NaturalLong setBit (final int i) {
+    //assert 0<=i;
+    final int j = (i>>>6);
+    final long[] vv = Arrays.copyOf(_words,Math.max(j+1,hiLong()));
+    vv[j] |= (1L<<i);
+    return new NaturalLong(vv); }
+
+  //--------------------------------------------------------------
+  // int words
+  //--------------------------------------------------------------
+
+  @Override
+  final int[] words () {
+    final int n = hiInt();
+    final int[] vv = new int[n];
+    for (int i=0;i<n;i++) { vv[i] = word(i); }
+    return vv; }
+
+  @Override
+  public final int hiInt () { return (hiBit()+31)>>>5; }
+
+  @Override
+  public final int word (final int i) {
+    //assert 0<=i : "Negative index: " + i;
+    final int j = (i>>>1);
+    if (hiLong()<=j) { return 0; }
+    return (int) (_words[j]>>>((i&1)<<5)); }
+
+  @Override
+  public final long uword (final int i) { return unsigned(word(i)); }
+
+  @Override
+  public final NaturalLong words (final int i0,
+                                  final int i1) {
+    return valueOf(naturalValue().words(i0,i1)); }
+
+  @Override
+  public final NaturalLong setWord (final int i,
+                                    final int w) {
+    //assert 0<=i;
+    final int j = (i>>>1);
+    final int s = ((i&1)<<5);
+    final long[] vv = Arrays.copyOf(_words,Math.max(j+1,hiLong()));
+    vv[j] = (vv[j] & (~(0xFFFFFFFFL<<s))) | (unsigned(w)<<s);
+    return unsafe(vv); }
+
+  //--------------------------------------------------------------
+
+  /** Singleton. */
+  public static final NaturalLong ZERO =
+    new NaturalLong(new long[0]);
+
+  @Override
+  public final boolean isZero () { return 0==hiLong(); }
+
+  @Override
+  public final NaturalLong zero () { return ZERO; }
+
+  //--------------------------------------------------------------
+  // carries
+  //--------------------------------------------------------------
+  /** Carry out of the high bit of <code>s=a+b+c</code>,
+   * for any carry in <code>c</code>.
+   */
+
+  private static final long carry (final long a,
+                                   final long b,
+                                   final long s) {
+    return ((a&b)|((a|b)&(~s)))>>>63; }
+
+  /** Borrow out of the high bit of <code>d=a-b-c</code>,
+   * for any borrow in <code>c</code>.
+   */
+
+  private static final long borrow (final long a,
+                                    final long b,
+                                    final long d) {
+    return (((~a)&b)|(((~a)|b)&d))>>>63; }
+
+  //--------------------------------------------------------------
+  // ordering
+  //--------------------------------------------------------------
+
+  @Override
+  public final int compareTo (final Natural u0) {
+    final NaturalLong u = valueOf(u0);
+    final int nt = hiLong();
+    final int nu = u.hiLong();
+    if (nt<nu) { return -1; }
+    if (nt>nu) { return 1; }
+    for (int i=nt-1;i>=0;i--) {
+      final int c = Long.compareUnsigned(_words[i],u._words[i]);
+      if (0!=c) { return c; } }
+    return 0; }
+
+  /** <code>0&lt;=u</code>. */
+
+  @Override
+  public final int compareTo (final long u) {
+    //assert 0L<=u;
+    if (1<hiLong()) { return 1; }
+    return Long.compareUnsigned(longWord(0),u); }
+
+  @Override
+  public final int compareTo (final long u,
+                              final int upShift) {
+    //assert 0L<=u;
+    //assert 0<=upShift;
+    return compareTo(valueOf(u).shiftUp(upShift)); }
+
+  //--------------------------------------------------------------
+  // additive monoid
+  //--------------------------------------------------------------
+
+  @Override
+  public final NaturalLong add (final Natural u0) {
+    final NaturalLong u = valueOf(u0);
+    final int nt = hiLong();
+    final int nu = u.hiLong();
+    if (nt<nu) { return u.add(this); }
+    if (0==nu) { return this; }
+    final long[] tt = _words;
+    final long[] uu = u._words;
+    final long[] vv = new long[nt];
+    long c = 0L;
+    int i=0;
+    for (;i<nu;i++) {
+      final long a = tt[i];
+      final long b = uu[i];
+      final long s = a+b+c;
+      c = carry(a,b,s);
+      vv[i] = s; }
+    for (;(0L!=c)&&(i<nt);i++) {
+      final long a = tt[i];
+      final long s = a+c;
+      c = carry(a,0L,s);
+      vv[i] = s; }
+    if (0L!=c) { return new NaturalLong(carried(vv)); }
+    System.arraycopy(tt,i,vv,i,nt-i);
+    return new NaturalLong(vv); }
+
+  /** <code>0&lt;=u</code>, treated as unsigned. */
+
+  @Override
+  public final NaturalLong add (final long u) {
+    if (0L==u) { return this; }
+    final int nt = hiLong();
+    if (0==nt) { return valueOf(u); }
+    final long[] vv = _words.clone();
+    long c = u;
+    for (int i=0;(0L!=c)&&(i<nt);i++) {
+      final long a = vv[i];
+      final long s = a+c;
+      c = carry(a,c,s);
+      vv[i] = s; }
+    if (0L!=c) { return new NaturalLong(carried(vv)); }
+    return new NaturalLong(vv); }
+
+  /** <code>add(u<<upShift)</code>, <code>u</code> treated as
+   * unsigned.
+   */
+
+  @Override
+  public final NaturalLong add (final long u,
+                                final int upShift) {
+    //assert 0<=upShift;
+    if (0L==u) { return this; }
+    final int iShift = (upShift>>>6);
+    final int bShift = (upShift&0x3F);
+    final long lo = (u<<bShift);
+    final long hi = ((0==bShift) ? 0L : (u>>>(64-bShift)));
+    final int nt = hiLong();
+    final long[] vv = Arrays.copyOf(_words,Math.max(nt,iShift+2));
+    int i = iShift;
+    long a = vv[i];
+    long s = a+lo;
+    long c = carry(a,lo,s);
+    vv[i++] = s;
+    a = vv[i];
+    s = a+hi+c;
+    c = carry(a,hi,s);
+    vv[i++] = s;
+    for (;(0L!=c)&&(i<nt);i++) {
+      a = vv[i];
+      s = a+c;
+      c = carry(a,0L,s);
+      vv[i] = s; }
+    if (0L!=c) { return new NaturalLong(carried(vv)); }
+    return unsafe(vv); }
+
+  @Override
+  public final NaturalLong add (final Natural u,
+                                final int upShift) {
+    //assert 0<=upShift;
+    if (u.isZero()) { return this; }
+    return add(valueOf(u).shiftUp(upShift)); }
+
+  /** Append a final carry of 1. */
+
+  private static final long[] carried (final long[] vv) {
+    final int n = vv.length;
+    final long[] vvv = new long[n+1];
+    System.arraycopy(vv,0,vvv,0,n);
+    vvv[n] = 1L;
+    return vvv; }
+
+  /** Assumes <code>u&lt;=this</code>. */
+
+  @Override
+  public final NaturalLong subtract (final Natural u0) {
+    //assert 0<=compareTo(u);
+    final NaturalLong u = valueOf(u0);
+    final int nt = hiLong();
+    final int nu = u.hiLong();
+    if (0==nu) { return this; }
+    final long[] tt = _words;
+    final long[] uu = u._words;
+    final long[] vv = new long[nt];
+    long c = 0L;
+    int i=0;
+    for (;i<nu;i++) {
+      final long a = tt[i];
+      final long b = uu[i];
+      final long d = a-b-c;
+      c = borrow(a,b,d);
+      vv[i] = d; }
+    for (;(0L!=c)&&(i<nt);i++) {
+      final long a = tt[i];
+      final long d = a-c;
+      c = borrow(a,0L,d);
+      vv[i] = d; }
+    //assert 0L==c;
+    System.arraycopy(tt,i,vv,i,nt-i);
+    return unsafe(vv); }
+
+  /** Assumes <code>u&lt;=this</code>, <code>u</code> treated
+   * as unsigned.
+   */
+
+  @Override
+  public final NaturalLong subtract (final long u) {
+    if (0L==u) { return this; }
+    final long[] vv = _words.clone();
+    final int nt = vv.length;
+    long c = u;
+    for (int i=0;(0L!=c)&&(i<nt);i++) {
+      final long a = vv[i];
+      final long d = a-c;
+      c = borrow(a,c,d);
+      vv[i] = d; }
+    //assert 0L==c;
+    return unsafe(vv); }
+
+  /** Assumes <code>u&lt;&lt;upShift&lt;=this</code>,
+   * <code>u</code> treated as unsigned.
+   */
+
+  @Override
+  public final NaturalLong subtract (final long u,
+                                     final int upShift) {
+    //assert 0<=upShift;
+    //assert 0<=compareTo(u,upShift);
+    if (0L==u) { return this; }
+    final int iShift = (upShift>>>6);
+    final int bShift = (upShift&0x3F);
+    final long lo = (u<<bShift);
+    final long hi = ((0==bShift) ? 0L : (u>>>(64-bShift)));
+    final long[] vv = _words.clone();
+    final int nt = vv.length;
+    int i = iShift;
+    long a = vv[i];
+    long d = a-lo;
+    long c = borrow(a,lo,d);
+    vv[i++] = d;
+    if (i<nt) { // else hi and the borrow must be 0
+      a = vv[i];
+      d = a-hi-c;
+      c = borrow(a,hi,d);
+      vv[i++] = d; }
+    for (;(0L!=c)&&(i<nt);i++) {
+      a = vv[i];
+      d = a-c;
+      c = borrow(a,0L,d);
+      vv[i] = d; }
+    //assert 0L==c;
+    return unsafe(vv); }
+
+  /** <code>u-this</code>, assumes <code>this&lt;=u</code>. */
+
+  @Override
+  public final NaturalLong subtractFrom (final long u) {
+    return valueOf(u).subtract(this); }
+
+  /** <code>(u<<upShift)-this</code>. */
+
+  @Override
+  public final NaturalLong subtractFrom (final long u,
+                                         final int upShift) {
+    return valueOf(u).shiftUp(upShift).subtract(this); }
+
+  @Override
+  public final NaturalLong absDiff (final Natural u0) {
+    final NaturalLong u = valueOf(u0);
+    final int c = compareTo(u);
+    if (c==0) { return ZERO; }
+    if (c<0) { return u.subtract(this); }
+    return subtract(u); }
+
+  //--------------------------------------------------------------
+  // multiplicative monoid
+  //--------------------------------------------------------------
+
+  static final NaturalLong ONE = new NaturalLong(new long[] {1L});
+
+  @Override
+  public final NaturalLong one () { return ONE; }
+
+  @Override
+  public final boolean isOne () {
+    return (1==hiLong()) && (1L==_words[0]); }
+
+  //--------------------------------------------------------------
+  // multiply
+  //--------------------------------------------------------------
+  // thresholds in 64 bit words, half those in NaturalMultiply
+
+  private static final int KARATSUBA_THRESHOLD = 40;
+  private static final int KARATSUBA_SQUARE_THRESHOLD = 64;
+
+  /** Add <code>tt*uu</code> to <code>vv</code>, which must be
+   * zero in <code>[nu,nt+nu)</code>, the usual schoolbook
+   * product, one row at a time.
+   */
+
+  private static final void multiplySimple (final long[] tt,
+                                            final int nt,
+                                            final long[] uu,
+                                            final int nu,
+                                            final long[] vv) {
+    for (int i=0;i<nt;i++) {
+      final long ti = tt[i];
+      if (0L==ti) { continue; }
+      long c = 0L;
+      int k = i;
+      for (int j=0;j<nu;j++,k++) {
+        final long uj = uu[j];
+        final long lo = ti*uj;
+        long hi = unsignedMultiplyHigh(ti,uj);
+        // hi*2^64+lo+vv[k]+c < 2^128, so hi doesn't overflow
+        final long vk = vv[k];
+        final long s0 = lo+vk;
+        hi += carry(lo,vk,s0);
+        final long s1 = s0+c;
+        hi += carry(s0,c,s1);
+        vv[k] = s1;
+        c = hi; }
+      vv[k] = c; } }
+
+  private static final NaturalLong
+  multiplyKaratsuba (final NaturalLong x,
+                     final NaturalLong y) {
+    final int half = (Math.max(x.hiLong(),y.hiLong())+1)>>>1;
+    final NaturalLong xl = x.longWords(0,half);
+    final NaturalLong xh = x.longWords(half,x.hiLong());
+    final NaturalLong yl = y.longWords(0,half);
+    final NaturalLong yh = y.longWords(half,y.hiLong());
+    final NaturalLong p1 = xh.multiply(yh);
+    final NaturalLong p2 = xl.multiply(yl);
+    final NaturalLong p3 = xh.add(xl).multiply(yh.add(yl));
+    return
+      p1.shiftUp(half<<7)
+      .add(p3.subtract(p1).subtract(p2).shiftUp(half<<6))
+      .add(p2); }
+
+  @Override
+  public final NaturalLong multiply (final Natural u0) {
+    final NaturalLong u = valueOf(u0);
+    if (isZero() || u.isZero()) { return ZERO; }
+    if (this==u) { return square(); }
+    final int nt = hiLong();
+    final int nu = u.hiLong();
+    if ((nt<KARATSUBA_THRESHOLD) || (nu<KARATSUBA_THRESHOLD)) {
+      final long[] vv = new long[nt+nu];
+      multiplySimple(_words,nt,u._words,nu,vv);
+      return unsafe(vv); }
+    return multiplyKaratsuba(this,u); }
+
+  /** <code>u</code> treated as unsigned. */
+
+  @Override
+  public final NaturalLong multiply (final long u) {
+    if ((0L==u) || isZero()) { return ZERO; }
+    if (1L==u) { return this; }
+    final int nt = hiLong();
+    final long[] tt = _words;
+    final long[] vv = new long[nt+1];
+    long c = 0L;
+    for (int i=0;i<nt;i++) {
+      final long ti = tt[i];
+      final long lo = ti*u;
+      final long s = lo+c;
+      c = unsignedMultiplyHigh(ti,u) + carry(lo,c,s);
+      vv[i] = s; }
+    vv[nt] = c;
+    return unsafe(vv); }
+
+  @Override
+  public final NaturalLong multiply (final long u,
+                                     final int upShift) {
+    return multiply(u).shiftUp(upShift); }
+
+  //--------------------------------------------------------------
+  // square
+  //--------------------------------------------------------------
+  /** Off diagonal products once, doubled by a shift, plus the
+   * diagonal; see {@link Natural#square()}.
+   */
+
+  private final NaturalLong squareSimple () {
+    final int nt = hiLong();
+    final long[] tt = _words;
+    final long[] vv = new long[2*nt];
+    // off diagonal
+    for (int i=0;i<nt;i++) {
+      final long ti = tt[i];
+      long c = 0L;
+      int k = 2*i+1;
+      for (int j=i+1;j<nt;j++,k++) {
+        final long tj = tt[j];
+        final long lo = ti*tj;
+        long hi = unsignedMultiplyHigh(ti,tj);
+        final long vk = vv[k];
+        final long s0 = lo+vk;
+        hi += carry(lo,vk,s0);
+        final long s1 = s0+c;
+        hi += carry(s0,c,s1);
+        vv[k] = s1;
+        c = hi; }
+      vv[i+nt] = c; }
+    // double
+    for (int k=2*nt-1;k>0;k--) { vv[k] = (vv[k]<<1)|(vv[k-1]>>>63); }
+    vv[0] <<= 1;
+    // diagonal
+    long c = 0L;
+    for (int i=0;i<nt;i++) {
+      final long ti = tt[i];
+      final long lo = ti*ti;
+      final long hi = unsignedMultiplyHigh(ti,ti);
+      final int k = 2*i;
+      final long a0 = vv[k];
+      final long s0 = a0+lo+c;
+      c = carry(a0,lo,s0);
+      vv[k] = s0;
+      final long a1 = vv[k+1];
+      final long s1 = a1+hi+c;
+      c = carry(a1,hi,s1);
+      vv[k+1] = s1; }
+    //assert 0L==c;
+    return unsafe(vv); }
+
+  private final NaturalLong squareKaratsuba () {
+    final int half = (hiLong()+1)>>>1;
+    final NaturalLong xl = longWords(0,half);
+    final NaturalLong xh = longWords(half,hiLong());
+    final NaturalLong p1 = xh.square();
+    final NaturalLong p2 = xl.square();
+    final NaturalLong p3 = xh.add(xl).square();
+    return
+      p1.shiftUp(half<<7)
+      .add(p3.subtract(p1).subtract(p2).shiftUp(half<<6))
+      .add(p2); }
+
+  @Override
+  public final NaturalLong square () {
+    if (isZero()) { return ZERO; }
+    if (isOne()) { return ONE; }
+    if (hiLong()<KARATSUBA_SQUARE_THRESHOLD) {
+      return squareSimple(); }
+    return squareKaratsuba(); }
+
+  //--------------------------------------------------------------
+  // divide, through NaturalInt
+  //--------------------------------------------------------------
+
+  private static final List<Natural> longs (final List<Natural> r) {
+    return List.of(valueOf(r.get(0)),valueOf(r.get(1))); }
+
+  @Override
+  public final List<Natural>
+  divideAndRemainderKnuth (final Natural u) {
+    return longs(
+      naturalValue().divideAndRemainderKnuth(NaturalInt.ints(u))); }
+
+  @Override
+  public final List<Natural>
+  divideAndRemainderBurnikelZiegler (final Natural u) {
+    return longs(
+      naturalValue().divideAndRemainderBurnikelZiegler(
+        NaturalInt.ints(u))); }
+
+  @Override
+  public final List<Natural>
+  divideAndRemainder (final Natural u) {
+    return longs(
+      naturalValue().divideAndRemainder(NaturalInt.ints(u))); }
+
+  @Override
+  public final NaturalLong gcd (final Natural u) {
+    return valueOf(naturalValue().gcd(NaturalInt.ints(u))); }
+
+  @Override
+  public final List<Natural> reduce (final Natural u) {
+    return longs(naturalValue().reduce(NaturalInt.ints(u))); }
+
+  @Override
+  public final List<Natural> sqrtAndRemainder () {
+    return longs(naturalValue().sqrtAndRemainder()); }
+
+  //--------------------------------------------------------------
+  // shifts
+  //--------------------------------------------------------------
+
+  @Override
+  public final int getShiftedInt (final int downShift) {
+    return (int) getShiftedLong(downShift); }
+
+  @Override
+  public final long getShiftedLong (final int downShift) {
+    //assert 0<=downShift;
+    final int iShift = (downShift>>>6);
+    final int bShift = (downShift&0x3F);
+    final long lo = (longWord(iShift)>>>bShift);
+    if (0==bShift) { return lo; }
+    return lo | (longWord(iShift+1)<<(64-bShift)); }
+
+  @Override
+  public final NaturalLong shiftDown (final int downShift) {
+    //assert 0<=downShift;
+    if (0==downShift) { return this; }
+    final int iShift = (downShift>>>6);
+    final int bShift = (downShift&0x3F);
+    final int nt = hiLong();
+    final int nv = nt-iShift;
+    if (0>=nv) { return ZERO; }
+    final long[] tt = _words;
+    final long[] vv = new long[nv];
+    if (0==bShift) {
+      System.arraycopy(tt,iShift,vv,0,nv);
+      return new NaturalLong(vv); }
+    final int rShift = 64-bShift;
+    for (int i=0,j=iShift;i<nv-1;i++,j++) {
+      vv[i] = (tt[j]>>>bShift)|(tt[j+1]<<rShift); }
+    vv[nv-1] = (tt[nt-1]>>>bShift);
+    return unsafe(vv); }
+
+  @Override
+  public final NaturalLong shiftUp (final int upShift) {
+    //assert 0<=upShift;
+    if ((0==upShift) || isZero()) { return this; }
+    final int iShift = (upShift>>>6);
+    final int bShift = (upShift&0x3F);
+    final int nt = hiLong();
+    final long[] tt = _words;
+    if (0==bShift) {
+      final long[] vv = new long[nt+iShift];
+      System.arraycopy(tt,0,vv,iShift,nt);
+      return new NaturalLong(vv); }
+    final int rShift = 64-bShift;
+    final long top = (tt[nt-1]>>>rShift);
+    final int nv = nt+iShift+((0L==top)?0:1);
+    final long[] vv = new long[nv];
+    vv[iShift] = (tt[0]<<bShift);
+    for (int i=1;i<nt;i++) {
+      vv[i+iShift] = (tt[i]<<bShift)|(tt[i-1]>>>rShift); }
+    if (0L!=top) { vv[nt+iShift] = top; }
+    return new NaturalLong(vv); }
+
+  /** Bit <code>e-1</code> set, and any lower bit, or bit
+   * <code>e</code>, set.
+   */
+
+  @Override
+  final boolean roundUp (final int e) {
+    return testBit(e-1) && (testBit(e) || (loBit()<(e-1))); }
+
+  //--------------------------------------------------------------
+  // 'Number' methods
+  //--------------------------------------------------------------
+
+  @Override
+  public final int intValue () {
+    //assert hiBit()<=32;
+    return (int) longWord(0); }
+
+  @Override
+  public final long longValue () {
+    //assert hiBit()<=64;
+    return longWord(0); }
+
+  /** Round the leading 64 bits, plus a sticky bit for the rest,
+   * to the nearest <code>float</code> (exactly representable as
+   * a <code>double</code>) or <code>double</code>, half-even.
+   */
+
+  private final double roundHalfEven (final boolean toFloat) {
+    final long[] tt = _words;
+    final int h = hiLong()-1;
+    final int s = Long.numberOfLeadingZeros(tt[h]);
+    long m = (tt[h]<<s);
+    boolean sticky = false;
+    if (0<h) {
+      final long t1 = tt[h-1];
+      if (0<s) {
+        m |= (t1>>>(64-s));
+        sticky = (0L!=(t1<<s)); }
+      else { sticky = (0L!=t1); }
+      for (int i=h-2;(i>=0)&&(!sticky);i--) {
+        sticky = (0L!=tt[i]); } }
+    final int e = (h<<6)-s;
+    if (toFloat) { return Floats.roundHalfEven(true,m,sticky,e); }
+    return Doubles.roundHalfEven(true,m,sticky,e); }
+
+  /** @return closest half-even rounded <code>double</code>
+   */
+
+  @Override
+  public final double doubleValue () {
+    if (isZero()) { return 0.0; }
+    return roundHalfEven(false); }
+
+  /** @return closest half-even rounded <code>float</code>
+   */
+
+  @Override
+  public final float floatValue () {
+    if (isZero()) { return 0.0F; }
+    return (float) roundHalfEven(true); }
+
+  @Override
+  public final BigInteger bigIntegerValue () {
+    final int n = hiLong();
+    // an extra zero byte to avoid getting a negative
+    // two's complement input to new BigInteger(b).
+    final int nb = 8*n;
+    final byte[] b = new byte[nb+1];
+    for (int i=0;i<n;i++) {
+      final long wi = _words[i];
+      for (int j=0;j<8;j++) {
+        b[nb-(8*i)-j] = (byte) (wi>>>(8*j)); } }
+    return new BigInteger(b); }
+
+  /** The same number, as 32 bit words. */
+
+  public final Natural naturalValue () {
+    return NaturalInt.ints(this); }
+
+  //--------------------------------------------------------------
+  // Object methods
+  //--------------------------------------------------------------
+
+  @Override
+  public final boolean equals (final Object x) {
+    if (x==this) { return true; }
+    if (!(x instanceof NaturalLong)) { return super.equals(x); }
+    final NaturalLong u = (NaturalLong) x;
+    final int nt = hiLong();
+    if (nt!=u.hiLong()) { return false; }
+    for (int i=0; i<nt; i++) {
+      if (_words[i]!=u._words[i]) { return false; } }
+    return true; }
+
+  @Override
+  public final String toHexString () {
+    final StringBuilder b = new StringBuilder("");
+    final int n = hiLong()-1;
+    if (0>n) { b.append('0'); }
+    else {
+      b.append(Long.toHexString(_words[n]));
+      for (int i=n-1;i>=0;i--) {
+        b.append(String.format("%016x",Long.valueOf(_words[i]))); } }
+    return b.toString(); }
+
+  //--------------------------------------------------------------
+  // construction
+  //--------------------------------------------------------------
+  /** UNSAFE: doesn't copy <code>words</code> or check for
+   * leading zeros.
+   */
+
+  private NaturalLong (final long[] words) { _words = words; }
+
+  /** Doesn't copy <code>words</code>, unless there are leading
+   * zeros to drop.
+   */
+
+  private static final NaturalLong unsafe (final long[] words) {
+    int n = words.length;
+    while ((0<n) && (0L==words[n-1])) { n--; }
+    if (n<words.length) {
+      if (0==n) { return ZERO; }
+      final long[] ww = new long[n];
+      System.arraycopy(words,0,ww,0,n);
+      return new NaturalLong(ww); }
+    return new NaturalLong(words); }
+
+  /** Copy <code>words</code>. */
+
+  public static final NaturalLong make (final long[] words) {
+    return unsafe(words.clone()); }
+
+  /** <code>u</code> treated as unsigned. */
+
+  public static final NaturalLong valueOf (final long u) {
+    if (0L==u) { return ZERO; }
+    return new NaturalLong(new long[] {u}); }
+
+  /** <code>u</code> itself, or its words, as a
+   * <code>NaturalLong</code>.
+   */
+
+  public static final NaturalLong valueOf (final Natural u) {
+    if (u instanceof NaturalLong) { return (NaturalLong) u; }
+    final int nu = u.hiInt();
+    final int[] uu = u.words();
+    final int n = (nu+1)>>>1;
+    final long[] vv = new long[n];
+    for (int i=0;i<nu;i++) {
+      vv[i>>>1] |= (unsigned(uu[i])<<((i&1)<<5)); }
+    return unsafe(vv); }
+
+  public static final NaturalLong valueOf (final BigInteger u) {
+    //assert 0<=u.signum();
+    final byte[] a = u.toByteArray();
+    final int nb = a.length;
+    final long[] vv = new long[(nb+7)>>>3];
+    for (int k=0;k<nb;k++) {
+      vv[k>>>3] |= ((a[nb-1-k] & 0xFFL)<<((k&7)<<3)); }
+    return unsafe(vv); }
+
+  public static final NaturalLong valueOf (final String s,
+                                           final int radix) {
+    return valueOf(Natural.valueOf(s,radix)); }
+
+  public static final NaturalLong valueOf (final String s) {
+    return valueOf(s,0x10); }
+
+  //--------------------------------------------------------------
+}
+//--------------------------------------------------------------
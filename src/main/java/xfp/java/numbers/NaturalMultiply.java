@@ -1,47 +1,120 @@
 package xfp.java.numbers;
 
 import static xfp.java.numbers.Numbers.loWord;
+import static xfp.java.numbers.Numbers.unsigned;
+
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 /** Multiplication of natural numbers.
+ * <p>
+ * Schoolbook, Karatsuba, Toom-Cook 3, and, for the largest
+ * operands, a number theoretic transform ({@link NaturalNTT}).
+ * Mid-sized schoolbook products and squares use 64 bit words
+ * ({@link NaturalLong}).
+ * <p>
+ * Karatsuba and Toom-Cook 3 products and squares of operands
+ * with at least {@link #PARALLEL_THRESHOLD} words fork their
+ * sub-products onto the common <code>ForkJoinPool</code>,
+ * like <code>BigInteger.parallelMultiply</code>.
+ * The result is the same whichever path is taken.
  * 
  * Non-instantiable.
  *
  * @author palisades dot lakes at gmail dot com
- * @version 2019-10-06
+ * @version 2019-10-17
  */
 
 @SuppressWarnings("unchecked")
 public final class NaturalMultiply {
 
+  //--------------------------------------------------------------
+  // parallel
+  //--------------------------------------------------------------
+  /** Default minimum size, in words, of the larger operand, for
+   * Karatsuba and Toom-Cook 3 to compute their sub-products in
+   * parallel.
+   */
+
+  public static final int PARALLEL_THRESHOLD = 480;
+
+  /** A product, or a square when <code>v</code> is
+   * <code>null</code>.
+   */
+
+  private static final class Product extends RecursiveTask<Natural> {
+
+    private static final long serialVersionUID = 0L;
+
+    private final Natural _u;
+    private final Natural _v;
+    private final int _threshold;
+
+    @Override
+    protected final Natural compute () {
+      if (null == _v) { return square(_u,_threshold); }
+      return multiply(_u,_v,_threshold); }
+
+    Product (final Natural u,
+             final Natural v,
+             final int threshold) {
+      _u = u;
+      _v = v;
+      _threshold = threshold; } }
+
+  private static final ForkJoinTask<Natural>
+  forkMultiply (final Natural u,
+                final Natural v,
+                final int threshold) {
+    return new Product(u,v,threshold).fork(); }
+
+  private static final ForkJoinTask<Natural>
+  forkSquare (final Natural u,
+              final int threshold) {
+    return new Product(u,null,threshold).fork(); }
+
   //--------------------------------------------------------------
   // square
   //--------------------------------------------------------------
 
   static final int KARATSUBA_SQUARE_THRESHOLD = 128;
   static final int TOOM_COOK_SQUARE_THRESHOLD = 216;
+  static final int NTT_SQUARE_THRESHOLD = 3072;
 
   //--------------------------------------------------------------
 
-  static final Natural squareKaratsuba (final Natural u) {
+  private static final Natural squareKaratsuba (final Natural u,
+                                               final int threshold) {
     final int n = u.hiInt();
     final int half = (n+1)/2;
     final Natural xl = u.words(0,half);
     final Natural xh = u.words(half,n);
-    final Natural xhs = xh.square();
-    final Natural xls = xl.square();
+    final Natural xlh = xl.add(xh);
+    final Natural xhs;
+    final Natural xls;
+    final Natural xlhs;
+    if (n >= threshold) {
+      final ForkJoinTask<Natural> fhs = forkSquare(xh,threshold);
+      final ForkJoinTask<Natural> fls = forkSquare(xl,threshold);
+      xlhs = square(xlh,threshold);
+      xhs = fhs.join();
+      xls = fls.join(); }
+    else {
+      xhs = square(xh,threshold);
+      xls = square(xl,threshold);
+      xlhs = square(xlh,threshold); }
     // (xh^2<<64) + (((xl+xh)^2-(xh^2+xl^2))<<32) + xl^2
     final int h32 = half*32;
     return 
       xhs.shiftUp(h32)
-      .add(
-        xl.add(xh).square()
-        .subtract(xhs.add(xls)))
+      .add(xlhs.subtract(xhs.add(xls)))
       .shiftUp(h32)
       .add(xls); }
 
   //--------------------------------------------------------------
 
-  static final Natural squareToomCook3 (final Natural u) {
+  private static final Natural squareToomCook3 (final Natural u,
+                                               final int threshold) {
     final int n = u.hiInt();
     // k is the size (in ints) of the lower-order slices.
     final int k = (n+2)/3;   // Equal to ceil(largest/3)
@@ -52,14 +125,32 @@ public final class NaturalMultiply {
     final Natural a2 = getToomSlice(u,k,r,0,n);
     final Natural a1 = getToomSlice(u,k,r,1,n);
     final Natural a0 = getToomSlice(u,k,r,2,n);
-    final Natural v0 = a0.square();
     final Natural da0 = a2.add(a0);
     // subtract here causes errors due to negative answer
-    final Natural vm1 = da0.absDiff(a1).square();
+    final Natural dm1 = da0.absDiff(a1);
     final Natural da1 = da0.add(a1);
-    final Natural v1 = da1.square();
-    final Natural vinf = a2.square();
-    final Natural v2 = da1.add(a2).shiftUp(1).subtract(a0).square();
+    final Natural da2 = da1.add(a2).shiftUp(1).subtract(a0);
+    final Natural v0;
+    final Natural vm1;
+    final Natural v1;
+    final Natural v2;
+    final Natural vinf;
+    if (n >= threshold) {
+      final ForkJoinTask<Natural> f0 = forkSquare(a0,threshold);
+      final ForkJoinTask<Natural> fm1 = forkSquare(dm1,threshold);
+      final ForkJoinTask<Natural> f1 = forkSquare(da1,threshold);
+      final ForkJoinTask<Natural> f2 = forkSquare(da2,threshold);
+      vinf = square(a2,threshold);
+      v0 = f0.join();
+      vm1 = fm1.join();
+      v1 = f1.join();
+      v2 = f2.join(); }
+    else {
+      v0 = square(a0,threshold);
+      vm1 = square(dm1,threshold);
+      v1 = square(da1,threshold);
+      v2 = square(da2,threshold);
+      vinf = square(a2,threshold); }
 
     // The algorithm requires two divisions by 2 and one by 3.
     // All divisions are known to be exact, that is, they do not
@@ -84,11 +175,38 @@ public final class NaturalMultiply {
       .add(tm1).shiftUp(k32)
       .add(v0); }
 
+  //--------------------------------------------------------------
+  /** Sub-products of operands with at least
+   * <code>threshold</code> words are computed in parallel.
+   */
+
+  public static final Natural square (final Natural u,
+                                      final int threshold) {
+    final int n = u.hiInt();
+    if (n < KARATSUBA_SQUARE_THRESHOLD) { return u.square(); }
+    if (n < TOOM_COOK_SQUARE_THRESHOLD) {
+      return squareKaratsuba(u,threshold); }
+    if (n >= NTT_SQUARE_THRESHOLD) { return NaturalNTT.square(u); }
+    // For a discussion of overflow detection see multiply()
+    return squareToomCook3(u,threshold); }
+
+  public static final Natural square (final Natural u) {
+    return square(u,PARALLEL_THRESHOLD); }
+
   //--------------------------------------------------------------
 
   private static final int MULTIPLY_SQUARE_THRESHOLD = 20;
+  /** Schoolbook products of operands with at least this many
+   * words go through {@link NaturalLong}, which needs a
+   * quarter as many word products, enough to pay for
+   * converting the operands and the result.
+   */
+  static final int LONG_THRESHOLD = 24;
+  /** Like {@link #LONG_THRESHOLD}, for squares. */
+  static final int LONG_SQUARE_THRESHOLD = 12;
   private static final int KARATSUBA_THRESHOLD = 80;
   private static final int TOOM_COOK_THRESHOLD = 240;
+  private static final int NTT_THRESHOLD = 4096;
 
   //--------------------------------------------------------------
 
@@ -96,34 +214,63 @@ public final class NaturalMultiply {
                                                final Natural v) {
     final int n0 = u.hiInt();
     final int n1 = v.hiInt();
-    Natural w = u.zero();
-    long carry = 0L;
+    final int[] uu = u.words();
+    final int[] vv = v.words();
+    final int[] ww = new int[n0+n1];
     for (int i0=0;i0<n0;i0++) {
-      carry = 0L;
+      final long ui = unsigned(uu[i0]);
+      long carry = 0L;
       for (int i1=0;i1<n1;i1++) {
         final int i2 = i0+i1;
         final long product =
-          (v.uword(i1)*u.uword(i0)) + w.uword(i2) + carry;
-        w = w.setWord(i2, (int) product);
+          (unsigned(vv[i1])*ui) + unsigned(ww[i2]) + carry;
+        ww[i2] = (int) product;
         carry = (product>>>32); }
-      final int i2 = i0+n1;
-      w = w.setWord(i2, (int) carry); }
-    return w; }
+      ww[i0+n1] = (int) carry; }
+    return Natural.unsafe(ww); }
+
+  /** Schoolbook on 64 bit words. */
+
+  private static final Natural multiplyLong (final Natural u,
+                                             final Natural v) {
+    return
+      NaturalLong.valueOf(u)
+      .multiply(NaturalLong.valueOf(v))
+      .naturalValue(); }
+
+  /** Schoolbook on 64 bit words. */
+
+  static final Natural squareLong (final Natural u) {
+    return NaturalLong.valueOf(u).square().naturalValue(); }
 
   //--------------------------------------------------------------
 
   private static final Natural multiplyKaratsuba (final Natural u,
-                                                  final Natural v) {
+                                                  final Natural v,
+                                                  final int threshold) {
     final int n0 = u.hiInt();
     final int n1 = v.hiInt();
-    final int half = (Math.max(n0,n1)+1) / 2;
+    final int largest = Math.max(n0,n1);
+    final int half = (largest+1) / 2;
     final Natural xl = u.words(0,half);
     final Natural xh = u.words(half,u.hiInt());
     final Natural yl = v.words(0,half);
     final Natural yh = v.words(half,v.hiInt());
-    final Natural p1 = xh.multiply(yh);
-    final Natural p2 = xl.multiply(yl);
-    final Natural p3 = xh.add(xl).multiply(yh.add(yl));
+    final Natural xhl = xh.add(xl);
+    final Natural yhl = yh.add(yl);
+    final Natural p1;
+    final Natural p2;
+    final Natural p3;
+    if (largest >= threshold) {
+      final ForkJoinTask<Natural> f1 = forkMultiply(xh,yh,threshold);
+      final ForkJoinTask<Natural> f2 = forkMultiply(xl,yl,threshold);
+      p3 = multiply(xhl,yhl,threshold);
+      p1 = f1.join();
+      p2 = f2.join(); }
+    else {
+      p1 = multiply(xh,yh,threshold);
+      p2 = multiply(xl,yl,threshold);
+      p3 = multiply(xhl,yhl,threshold); }
     final int h32 = half*32;
     final Natural p4 = p1.shiftUp(h32);
     final Natural p5 =
@@ -182,7 +329,8 @@ public final class NaturalMultiply {
   //--------------------------------------------------------------
 
   private static final Natural multiplyToomCook3 (final Natural u,
-                                                  final Natural v) {
+                                                  final Natural v,
+                                                  final int threshold) {
     final int n0 = u.hiInt();
     final int n1 = v.hiInt();
     final int largest = Math.max(n0,n1);
@@ -200,7 +348,6 @@ public final class NaturalMultiply {
     final Natural b2 = getToomSlice(v,k,r,0,largest);
     final Natural b1 = getToomSlice(v,k,r,1,largest);
     final Natural b0 = getToomSlice(v,k,r,2,largest);
-    final Natural v0 = a0.multiply(b0);
     Natural da1 = a2.add(a0);
     Natural db1 = b2.add(b0);
 
@@ -215,17 +362,34 @@ public final class NaturalMultiply {
     if (0 < cb) { db1_b1 = db1.subtract(b1); }
     else { db1_b1 = b1.subtract(db1); }
     final int cv = ca * cb;
-    final Natural vm1 = da1_a1.multiply(db1_b1);
 
     da1 = da1.add(a1);
     db1 = db1.add(b1);
-    final Natural v1 = da1.multiply(db1);
-    final Natural v2 =
-      da1.add(a2).shiftUp(1).subtract(a0)
-      .multiply(
-        db1.add(b2).shiftUp(1).subtract(b0));
-
-    final Natural vinf = a2.multiply(b2);
+    final Natural da2 = da1.add(a2).shiftUp(1).subtract(a0);
+    final Natural db2 = db1.add(b2).shiftUp(1).subtract(b0);
+
+    final Natural v0;
+    final Natural vm1;
+    final Natural v1;
+    final Natural v2;
+    final Natural vinf;
+    if (largest >= threshold) {
+      final ForkJoinTask<Natural> f0 = forkMultiply(a0,b0,threshold);
+      final ForkJoinTask<Natural> fm1 =
+        forkMultiply(da1_a1,db1_b1,threshold);
+      final ForkJoinTask<Natural> f1 = forkMultiply(da1,db1,threshold);
+      final ForkJoinTask<Natural> f2 = forkMultiply(da2,db2,threshold);
+      vinf = multiply(a2,b2,threshold);
+      v0 = f0.join();
+      vm1 = fm1.join();
+      v1 = f1.join();
+      v2 = f2.join(); }
+    else {
+      v0 = multiply(a0,b0,threshold);
+      vm1 = multiply(da1_a1,db1_b1,threshold);
+      v1 = multiply(da1,db1,threshold);
+      v2 = multiply(da2,db2,threshold);
+      vinf = multiply(a2,b2,threshold); }
 
     // The algorithm requires two divisions by 2 and one by 3.
     // All divisions are known to be exact, that is, they do not
@@ -263,20 +427,33 @@ public final class NaturalMultiply {
 
   //--------------------------------------------------------------
 
+  /** Sub-products of operands with at least
+   * <code>threshold</code> words are computed in parallel.
+   */
+
   public static final Natural multiply (final Natural u,
-                                        final Natural v) {
+                                        final Natural v,
+                                        final int threshold) {
     if ((u.isZero()) || (v.isZero())) { return u.zero(); }
     final int n0 = u.hiInt();
     if (u.equals(v) && (n0>MULTIPLY_SQUARE_THRESHOLD)) {
-      return u.square(); }
+      return square(u,threshold); }
     if (n0==1) { return v.multiply(u.uword(0)); }
     final int n1 = v.hiInt();
     if (n1==1) { return u.multiply(v.uword(0)); }
     if ((n0<KARATSUBA_THRESHOLD) || (n1<KARATSUBA_THRESHOLD)) {
+      if ((n0>=LONG_THRESHOLD) && (n1>=LONG_THRESHOLD)) {
+        return multiplyLong(u,v); }
       return multiplySimple(u,v); }
     if ((n0<TOOM_COOK_THRESHOLD) && (n1<TOOM_COOK_THRESHOLD)) {
-      return multiplyKaratsuba(u,v); }
-    return multiplyToomCook3(u,v); }
+      return multiplyKaratsuba(u,v,threshold); }
+    if ((n0>=NTT_THRESHOLD) && (n1>=NTT_THRESHOLD)) {
+      return NaturalNTT.multiply(u,v); }
+    return multiplyToomCook3(u,v,threshold); }
+
+  public static final Natural multiply (final Natural u,
+                                        final Natural v) {
+    return multiply(u,v,PARALLEL_THRESHOLD); }
 
 //  public static final Natural multiply (final Natural t,
 //                                        final long u) {
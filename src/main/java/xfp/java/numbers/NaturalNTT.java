@@ -0,0 +1,218 @@
+package xfp.java.numbers;
+
+import static xfp.java.numbers.Numbers.unsignedMultiplyHigh;
+
+/** Multiplication of very large natural numbers by a
+ * number theoretic transform (NTT), an FFT in the integers
+ * modulo the prime
+ * <code>p = 2<sup>64</sup> - 2<sup>32</sup> + 1</code>,
+ * in <code>O(n log(n))</code> word operations.
+ * <p>
+ * The operands are split into 16 bit digits, so every
+ * coefficient of the exact convolution is less than
+ * <code>n 2<sup>32</sup></code>, which is less than
+ * <code>p</code> for any operands that fit in memory,
+ * and a single prime suffices, with no Chinese remaindering.
+ * <code>p</code> has <code>2<sup>32</sup></code>-th roots of
+ * unity, and products reduce modulo <code>p</code> with shifts
+ * and adds, since
+ * <code>2<sup>64</sup> &equiv; 2<sup>32</sup> - 1</code>.
+ * <p>
+ * Non-instantiable.
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2019-10-17
+ */
+
+public final class NaturalNTT {
+
+  //--------------------------------------------------------------
+  // arithmetic modulo P
+  //--------------------------------------------------------------
+
+  private static final long P = 0xFFFFFFFF00000001L;
+
+  /** <code>2<sup>64</sup> mod P</code>. */
+  private static final long EPSILON = 0xFFFFFFFFL;
+
+  /** Generates the multiplicative group mod P. */
+  private static final long GENERATOR = 7L;
+
+  private static final long add (final long a,
+                                 final long b) {
+    long s = a+b;
+    // 2^64 = EPSILON mod P
+    if (Long.compareUnsigned(s,a) < 0) { s += EPSILON; }
+    if (Long.compareUnsigned(s,P) >= 0) { s -= P; }
+    return s; }
+
+  private static final long subtract (final long a,
+                                      final long b) {
+    final long d = a-b;
+    if (Long.compareUnsigned(a,b) < 0) { return d-EPSILON; }
+    return d; }
+
+  /** <code>hi 2<sup>64</sup> + lo mod P</code>, using
+   * <code>2<sup>96</sup> &equiv; -1</code> and
+   * <code>2<sup>64</sup> &equiv; 2<sup>32</sup> - 1</code>.
+   */
+
+  private static final long reduce (final long hi,
+                                    final long lo) {
+    final long hh = (hi>>>32);
+    final long hl = (hi&EPSILON);
+    long t0 = lo-hh;
+    if (Long.compareUnsigned(lo,hh) < 0) { t0 -= EPSILON; }
+    final long t1 = hl*EPSILON;
+    long t2 = t0+t1;
+    if (Long.compareUnsigned(t2,t1) < 0) { t2 += EPSILON; }
+    if (Long.compareUnsigned(t2,P) >= 0) { t2 -= P; }
+    return t2; }
+
+  private static final long multiply (final long a,
+                                      final long b) {
+    return reduce(unsignedMultiplyHigh(a,b),a*b); }
+
+  private static final long pow (final long a,
+                                 final long e) {
+    long r = 1L;
+    long b = a;
+    for (long k=e;0L!=k;k>>>=1) {
+      if (0L!=(k&1L)) { r = multiply(r,b); }
+      b = multiply(b,b); }
+    return r; }
+
+  //--------------------------------------------------------------
+  // transform
+  //--------------------------------------------------------------
+
+  /** Powers <code>w<sup>j</sup></code>, <code>j &lt; n/2</code>,
+   * of a primitive <code>n</code>-th root of unity,
+   * or of its inverse.
+   */
+
+  private static final long[] twiddles (final int n,
+                                        final boolean inverse) {
+    final long w0 = pow(GENERATOR,Long.divideUnsigned(P-1L,n));
+    final long w = inverse ? pow(w0,P-2L) : w0;
+    final int h = Math.max(1,n>>>1);
+    final long[] tw = new long[h];
+    tw[0] = 1L;
+    for (int j=1;j<h;j++) { tw[j] = multiply(tw[j-1],w); }
+    return tw; }
+
+  /** In place, iterative, radix 2, decimation in time.
+   * <code>a.length</code> must be a power of 2.
+   */
+
+  private static final void transform (final long[] a,
+                                       final long[] tw) {
+    final int n = a.length;
+    // bit reversal permutation
+    for (int i=1,j=0;i<n;i++) {
+      int bit = n>>>1;
+      for (;0!=(j&bit);bit>>>=1) { j ^= bit; }
+      j ^= bit;
+      if (i<j) { final long t = a[i]; a[i] = a[j]; a[j] = t; } }
+    for (int len=2;len<=n;len<<=1) {
+      final int half = len>>>1;
+      final int step = n/len;
+      for (int i=0;i<n;i+=len) {
+        for (int j=0,k=0;j<half;j++,k+=step) {
+          final int i0 = i+j;
+          final int i1 = i0+half;
+          final long u = a[i0];
+          final long v = multiply(a[i1],tw[k]);
+          a[i0] = add(u,v);
+          a[i1] = subtract(u,v); } } } }
+
+  //--------------------------------------------------------------
+  // digits
+  //--------------------------------------------------------------
+
+  /** 16 bit digits of <code>u</code>, zero padded to
+   * <code>n</code>.
+   */
+
+  private static final long[] digits (final Natural u,
+                                      final int n) {
+    final int nu = u.hiInt();
+    final int[] uu = u.words();
+    final long[] a = new long[n];
+    for (int i=0;i<nu;i++) {
+      final int w = uu[i];
+      a[2*i] = (w&0xFFFF);
+      a[(2*i)+1] = (w>>>16); }
+    return a; }
+
+  /** Propagate carries through the convolution, whose
+   * coefficients are less than <code>2<sup>62</sup></code>,
+   * and pack pairs of digits into words.
+   */
+
+  private static final Natural fromDigits (final long[] c,
+                                           final int nw) {
+    final int[] vv = new int[nw];
+    long carry = 0L;
+    final int nd = Math.min(c.length,2*nw);
+    int k = 0;
+    for (;k<nd;k+=2) {
+      final long t0 = c[k]+carry;
+      final long t1 = ((k+1)<nd ? c[k+1] : 0L)+(t0>>>16);
+      vv[k>>>1] = (int) ((t0&0xFFFFL)|((t1&0xFFFFL)<<16));
+      carry = (t1>>>16); }
+    //assert 0L==carry;
+    return Natural.unsafe(vv); }
+
+  private static final int transformSize (final int ndigits) {
+    return Integer.highestOneBit(Math.max(1,ndigits-1))<<1; }
+
+  //--------------------------------------------------------------
+  // multiply
+  //--------------------------------------------------------------
+
+  public static final Natural multiply (final Natural u,
+                                        final Natural v) {
+    if (u.isZero() || v.isZero()) { return Natural.ZERO; }
+    final int nu = u.hiInt();
+    final int nv = v.hiInt();
+    // the convolution has 2*(nu+nv)-1 digits
+    final int n = transformSize(2*(nu+nv));
+    final long[] a = digits(u,n);
+    final long[] b = digits(v,n);
+    final long[] tw = twiddles(n,false);
+    transform(a,tw);
+    transform(b,tw);
+    for (int i=0;i<n;i++) { a[i] = multiply(a[i],b[i]); }
+    return inverse(a,n,nu+nv); }
+
+  public static final Natural square (final Natural u) {
+    if (u.isZero()) { return Natural.ZERO; }
+    final int nu = u.hiInt();
+    final int n = transformSize(4*nu);
+    final long[] a = digits(u,n);
+    transform(a,twiddles(n,false));
+    for (int i=0;i<n;i++) { a[i] = multiply(a[i],a[i]); }
+    return inverse(a,n,2*nu); }
+
+  private static final Natural inverse (final long[] a,
+                                        final int n,
+                                        final int nw) {
+    transform(a,twiddles(n,true));
+    // 1/n = -(P-1)/n mod P
+    final long nInverse = P - Long.divideUnsigned(P-1L,n);
+    for (int i=0;i<n;i++) { a[i] = multiply(a[i],nInverse); }
+    return fromDigits(a,nw); }
+
+  //--------------------------------------------------------------
+  // disable constructor
+  //--------------------------------------------------------------
+
+  private NaturalNTT () {
+    throw new
+    UnsupportedOperationException(
+      "can't instantiate " + getClass().getCanonicalName()); }
+
+  //--------------------------------------------------------------
+}
+//--------------------------------------------------------------
@@ -0,0 +1,156 @@
+package xfp.java.numbers;
+
+import java.util.Arrays;
+import java.util.List;
+
+/** Integer square roots of natural numbers.
+ * <p>
+ * Numbers of at most 2 words use <code>long</code> arithmetic;
+ * up to {@link #KARATSUBA_SQRT_THRESHOLD} words, Newton's
+ * method, starting from a <code>double</code> estimate;
+ * larger numbers, Zimmermann's Karatsuba square root, which
+ * costs a small multiple of a multiplication of the same size.
+ * <p>
+ * See Paul Zimmermann, <em>Karatsuba Square Root</em>,
+ * INRIA RR-3805, 1999, and Brent and Zimmermann,
+ * <em>Modern Computer Arithmetic</em>, algorithm 1.12.
+ * <p>
+ * Non-instantiable.
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2019-10-17
+ */
+
+public final class NaturalSqrt {
+
+  /** Numbers with at least this many words use the Karatsuba
+   * square root; smaller ones, Newton's method.
+   */
+  static final int KARATSUBA_SQRT_THRESHOLD = 8;
+
+  //--------------------------------------------------------------
+  // long
+  //--------------------------------------------------------------
+  /** <code>floor(sqrt(u))</code>, <code>u</code> unsigned. */
+
+  private static final long sqrt (final long u) {
+    final double du =
+      (0L <= u) ? u : (2.0*((u>>>1)|(u&1L)));
+    long s = Math.min(0xFFFFFFFFL,(long) Math.sqrt(du));
+    while (0 < Long.compareUnsigned(s*s,u)) { s--; }
+    while ((0xFFFFFFFFL > s)
+      && (0 >= Long.compareUnsigned((s+1L)*(s+1L),u))) { s++; }
+    return s; }
+
+  private static final List<Natural>
+  sqrtAndRemainderLong (final Natural u) {
+    final long uu = u.longValue();
+    final long s = sqrt(uu);
+    return List.of(Natural.valueOf(s),Natural.valueOf(uu-(s*s))); }
+
+  //--------------------------------------------------------------
+  // Newton
+  //--------------------------------------------------------------
+  /** Starts from a root of the leading 61 or 62 bits, rounded
+   * up, so the iterates decrease monotonically to the floor of
+   * the root.
+   */
+
+  private static final List<Natural>
+  sqrtAndRemainderNewton (final Natural u) {
+    final int n = u.hiBit();
+    final int shift = (n - 62) + ((n - 62) & 1);
+    final long t = u.shiftDown(shift).longValue();
+    Natural x =
+      Natural.valueOf(((long) Math.sqrt(t)) + 2L).shiftUp(shift>>>1);
+    for (;;) {
+      final Natural y = x.add(u.divide(x)).shiftDown(1);
+      if (0 <= y.compareTo(x)) { break; }
+      x = y; }
+    return List.of(x,u.subtract(x.square())); }
+
+  //--------------------------------------------------------------
+  // Karatsuba
+  //--------------------------------------------------------------
+  /** Words <code>[i0,i1)</code> of <code>u</code>, compacted.
+   */
+  private static final Natural slice (final Natural u,
+                                      final int i0,
+                                      final int i1) {
+    final int[] uu = u.words();
+    final int end = Math.min(i1,uu.length);
+    if (end <= i0) { return Natural.ZERO; }
+    return Natural.unsafe(Arrays.copyOfRange(uu,i0,end)); }
+
+  /** <code>u</code> has an even number of words, and one of the
+   * top 2 bits of the leading word is set.
+   */
+  private static final List<Natural>
+  sqrtAndRemainderNormalized (final Natural u,
+                              final int threshold) {
+    final int n = u.hiInt();
+    //assert 0 == (n & 1);
+    if (2 >= n) { return sqrtAndRemainderLong(u); }
+    if (n < threshold) { return sqrtAndRemainderNewton(u); }
+    final int m = n >>> 1;
+    final int l = m >>> 1;
+    final int l32 = l << 5;
+    // u = uh*B^(2l) + u1*B^l + u0, uh normalized
+    final List<Natural> sr =
+      sqrtAndRemainderNormalized(slice(u,2*l,n),threshold);
+    final Natural s1 = sr.get(0);
+    final List<Natural> qr =
+      sr.get(1).shiftUp(l32).add(slice(u,l,2*l))
+      .divideAndRemainder(s1.shiftUp(1));
+    final Natural q = qr.get(0);
+    final Natural s = s1.shiftUp(l32).add(q);
+    final Natural t = qr.get(1).shiftUp(l32).add(slice(u,0,l));
+    final Natural q2 = q.square();
+    if (0 <= t.compareTo(q2)) { return List.of(s,t.subtract(q2)); }
+    // at most one correction
+    // (s-1)^2 = s^2 - 2s + 1
+    return List.of(
+      s.subtract(1L),
+      t.add(s.shiftUp(1)).subtract(q2).subtract(1L)); }
+
+  //--------------------------------------------------------------
+  /** <code>{ s, r }</code>, with
+   * <code>s = floor(sqrt(u))</code>,
+   * <code>r = u - s<sup>2</sup></code>.
+   * <p>
+   * Karatsuba square root for numbers of at least
+   * <code>threshold</code> words.
+   * The result is the same whichever path is taken.
+   */
+  public static final List<Natural>
+  sqrtAndRemainder (final Natural u,
+                    final int threshold) {
+    if (u.isZero()) { return List.of(Natural.ZERO,Natural.ZERO); }
+    if (2 >= u.hiInt()) { return sqrtAndRemainderLong(u); }
+    final int t = Math.max(4,threshold);
+    if (u.hiInt() < t) { return sqrtAndRemainderNewton(u); }
+    // shift up by 2c bits, to an even number of words, with one
+    // of the 2 leading bits set
+    final int b = u.hiBit();
+    final int c = ((((b+63) >>> 6) << 6) - b) >>> 1;
+    if (0 == c) { return sqrtAndRemainderNormalized(u,t); }
+    final Natural s =
+      sqrtAndRemainderNormalized(u.shiftUp(2*c),t).get(0).shiftDown(c);
+    return List.of(s,u.subtract(s.square())); }
+
+  public static final List<Natural>
+  sqrtAndRemainder (final Natural u) {
+    return sqrtAndRemainder(u,KARATSUBA_SQRT_THRESHOLD); }
+
+  //--------------------------------------------------------------
+  // disable constructor
+  //--------------------------------------------------------------
+
+  private NaturalSqrt () {
+    throw new
+    UnsupportedOperationException(
+      "can't instantiate " + getClass().getCanonicalName()); }
+
+  //--------------------------------------------------------------
+}
+//--------------------------------------------------------------
@@ -35,6 +35,17 @@ public final class Numbers implements Set {
   public static final long hiWord (final long i) {
     return i >>> 32; }
 
+  /** High 64 bits of the unsigned 128 bit product of
+   * <code>a</code> and <code>b</code>, treated as unsigned.
+   * <p>
+   * Same as <code>Math.unsignedMultiplyHigh</code>, which isn't
+   * available before Java 18: corrects the signed
+   * {@link Math#multiplyHigh(long,long)} for negative inputs.
+   */
+  public static final long unsignedMultiplyHigh (final long a,
+                                                 final long b) {
+    return Math.multiplyHigh(a,b) + ((a>>63)&b) + ((b>>63)&a); }
+
   //--------------------------------------------------------------
   /** Like {@link Arrays#toString(double[])}. */
 
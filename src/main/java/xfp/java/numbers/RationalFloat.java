@@ -3,6 +3,8 @@ package xfp.java.numbers;
 import static xfp.java.numbers.Numbers.hiBit;
 
 import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Objects;
 
@@ -17,7 +19,7 @@ import xfp.java.exceptions.Exceptions;
  * arithmetic on them faster.
  *
  * @author palisades dot lakes at gmail dot com
- * @version 2019-10-12
+ * @version 2019-10-17
  */
 
 @SuppressWarnings("unchecked")
@@ -93,7 +95,8 @@ implements Ringlike<RationalFloat> {
       if (0>c01) { return valueOf(p1,t1.subtract(t0s),e1); }
       // t0s > t1
       if (0<c01) { return valueOf(p0,t0s.subtract(t1),e1); }
-      return ZERO; }
+      // zero in the numerators' representation
+      return valueOf(true,t0s.subtract(t1),0); }
     // same signs
     if (0<de) { return valueOf(p0,t1.add(t0,de),e1);}
     return valueOf(p0,t0.add(t1),e1); }
@@ -286,7 +289,7 @@ implements Ringlike<RationalFloat> {
     if (0<c) { return valueOf(p0,t0.subtract(t1),e); }
     // t1>t0
     if (0>c) { return valueOf(p1,t0.subtractFrom(t1),e); }
-    return ZERO; }
+    return valueOf(true,t0.zero(),0); }
 
   //--------------------------------------------------------------
   /** both denominators 1.
@@ -306,7 +309,7 @@ implements Ringlike<RationalFloat> {
     final int c = t0.compareTo(t1,upShift);
     if (0<c) { return valueOf(p0,t0.subtract(t1,upShift),e); }
     if (0>c) { return valueOf(p1,t0.subtractFrom(t1,upShift),e); }
-    return ZERO; }
+    return valueOf(true,t0.zero(),0); }
 
   //--------------------------------------------------------------
 
@@ -448,7 +451,7 @@ implements Ringlike<RationalFloat> {
 
   @Override
   public final RationalFloat square () {
-    if (isZero() ) { return ZERO; }
+    if (isZero() ) { return valueOf(true,numerator(),0); }
     if (isOne()) { return this; }
     return multiply(
       nonNegative(),numerator(),denominator(),exponent()); }
@@ -485,7 +488,7 @@ implements Ringlike<RationalFloat> {
 
   public final RationalFloat addProduct (final double z0,
                                          final double z1) {
-    if (Natural.ONE.equals(denominator())) {
+    if (denominator().isOne()) {
       final BigFloat sum =
         BigFloat.valueOf(
           nonNegative(),
@@ -686,11 +689,110 @@ implements Ringlike<RationalFloat> {
   //    final BigInteger x = nd.bigIntegerValue();
   //    return (nonNegative() ? x : x.negate()); }
 
+  //--------------------------------------------------------------
+  // rounding from the leading words
+  //--------------------------------------------------------------
+  /** Bits of the denominator used by {@link #leadingQuotient}.
+   */
+  private static final int LEADING_DENOMINATOR_BITS = 96;
+
+  /** Bits in the leading quotient, less one: the quotient of a
+   * <code>LEADING_DENOMINATOR_BITS+LEADING_QUOTIENT_BITS</code>
+   * bit numerator by a <code>LEADING_DENOMINATOR_BITS</code>
+   * bit denominator has 62 or 63 bits, so it fits in a
+   * non-negative <code>long</code>.
+   */
+  private static final int LEADING_QUOTIENT_BITS = 62;
+
+  /** Floor of the ratio of the leading
+   * <code>LEADING_DENOMINATOR_BITS+LEADING_QUOTIENT_BITS</code>
+   * bits of <code>n</code> and the leading
+   * <code>LEADING_DENOMINATOR_BITS</code> bits of
+   * <code>d</code>, with the shorter operands padded with zeros.
+   * <p>
+   * With <code>e = n.hiBit() - d.hiBit() -
+   * LEADING_QUOTIENT_BITS</code>, the exact
+   * <code>n / d = Q 2<sup>e</sup></code>, for some
+   * <code>q-1 &lt; Q &lt; q+1</code>: the truncated bits of
+   * the numerator add less than <code>1/dt</code> and those of
+   * the denominator subtract less than
+   * <code>nt/dt<sup>2</sup></code>, both much less than 1.
+   */
+
+  private static final long leadingQuotient (final Natural n,
+                                             final Natural d) {
+    final int sn =
+      n.hiBit() - LEADING_DENOMINATOR_BITS - LEADING_QUOTIENT_BITS;
+    final int sd = d.hiBit() - LEADING_DENOMINATOR_BITS;
+    final Natural nt = (sn >= 0) ? n.shiftDown(sn) : n.shiftUp(-sn);
+    final Natural dt = (sd >= 0) ? d.shiftDown(sd) : d.shiftUp(-sd);
+    return nt.divide(dt).longValue(); }
+
+  /** Half-even rounding of <code>n / d 2<sup>e</sup></code>
+   * from {@link #leadingQuotient}, without dividing the full
+   * operands.
+   * @return {@link Double#NaN} when the exact value may be too
+   * close to a tie to decide from the leading quotient.
+   */
+
+  private static final double leadingDoubleValue (final boolean p,
+                                                  final Natural n,
+                                                  final Natural d,
+                                                  final int e) {
+    final long q = leadingQuotient(n,d);
+    final int eq = e + n.hiBit() - d.hiBit() - LEADING_QUOTIENT_BITS;
+    // low bits of q that don't fit in the (possibly subnormal)
+    // significand
+    final int hq = hiBit(q);
+    final long drop =
+      Math.max(hq - Doubles.SIGNIFICAND_BITS,
+        ((long) Doubles.MINIMUM_SUBNORMAL_EXPONENT) - eq);
+    // Q < q+1 <= half the smallest subnormal
+    if (drop > hq) { return (p ? 0.0 : -0.0); }
+    final int k = (int) drop;
+    final long half = 1L << (k-1);
+    final long low = q & ((1L << k) - 1L);
+    // Q in (q-1,q+1) might be on either side of a tie
+    if (Math.abs(low-half) <= 1L) { return Double.NaN; }
+    final long m = (q >>> k) + ((low > half) ? 1L : 0L);
+    // m <= 2^53, so exact, unless overflow to infinity
+    final double z = Math.scalb((double) m,eq+k);
+    return (p ? z : -z); }
+
+  /** Half-even rounding of <code>n / d 2<sup>e</sup></code>
+   * from {@link #leadingQuotient}, without dividing the full
+   * operands.
+   * @return {@link Float#NaN} when the exact value may be too
+   * close to a tie to decide from the leading quotient.
+   */
+
+  private static final float leadingFloatValue (final boolean p,
+                                                final Natural n,
+                                                final Natural d,
+                                                final int e) {
+    final long q = leadingQuotient(n,d);
+    final int eq = e + n.hiBit() - d.hiBit() - LEADING_QUOTIENT_BITS;
+    final int hq = hiBit(q);
+    final long drop =
+      Math.max(hq - Floats.SIGNIFICAND_BITS,
+        ((long) Floats.MINIMUM_SUBNORMAL_EXPONENT) - eq);
+    if (drop > hq) { return (p ? 0.0F : -0.0F); }
+    final int k = (int) drop;
+    final long half = 1L << (k-1);
+    final long low = q & ((1L << k) - 1L);
+    if (Math.abs(low-half) <= 1L) { return Float.NaN; }
+    final long m = (q >>> k) + ((low > half) ? 1L : 0L);
+    // m <= 2^24, so exact, unless overflow to infinity
+    final float z = Math.scalb((float) m,eq+k);
+    return (p ? z : -z); }
+
   //--------------------------------------------------------------
   /** Half-even rounding from {@link Natural} ratio to
    * <code>float</code>.
-   * @param n numerator
-   * @param d positive denominator
+   * <p>
+   * Rounds from the leading words of numerator and
+   * denominator, falling back to exact division only when that
+   * can't decide a near tie.
    * @return closest half-even rounded <code>float</code> to n / d.
    */
 
@@ -703,6 +805,14 @@ implements Ringlike<RationalFloat> {
 
     if (d0.isOne()) { return BigFloat.floatValue(p0,n0,e0); }
     if (n0.isZero()) { return (p0 ? 0.0F : -0.0F); }
+    final float z = leadingFloatValue(p0,n0,d0,e0);
+    if (! Float.isNaN(z)) { return z; }
+    return exactFloatValue(p0,n0,d0,e0); }
+
+  private static final float exactFloatValue (final boolean p0,
+                                              final Natural n0,
+                                              final Natural d0,
+                                              final int e0) {
 
     // TODO: fix this hack or call Rational
     final boolean large = (e0 >= 0);
@@ -770,13 +880,27 @@ implements Ringlike<RationalFloat> {
     return Floats.makeFloat(!p0,e,q); }
 
   //--------------------------------------------------------------
+  /** Half-even rounding of
+   * <code>(p0 ? 1 : -1) n0 / d0 2<sup>e0</sup></code>.
+   * <p>
+   * Rounds from the leading words of numerator and
+   * denominator, falling back to exact division only when that
+   * can't decide a near tie.
+   */
 
   public static final double doubleValue  (final boolean p0,
                                            final Natural n0,
                                            final Natural d0,
                                            final int e0) {
     if (n0.isZero()) { return (p0 ? 0.0 : -0.0); }
-
+    final double z = leadingDoubleValue(p0,n0,d0,e0);
+    if (! Double.isNaN(z)) { return z; }
+    return exactDoubleValue(p0,n0,d0,e0); }
+
+  private static final double exactDoubleValue (final boolean p0,
+                                                final Natural n0,
+                                                final Natural d0,
+                                                final int e0) {
     final boolean neg = !p0;
 
     // TODO: fix this hack
@@ -852,6 +976,37 @@ implements Ringlike<RationalFloat> {
     return doubleValue(
       nonNegative(),numerator(),denominator(),exponent()); }
 
+  /** Rounding of
+   * <code>(p0 ? 1 : -1) n0 / d0 2<sup>e0</sup></code>
+   * with <code>mode</code>, from a 64 bit truncated quotient,
+   * and whether the remainder is zero.
+   */
+
+  public static final double doubleValue (final boolean p0,
+                                          final Natural n0,
+                                          final Natural d0,
+                                          final int e0,
+                                          final RoundingMode mode) {
+    if (n0.isZero()) { return (p0 ? 0.0 : -0.0); }
+    if (d0.isOne()) { return BigFloat.doubleValue(p0,n0,e0,mode); }
+    // n0*2^k/d0 in (2^63,2^65)
+    int k = 64 - (n0.hiBit() - d0.hiBit());
+    final List<Natural> qr =
+      (0 <= k)
+      ? n0.shiftUp(k).divideAndRemainder(d0)
+        : n0.divideAndRemainder(d0.shiftUp(-k));
+    Natural q = qr.get(0);
+    boolean sticky = ! qr.get(1).isZero();
+    if (64 < q.hiBit()) {
+      sticky = sticky || q.testBit(0);
+      q = q.shiftDown(1);
+      k -= 1; }
+    return Doubles.round(p0,q.longValue(),sticky,e0-k,mode); }
+
+  public final double doubleValue (final RoundingMode mode) {
+    return doubleValue(
+      nonNegative(),numerator(),denominator(),exponent(),mode); }
+
   //--------------------------------------------------------------
   // Comparable methods
   //--------------------------------------------------------------
@@ -872,6 +1027,40 @@ implements Ringlike<RationalFloat> {
       c = n0d1.shiftUp(e0-e1).compareTo(n1d0); }
     return (nonNegative() ? c : -c); }
 
+  //--------------------------------------------------------------
+  // binary encoding
+  //--------------------------------------------------------------
+  /** Bytes written by {@link #writeTo(ByteBuffer)}. */
+
+  public final int encodedSize () {
+    return 1 + Integer.BYTES
+      + numerator().encodedSize() + denominator().encodedSize(); }
+
+  /** Write the sign, exponent, numerator, and denominator (see
+   * {@link Natural#writeTo(ByteBuffer)}), exactly, unreduced,
+   * in <code>b</code>'s byte order.
+   */
+
+  public final ByteBuffer writeTo (final ByteBuffer b) {
+    b.put((byte) (nonNegative() ? 0 : 1));
+    b.putInt(exponent());
+    numerator().writeTo(b);
+    return denominator().writeTo(b); }
+
+  /** Inverse of {@link #writeTo(ByteBuffer)}. */
+
+  public static final RationalFloat readFrom (final ByteBuffer b) {
+    final byte sign = b.get();
+    if ((0!=sign) && (1!=sign)) {
+      throw new IllegalArgumentException("bad sign: " + sign); }
+    final int e = b.getInt();
+    final Natural n = Natural.readFrom(b);
+    final Natural d = Natural.readFrom(b);
+    if (d.isZero()) {
+      throw new IllegalArgumentException("zero denominator"); }
+    if (n.isZero()) { return ZERO; }
+    return valueOf(0==sign,n,d,e); }
+
   //--------------------------------------------------------------
   // Object methods
   //--------------------------------------------------------------
@@ -937,15 +1126,13 @@ implements Ringlike<RationalFloat> {
           final Natural n,
           final int e) {
 
-    if (n.isZero()) { return ZERO; }
-    if (n.isOne()) {
-      return new RationalFloat(
-        p,Natural.ONE,Natural.ONE,e); }
+    if (n.isZero()) { return new RationalFloat(true,n,n.one(),0); }
+    if (n.isOne()) { return new RationalFloat(p,n,n,e); }
     final int en = n.loBit();
     final Natural n0 =
       (en != 0) ? n.shiftDown(en) : n;
       final int e0 = (e + en);
-      return new RationalFloat(p,n0,Natural.ONE,e0); }
+      return new RationalFloat(p,n0,n0.one(),e0); }
 
   private static final RationalFloat
   reduce (final boolean p,
@@ -953,8 +1140,7 @@ implements Ringlike<RationalFloat> {
           final Natural d,
           final int e) {
 
-    if (n.isZero()) { return ZERO; }
-    if (d.isOne()) { return reduce(p,n,e); }
+    if (n.isZero() || d.isOne()) { return reduce(p,n,e); }
 
     // TODO: is numerator 1 case worth optimizing?
     if (n.isOne()) {
@@ -962,7 +1148,7 @@ implements Ringlike<RationalFloat> {
       final Natural d0 =
         (ed != 0) ? d.shiftDown(ed) : d;
         final int e0 = e - ed;
-        return new RationalFloat(p,Natural.ONE,d0,e0); }
+        return new RationalFloat(p,n,d0,e0); }
 
     final int en = n.loBit();
     final int ed = d.loBit();
@@ -973,13 +1159,8 @@ implements Ringlike<RationalFloat> {
         final int e0 = (e + en) - ed;
 
         // might have numerator or denominator 1 after shift
-        if (d0.isOne()) {
-          if (n0.isOne()) {
-            return new RationalFloat(
-              p,Natural.ONE,Natural.ONE,e0); }
-          return new RationalFloat(p,n0,Natural.ONE,e0); }
-        if (n0.isOne()) {
-          return new RationalFloat(p,Natural.ONE,d0,e0); }
+        if (d0.isOne() || n0.isOne()) {
+          return new RationalFloat(p,n0,d0,e0); }
 
         final Natural gcd = n0.gcd(d0);
         final Natural n1 = n0.divide(gcd);
@@ -991,6 +1172,21 @@ implements Ringlike<RationalFloat> {
       reduce(
         nonNegative(),numerator(),denominator(),exponent()); }
 
+  /** Words in the numerator and denominator. */
+
+  public final int words () {
+    return numerator().hiInt() + denominator().hiInt(); }
+
+  /** Arithmetic doesn't reduce its results, so numerators and
+   * denominators grow. Lazy normalization: reduce, moving
+   * powers of 2 to the exponent and dividing out the gcd,
+   * only if {@link #words()} is at least <code>threshold</code>.
+   */
+
+  public final RationalFloat reduce (final int threshold) {
+    if (words() < threshold) { return this; }
+    return reduce(); }
+
   //--------------------------------------------------------------
 
   public static final RationalFloat valueOf (final boolean p,
@@ -1004,7 +1200,7 @@ implements Ringlike<RationalFloat> {
                                              final Natural n,
                                              final int e) {
     //return reduce(p,n,e); }
-    return new RationalFloat(p,n,Natural.ONE,e); }
+    return new RationalFloat(p,n,n.one(),e); }
 
   //  public static final RationalFloat valueOf (final boolean p,
   //                                             final Natural x)  {
@@ -10,6 +10,7 @@ import java.util.function.BinaryOperator;
 import java.util.function.DoubleFunction;
 import java.util.function.Function;
 import java.util.function.ToDoubleFunction;
+import java.util.function.Supplier;
 import java.util.function.ToIntBiFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -20,6 +21,7 @@ import org.junit.jupiter.api.Assertions;
 import xfp.java.Classes;
 import xfp.java.Debug;
 import xfp.java.accumulators.Accumulator;
+import xfp.java.accumulators.Accumulators;
 import xfp.java.linear.Dn;
 import xfp.java.numbers.Doubles;
 import xfp.java.numbers.Floats;
@@ -59,9 +61,14 @@ public final class Common {
           { //"xfp.java.test.accumulators.ERationalAccumulator",
             //"xfp.java.test.accumulators.EFloatAccumulator",
             "xfp.java.accumulators.DistilledAccumulator",
+            "xfp.java.accumulators.ShewchukAccumulator",
             "xfp.java.accumulators.ZhuHayesAccumulator",
+            "xfp.java.accumulators.AdaptiveAccumulator",
+            "xfp.java.accumulators.LongAccumulator",
+            "xfp.java.accumulators.NealAccumulator",
             "xfp.java.accumulators.BigFloatAccumulator",
             "xfp.java.accumulators.RationalFloatAccumulator",
+            "xfp.java.accumulators.ConcurrentExactAccumulator",
           }); }
 
   //--------------------------------------------------------------
@@ -1713,6 +1720,132 @@ public final class Common {
     for (final Generator g : generators) {
       dotTest(g,accumulators,base); } }
 
+  //--------------------------------------------------------------
+  /** Merging accumulators over a partition of the data should
+   * give the same result as a single accumulator.
+   */
+
+  private static final void mergeTest (final Generator g,
+                                       final List<String> classNames,
+                                       final Accumulator base) {
+    final double[] x = (double[]) g.next();
+    final int n = x.length;
+    final double truth = base.clear().addAll(x).doubleValue();
+    for (final String className : classNames) {
+      for (final int k : new int[] { 0, n/3, n/2, n, }) {
+        final Accumulator a0 = makeAccumulator(className);
+        final Accumulator a1 = makeAccumulator(className);
+        a0.addAll(Arrays.copyOfRange(x,0,k));
+        a1.addAll(Arrays.copyOfRange(x,k,n));
+        final double pred = a0.merge(a1).doubleValue();
+        Assertions.assertEquals(truth,pred,
+          "\n" + className + " split at " + k
+          + "\ntrue=" + Double.toHexString(truth)
+          + "\npred=" + Double.toHexString(pred)); }
+      // merge with self doubles the sum
+      final Accumulator a = makeAccumulator(className).addAll(x);
+      final double twice = 2.0*a.doubleValue();
+      final double pred = a.merge(a).doubleValue();
+      Assertions.assertEquals(twice,pred,
+        "\n" + className + " merged with itself"
+        + "\ntrue=" + Double.toHexString(twice)
+        + "\npred=" + Double.toHexString(pred)); } }
+
+  public static final void mergeTests (final List<Generator> generators,
+                                       final List<String> classNames,
+                                       final Accumulator base) {
+    for (final Generator g : generators) {
+      mergeTest(g,classNames,base); } }
+
+  //--------------------------------------------------------------
+  /** Parallel reductions should give the same result as
+   * sequential ones, for exact accumulators.
+   */
+
+  private static final void parallelTest (final Generator g,
+                                          final List<String> classNames,
+                                          final Accumulator base,
+                                          final int threshold) {
+    final double[] x0 = (double[]) g.next();
+    final double[] x1 = (double[]) g.next();
+    final double sum = base.clear().addAll(x0).doubleValue();
+    final double dot = base.clear().addProducts(x0,x1).doubleValue();
+    final double l2d = base.clear().addL2Distance(x0,x1).doubleValue();
+    for (final String className : classNames) {
+      final Supplier<Accumulator> factory =
+        () -> makeAccumulator(className);
+      final double psum =
+        Accumulators.parallelAddAll(factory,x0,threshold)
+        .doubleValue();
+      Assertions.assertEquals(sum,psum,
+        "\n" + className + " parallelAddAll"
+        + "\ntrue=" + Double.toHexString(sum)
+        + "\npred=" + Double.toHexString(psum));
+      final double pdot =
+        Accumulators.parallelAddProducts(factory,x0,x1,threshold)
+        .doubleValue();
+      Assertions.assertEquals(dot,pdot,
+        "\n" + className + " parallelAddProducts"
+        + "\ntrue=" + Double.toHexString(dot)
+        + "\npred=" + Double.toHexString(pdot));
+      final double pl2d =
+        Accumulators.parallelAddL2Distance(factory,x0,x1,threshold)
+        .doubleValue();
+      Assertions.assertEquals(l2d,pl2d,
+        "\n" + className + " parallelAddL2Distance"
+        + "\ntrue=" + Double.toHexString(l2d)
+        + "\npred=" + Double.toHexString(pl2d)); } }
+
+  public static final void parallelTests (final List<Generator> generators,
+                                          final List<String> classNames,
+                                          final Accumulator base,
+                                          final int threshold) {
+    for (final Generator g : generators) {
+      parallelTest(g,classNames,base,threshold); } }
+
+  //--------------------------------------------------------------
+  /** Parallel scans should be bit-identical to the same
+   * accumulator's sequential partial sums, for exact
+   * accumulators.
+   */
+
+  private static final void parallelScanTest (final Generator g,
+                                              final List<String> classNames,
+                                              final int threshold) {
+    final double[] x0 = (double[]) g.next();
+    final double[] x1 = (double[]) g.next();
+    for (final String className : classNames) {
+      final Supplier<Accumulator> factory =
+        () -> makeAccumulator(className);
+      final Accumulator a = factory.get();
+      Assertions.assertArrayEquals(
+        a.partialSums(x0),
+        Accumulators.parallelPartialSums(factory,x0,threshold));
+      Assertions.assertArrayEquals(
+        a.partialL1s(x0),
+        Accumulators.parallelPartialL1s(factory,x0,threshold));
+      Assertions.assertArrayEquals(
+        a.partialL2s(x0),
+        Accumulators.parallelPartialL2s(factory,x0,threshold));
+      Assertions.assertArrayEquals(
+        a.partialDots(x0,x1),
+        Accumulators.parallelPartialDots(factory,x0,x1,threshold));
+      Assertions.assertArrayEquals(
+        a.partialL1Distances(x0,x1),
+        Accumulators.parallelPartialL1Distances(
+          factory,x0,x1,threshold));
+      Assertions.assertArrayEquals(
+        a.partialL2Distances(x0,x1),
+        Accumulators.parallelPartialL2Distances(
+          factory,x0,x1,threshold)); } }
+
+  public static final void
+  parallelScanTests (final List<Generator> generators,
+                     final List<String> classNames,
+                     final int threshold) {
+    for (final Generator g : generators) {
+      parallelScanTest(g,classNames,threshold); } }
+
   //--------------------------------------------------------------
 
   public static final Polynomial
@@ -0,0 +1,103 @@
+package xfp.java.test.accumulators;
+
+import org.apache.commons.rng.UniformRandomProvider;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import xfp.java.accumulators.AdaptiveAccumulator;
+import xfp.java.accumulators.LongAccumulator;
+import xfp.java.numbers.Doubles;
+import xfp.java.prng.Generator;
+import xfp.java.prng.PRNG;
+import xfp.java.test.Common;
+
+//----------------------------------------------------------------
+/** Test when {@link AdaptiveAccumulator} falls back to exact
+ * summation, and that it's correctly rounded either way.
+ * Totals are also tested with the other accumulators in
+ * {@link SumTest}.
+ * <p>
+ * <pre>
+ * mvn -q -Dtest=xfp/java/test/accumulators/AdaptiveAccumulatorTest test > AAT.txt
+ * </pre>
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2019-10-17
+ */
+
+public final class AdaptiveAccumulatorTest {
+
+  private static final int DIM = (4*1024)+1;
+
+  /** Well conditioned sums shouldn't need exact arithmetic.
+   */
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void wellConditioned () {
+    final UniformRandomProvider urp =
+      PRNG.well44497b("seeds/Well44497b-2019-01-09.txt");
+    final Generator[] gs = new Generator[]
+      { Doubles.uniformGenerator(DIM,urp,0.0,1.0),
+        Doubles.exponentialGenerator(DIM,urp,0.0,1.0e100), };
+    final AdaptiveAccumulator a = AdaptiveAccumulator.make();
+    final LongAccumulator b = LongAccumulator.make();
+    for (final Generator g : gs) {
+      final double[] x = (double[]) g.next();
+      final double[] y = (double[]) g.next();
+      Assertions.assertEquals(
+        b.clear().addAll(x).doubleValue(),
+        a.clear().addAll(x).doubleValue(),
+        g.name());
+      Assertions.assertFalse(a.isEscalated(),g.name());
+      Assertions.assertEquals(
+        b.clear().addProducts(x,y).doubleValue(),
+        a.clear().addProducts(x,y).doubleValue(),
+        g.name());
+      Assertions.assertFalse(a.isEscalated(),g.name()); } }
+
+  /** Exact ties can't be certified.
+   */
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void ties () {
+    final AdaptiveAccumulator a = AdaptiveAccumulator.make();
+    Assertions.assertEquals(
+      1.0,
+      a.addAll(new double[] { 1.0, 0x1.0p-53, }).doubleValue());
+    Assertions.assertTrue(a.isEscalated());
+    Assertions.assertEquals(
+      1.0 + 0x1.0p-52,
+      a.clear().addAll(new double[] { 1.0, 0x1.0p-53, 0x1.0p-200, })
+      .doubleValue());
+    Assertions.assertTrue(a.isEscalated());
+    Assertions.assertEquals(
+      1.0,
+      a.clear().addAll(new double[] { 1.0, 0x1.0p-54, }).doubleValue());
+    Assertions.assertFalse(a.isEscalated()); }
+
+  /** Every partial sum must match an exact accumulator, with a
+   * small buffer, so it's flushed, and replayed, often.
+   */
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void partialSums () {
+    final AdaptiveAccumulator a =
+      AdaptiveAccumulator.make(LongAccumulator::make,101);
+    final LongAccumulator b = LongAccumulator.make();
+    for (final Generator g : Common.generators(DIM)) {
+      final double[] x = (double[]) g.next();
+      final double[] y = (double[]) g.next();
+      Assertions.assertArrayEquals(b.partialSums(x),a.partialSums(x));
+      Assertions.assertArrayEquals(
+        b.partialDots(x,y),a.partialDots(x,y));
+      Assertions.assertEquals(
+        b.clear().addAll(x).addProducts(x,y).doubleValue(),
+        a.clear().addAll(x).addProducts(x,y).doubleValue(),
+        g.name()); } }
+
+  //--------------------------------------------------------------
+}
+//--------------------------------------------------------------
@@ -0,0 +1,109 @@
+package xfp.java.test.accumulators;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import xfp.java.accumulators.BigFloatAccumulator;
+import xfp.java.accumulators.Collectors;
+import xfp.java.accumulators.LongAccumulator;
+import xfp.java.prng.Generator;
+import xfp.java.test.Common;
+
+//----------------------------------------------------------------
+/** Sequential and parallel stream reductions with
+ * {@link Collectors} should match sequential exact reductions
+ * of arrays.
+ * <p>
+ * <pre>
+ * mvn -q -Dtest=xfp/java/test/accumulators/CollectorsTest test > CT.txt
+ * </pre>
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2019-10-17
+ */
+
+public final class CollectorsTest {
+
+  private static final int DIM = (16*1024)+1;
+  private static final int BLOCK = 1000;
+
+  private static final Stream<double[]> blocks (final double[] z,
+                                                final boolean parallel) {
+    final int n = z.length;
+    final IntStream i = IntStream.range(0,(n+BLOCK-1)/BLOCK);
+    return (parallel ? i.parallel() : i)
+      .mapToObj(k ->
+      Arrays.copyOfRange(z,k*BLOCK,Math.min(n,(k+1)*BLOCK))); }
+
+  private static final Stream<double[][]> blocks (final double[] z0,
+                                                  final double[] z1,
+                                                  final boolean parallel) {
+    final int n = z0.length;
+    final IntStream i = IntStream.range(0,(n+BLOCK-1)/BLOCK);
+    return (parallel ? i.parallel() : i)
+      .mapToObj(k -> {
+        final int start = k*BLOCK;
+        final int end = Math.min(n,(k+1)*BLOCK);
+        return new double[][]
+          { Arrays.copyOfRange(z0,start,end),
+            Arrays.copyOfRange(z1,start,end), }; }); }
+
+  private static final IntStream indexes (final int n,
+                                          final boolean parallel) {
+    final IntStream i = IntStream.range(0,n);
+    return parallel ? i.parallel() : i; }
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void streams () {
+    final LongAccumulator e = LongAccumulator.make();
+    for (final Generator g : Common.generators(DIM)) {
+      final double[] x = (double[]) g.next();
+      final double[] y = (double[]) g.next();
+      final int n = x.length;
+      final double sum = e.clear().addAll(x).doubleValue();
+      final double sum2 = e.clear().add2All(x).doubleValue();
+      final double dot = e.clear().addProducts(x,y).doubleValue();
+      final double l1d = e.clear().addL1Distance(x,y).doubleValue();
+      final double l2d = e.clear().addL2Distance(x,y).doubleValue();
+      for (final boolean p : new boolean[] { false, true, }) {
+        final String name = g.name() + (p ? " parallel" : "");
+        Assertions.assertEquals(sum,
+          Collectors.sum(p ? Arrays.stream(x).parallel() : Arrays.stream(x)),
+          name);
+        Assertions.assertEquals(sum,
+          Collectors.sum(
+            BigFloatAccumulator::make,
+            p ? Arrays.stream(x).parallel() : Arrays.stream(x))
+          .doubleValue(),
+          name);
+        Assertions.assertEquals(sum2,
+          Collectors.sumOfSquares(
+            p ? Arrays.stream(x).parallel() : Arrays.stream(x)),
+          name);
+        Assertions.assertEquals(dot,Collectors.dot(indexes(n,p),x,y),name);
+        Assertions.assertEquals(l1d,
+          Collectors.l1Distance(indexes(n,p),x,y),name);
+        Assertions.assertEquals(l2d,
+          Collectors.l2Distance(indexes(n,p),x,y),name);
+        Assertions.assertEquals(sum,
+          blocks(x,p).collect(Collectors.sum()).doubleValue(),name);
+        Assertions.assertEquals(sum2,
+          blocks(x,p).collect(Collectors.sumOfSquares()).doubleValue(),
+          name);
+        Assertions.assertEquals(dot,
+          blocks(x,y,p).collect(Collectors.dot()).doubleValue(),name);
+        Assertions.assertEquals(l1d,
+          blocks(x,y,p).collect(Collectors.l1Distance()).doubleValue(),
+          name);
+        Assertions.assertEquals(l2d,
+          blocks(x,y,p).collect(Collectors.l2Distance()).doubleValue(),
+          name); } } }
+
+  //--------------------------------------------------------------
+}
+//--------------------------------------------------------------
@@ -0,0 +1,84 @@
+package xfp.java.test.accumulators;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import xfp.java.accumulators.ConcurrentExactAccumulator;
+import xfp.java.accumulators.ZhuHayesAccumulator;
+import xfp.java.prng.Generator;
+import xfp.java.test.Common;
+
+//----------------------------------------------------------------
+/** Test concurrent updates of
+ * {@link ConcurrentExactAccumulator}.
+ * Single threaded behavior is tested with the other
+ * accumulators in {@link SumTest}.
+ * <p>
+ * <pre>
+ * mvn -q -Dtest=xfp/java/test/accumulators/ConcurrentExactAccumulatorTest test > CEAT.txt
+ * </pre>
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2019-10-17
+ */
+
+public final class ConcurrentExactAccumulatorTest {
+
+  private static final int DIM = 4*1024;
+  private static final int NTHREADS = 8;
+
+  /** Writers add interleaved elements while a reader rounds
+   * the partial sum; the final sum must match a sequential
+   * exact sum.
+   */
+
+  private static final void
+  concurrentTest (final ExecutorService pool,
+                  final Generator g,
+                  final ConcurrentExactAccumulator a)
+    throws InterruptedException, ExecutionException {
+    final double[] x = (double[]) g.next();
+    final double[] y = (double[]) g.next();
+    a.clear();
+    final List<Future<?>> futures = new ArrayList<>();
+    for (int k=0;k<NTHREADS;k++) {
+      final int k0 = k;
+      futures.add(pool.submit(() -> {
+        for (int i=k0;i<x.length;i+=NTHREADS) {
+          a.add(x[i]);
+          a.addProduct(x[i],y[i]); } })); }
+    futures.add(pool.submit(() -> {
+      for (int i=0;i<16;i++) { a.doubleValue(); } }));
+    for (final Future<?> f : futures) { f.get(); }
+    final double expected =
+      ZhuHayesAccumulator.make()
+      .addAll(x).addProducts(x,y).doubleValue();
+    Assertions.assertEquals(expected,a.doubleValue(),g.name()); }
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void concurrent ()
+    throws InterruptedException, ExecutionException {
+    final ExecutorService pool =
+      Executors.newFixedThreadPool(NTHREADS+1);
+    try {
+      // fewer cells than threads, to force contention
+      final ConcurrentExactAccumulator a =
+        ConcurrentExactAccumulator.make(ZhuHayesAccumulator::make,3);
+      final ConcurrentExactAccumulator b =
+        ConcurrentExactAccumulator.make();
+      for (final Generator g : Common.generators(DIM)) {
+        concurrentTest(pool,g,a);
+        concurrentTest(pool,g,b); } }
+    finally { pool.shutdown(); } }
+
+  //--------------------------------------------------------------
+}
+//--------------------------------------------------------------
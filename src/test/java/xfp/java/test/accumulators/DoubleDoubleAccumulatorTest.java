@@ -0,0 +1,110 @@
+package xfp.java.test.accumulators;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import xfp.java.accumulators.Accumulator;
+import xfp.java.accumulators.DoubleAccumulator;
+import xfp.java.accumulators.DoubleDoubleAccumulator;
+import xfp.java.accumulators.LongAccumulator;
+import xfp.java.accumulators.TripleDoubleAccumulator;
+import xfp.java.prng.Generator;
+import xfp.java.test.Common;
+
+//----------------------------------------------------------------
+/** Test {@link DoubleDoubleAccumulator} and
+ * {@link TripleDoubleAccumulator} against their documented
+ * error bounds.
+ * <p>
+ * <pre>
+ * mvn -q -Dtest=xfp/java/test/accumulators/DoubleDoubleAccumulatorTest test > DDAT.txt
+ * </pre>
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2019-10-17
+ */
+
+public final class DoubleDoubleAccumulatorTest {
+
+  private static final int DIM = (4*1024)+1;
+
+  private static final double U = 0x1.0p-53;
+
+  /** <code>|pred - truth|</code>, where <code>truth</code> is
+   * the rounded exact value, must be within
+   * <code>2u|truth| + 2 c n u<sup>k</sup> &Sigma;|t<sub>i</sub>|</code>,
+   * allowing for the rounding of <code>truth</code> and of the
+   * bound itself.
+   */
+
+  private static final void check (final String name,
+                                   final double truth,
+                                   final double pred,
+                                   final double bound) {
+    final double err = Math.abs(pred-truth);
+    final double tol = (2.0*U*Math.abs(truth)) + (2.0*bound);
+    Assertions.assertTrue(err <= tol,
+      () -> name
+      + "\ntruth=" + Double.toHexString(truth)
+      + "\npred =" + Double.toHexString(pred)
+      + "\nerr  =" + err + " > " + tol); }
+
+  private static final void
+  boundTest (final Generator g,
+             final Accumulator a,
+             final double c,
+             final double uk) {
+    final String name = a.getClass().getSimpleName() + " " + g.name();
+    final double[] x = (double[]) g.next();
+    final double[] y = (double[]) g.next();
+    final int n = x.length;
+    final Accumulator e = LongAccumulator.make();
+    final Accumulator abs = DoubleAccumulator.make();
+
+    final double sum = e.clear().addAll(x).doubleValue();
+    final double l1 = abs.clear().addAbsAll(x).doubleValue();
+    check(name + " sum",sum,a.clear().addAll(x).doubleValue(),
+      c*n*uk*l1);
+    check(name + " partialSums",sum,a.partialSums(x)[n-1],
+      c*n*uk*l1);
+
+    final double dot = e.clear().addProducts(x,y).doubleValue();
+    double l1dot = 0.0;
+    for (int i=0;i<n;i++) { l1dot += Math.abs(x[i]*y[i]); }
+    check(name + " dot",dot,a.clear().addProducts(x,y).doubleValue(),
+      2.0*c*n*uk*l1dot);
+
+    final double l2 = e.clear().add2All(x).doubleValue();
+    check(name + " l2",l2,a.clear().add2All(x).doubleValue(),
+      2.0*c*n*uk*l2);
+
+    final double d1 = e.clear().addL1Distance(x,y).doubleValue();
+    check(name + " l1Distance",d1,
+      a.clear().addL1Distance(x,y).doubleValue(),
+      2.0*c*n*uk*d1);
+
+    final double d2 = e.clear().addL2Distance(x,y).doubleValue();
+    check(name + " l2Distance",d2,
+      a.clear().addL2Distance(x,y).doubleValue(),
+      5.0*c*n*uk*d2); }
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void bounds () {
+    for (final Generator g : Common.generators(DIM)) {
+      boundTest(g,DoubleDoubleAccumulator.make(),8.0,U*U);
+      boundTest(g,TripleDoubleAccumulator.make(),4.0,U*U*U); } }
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void infiniteSum () {
+    Common.infinityTests(
+      List.of(
+        DoubleDoubleAccumulator.make(),
+        TripleDoubleAccumulator.make())); }
+
+  //--------------------------------------------------------------
+}
+//--------------------------------------------------------------
@@ -0,0 +1,250 @@
+package xfp.java.test.accumulators;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import xfp.java.accumulators.Accumulator;
+import xfp.java.accumulators.ZhuHayesAccumulator;
+import xfp.java.prng.Generator;
+import xfp.java.test.Common;
+
+//----------------------------------------------------------------
+/** Round trip exact accumulator state through
+ * {@link Accumulator#writeTo(ByteBuffer)}, and merge partial
+ * states reduced in other processes, sent over loopback
+ * sockets.
+ * <p>
+ * {@link #main(String[])} is the worker process.
+ * <p>
+ * <pre>
+ * mvn -q -Dtest=xfp/java/test/accumulators/EncodingTest test > ET.txt
+ * </pre>
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2019-10-17
+ */
+
+@SuppressWarnings("unchecked")
+public final class EncodingTest {
+
+  private static final int DIM = (4*1024)+1;
+
+  private static final int NWORKERS = 3;
+
+  private static final List<String> accumulators () {
+    return List.of(
+      "xfp.java.accumulators.BigFloatAccumulator",
+      "xfp.java.accumulators.RationalFloatAccumulator",
+      "xfp.java.accumulators.ZhuHayesAccumulator",
+      "xfp.java.accumulators.LongAccumulator",
+      "xfp.java.accumulators.NealAccumulator",
+      "xfp.java.accumulators.ShewchukAccumulator",
+      "xfp.java.accumulators.DistilledAccumulator",
+      "xfp.java.accumulators.AdaptiveAccumulator",
+      "xfp.java.accumulators.ConcurrentExactAccumulator"); }
+
+  /** The reduction done on each shard. */
+  private static final Accumulator reduce (final Accumulator a,
+                                          final double[] x,
+                                          final double[] y) {
+    return a.addAll(x).addProducts(x,y).addL2Distance(x,y); }
+
+  private static final ByteBuffer encode (final Accumulator a) {
+    final ByteBuffer b = ByteBuffer.allocate(a.encodedSize());
+    a.writeTo(b);
+    Assertions.assertFalse(b.hasRemaining());
+    return b.flip(); }
+
+  //--------------------------------------------------------------
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void roundTrip () {
+    for (final Generator g : Common.generators(DIM)) {
+      final double[] x = (double[]) g.next();
+      final double[] y = (double[]) g.next();
+      final int n = x.length;
+      final int k = n/3;
+      final double[] x0 = Arrays.copyOfRange(x,0,k);
+      final double[] y0 = Arrays.copyOfRange(y,0,k);
+      final double[] x1 = Arrays.copyOfRange(x,k,n);
+      final double[] y1 = Arrays.copyOfRange(y,k,n);
+      for (final String className : accumulators()) {
+        final String name = className + " " + g.name();
+        final double truth =
+          reduce(Common.makeAccumulator(className),x,y).doubleValue();
+        final Accumulator a = reduce(Common.makeAccumulator(className),x,y);
+        final ByteBuffer b = encode(a);
+        final Accumulator c = Common.makeAccumulator(className).add(1.0);
+        Assertions.assertEquals(truth,c.readFrom(b).doubleValue(),name);
+        Assertions.assertFalse(b.hasRemaining(),name);
+        // encoding the decoded state gives the same bytes
+        Assertions.assertEquals(b.flip(),encode(c),name);
+        final Accumulator a0 =
+          reduce(Common.makeAccumulator(className),x0,y0);
+        final Accumulator a1 =
+          reduce(Common.makeAccumulator(className),x1,y1);
+        Assertions.assertEquals(
+          truth,a0.mergeFrom(encode(a1)).doubleValue(),name);
+        final Accumulator z = Common.makeAccumulator(className);
+        Assertions.assertEquals(
+          0.0,z.readFrom(encode(z)).doubleValue(),name);
+        Assertions.assertEquals(
+          truth,z.mergeFrom(encode(a)).doubleValue(),name); } } }
+
+  /** Encoding and accumulator classes must match. */
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void mismatch () {
+    final List<String> classNames = accumulators();
+    for (final String c0 : classNames) {
+      final Accumulator a = Common.makeAccumulator(c0).add(1.0);
+      for (final String c1 : classNames) {
+        if (c0.equals(c1)) { continue; }
+        // LongAccumulator and NealAccumulator share a format,
+        // but not a layout
+        Assertions.assertThrows(IllegalArgumentException.class,
+          () -> Common.makeAccumulator(c1).readFrom(encode(a)),
+          () -> c0 + " -> " + c1); } }
+    final ByteBuffer b = encode(Common.makeAccumulator(classNames.get(0)));
+    b.put(0,(byte) 99);
+    Assertions.assertThrows(IllegalArgumentException.class,
+      () -> Common.makeAccumulator(classNames.get(0)).readFrom(b)); }
+
+  /** Only the live slots are encoded. */
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void compact () {
+    final ZhuHayesAccumulator a = ZhuHayesAccumulator.make();
+    a.addAll(new double[] { 1.0, 0x1.0p-60, -3.0e100, 1.0e-300, });
+    Assertions.assertTrue(a.encodedSize() < 100);
+    Assertions.assertTrue(
+      ZhuHayesAccumulator.make().encodedSize() < 16); }
+
+  //--------------------------------------------------------------
+  // other processes
+  //--------------------------------------------------------------
+
+  private static final void writeDoubles (final DataOutputStream out,
+                                          final double[] z)
+    throws IOException {
+    for (final double zi : z) { out.writeDouble(zi); } }
+
+  private static final double[] readDoubles (final DataInputStream in,
+                                             final int n)
+    throws IOException {
+    final double[] z = new double[n];
+    for (int i=0;i<n;i++) { z[i] = in.readDouble(); }
+    return z; }
+
+  /** Worker: connect to the port in <code>args[0]</code>, then,
+   * until sent a negative length, read a shard and a list of
+   * accumulator classes, and send back the encoded state of
+   * each, after reducing the shard.
+   */
+
+  public static final void main (final String[] args)
+    throws IOException {
+    final int port = Integer.parseInt(args[0]);
+    try (Socket s = new Socket(InetAddress.getLoopbackAddress(),port);
+      DataInputStream in = new DataInputStream(s.getInputStream());
+      DataOutputStream out = new DataOutputStream(s.getOutputStream())) {
+      for (;;) {
+        final int n = in.readInt();
+        if (0 > n) { return; }
+        final double[] x = readDoubles(in,n);
+        final double[] y = readDoubles(in,n);
+        final int m = in.readInt();
+        for (int i=0;i<m;i++) {
+          final Accumulator a =
+            reduce(Common.makeAccumulator(in.readUTF()),x,y);
+          final ByteBuffer b = encode(a);
+          out.writeInt(b.remaining());
+          out.write(b.array(),0,b.remaining()); }
+        out.flush(); } } }
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void processes () throws Exception {
+    final List<String> classNames = accumulators();
+    final String java =
+      System.getProperty("java.home")
+      + File.separator + "bin" + File.separator + "java";
+    final String cp = System.getProperty("java.class.path");
+    try (ServerSocket server =
+      new ServerSocket(0,NWORKERS,InetAddress.getLoopbackAddress())) {
+      server.setSoTimeout(60000);
+      final Process[] workers = new Process[NWORKERS];
+      final Socket[] sockets = new Socket[NWORKERS];
+      try {
+        for (int w=0;w<NWORKERS;w++) {
+          workers[w] =
+            new ProcessBuilder(
+              java,"-cp",cp,EncodingTest.class.getName(),
+              Integer.toString(server.getLocalPort()))
+            .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+            .redirectError(ProcessBuilder.Redirect.INHERIT)
+            .start(); }
+        for (int w=0;w<NWORKERS;w++) {
+          sockets[w] = server.accept(); }
+        final DataInputStream[] ins = new DataInputStream[NWORKERS];
+        final DataOutputStream[] outs = new DataOutputStream[NWORKERS];
+        for (int w=0;w<NWORKERS;w++) {
+          ins[w] = new DataInputStream(sockets[w].getInputStream());
+          outs[w] = new DataOutputStream(sockets[w].getOutputStream()); }
+
+        for (final Generator g : Common.generators(DIM)) {
+          final double[] x = (double[]) g.next();
+          final double[] y = (double[]) g.next();
+          final int n = x.length;
+          for (int w=0;w<NWORKERS;w++) {
+            final int start = (w*n)/NWORKERS;
+            final int end = ((w+1)*n)/NWORKERS;
+            outs[w].writeInt(end-start);
+            writeDoubles(outs[w],Arrays.copyOfRange(x,start,end));
+            writeDoubles(outs[w],Arrays.copyOfRange(y,start,end));
+            outs[w].writeInt(classNames.size());
+            for (final String c : classNames) { outs[w].writeUTF(c); }
+            outs[w].flush(); }
+          final Accumulator[] merged = new Accumulator[classNames.size()];
+          for (int i=0;i<merged.length;i++) {
+            merged[i] = Common.makeAccumulator(classNames.get(i)); }
+          // merge in reverse order of the shards
+          for (int w=NWORKERS-1;w>=0;w--) {
+            for (final Accumulator a : merged) {
+              final byte[] bytes = new byte[ins[w].readInt()];
+              ins[w].readFully(bytes);
+              a.mergeFrom(ByteBuffer.wrap(bytes)); } }
+          for (int i=0;i<merged.length;i++) {
+            final String className = classNames.get(i);
+            Assertions.assertEquals(
+              reduce(Common.makeAccumulator(className),x,y).doubleValue(),
+              merged[i].doubleValue(),
+              className + " " + g.name()); } }
+
+        for (final DataOutputStream out : outs) {
+          out.writeInt(-1);
+          out.flush(); }
+        for (final Process p : workers) {
+          Assertions.assertEquals(0,p.waitFor()); } }
+      finally {
+        for (final Socket s : sockets) { if (null != s) { s.close(); } }
+        for (final Process p : workers) {
+          if ((null != p) && p.isAlive()) { p.destroyForcibly(); } } } } }
+
+  //--------------------------------------------------------------
+}
+//--------------------------------------------------------------
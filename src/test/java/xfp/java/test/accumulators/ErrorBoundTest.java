@@ -0,0 +1,124 @@
+package xfp.java.test.accumulators;
+
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import xfp.java.accumulators.Accumulator;
+import xfp.java.accumulators.AdaptiveAccumulator;
+import xfp.java.accumulators.BigFloatAccumulator;
+import xfp.java.accumulators.DoubleAccumulator;
+import xfp.java.accumulators.DoubleDoubleAccumulator;
+import xfp.java.accumulators.KahanAccumulator;
+import xfp.java.accumulators.LongAccumulator;
+import xfp.java.accumulators.TripleDoubleAccumulator;
+import xfp.java.accumulators.ZhuHayesAccumulator;
+import xfp.java.prng.Generator;
+import xfp.java.test.Common;
+
+//----------------------------------------------------------------
+/** Test {@link Accumulator#errorBound()}, against exact sums.
+ * <p>
+ * <pre>
+ * mvn -q -Dtest=xfp/java/test/accumulators/ErrorBoundTest test > EBT.txt
+ * </pre>
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2019-10-17
+ */
+
+public final class ErrorBoundTest {
+
+  private static final int DIM = (4*1024)+1;
+
+  private static final List<Accumulator> accumulators () {
+    return List.of(
+      DoubleAccumulator.make(),
+      KahanAccumulator.make(),
+      DoubleDoubleAccumulator.make(),
+      TripleDoubleAccumulator.make(),
+      AdaptiveAccumulator.make(),
+      BigFloatAccumulator.make(),
+      ZhuHayesAccumulator.make()); }
+
+  /** <code>truth</code> is the exact value, rounded, so it may
+   * be off by half an ulp itself.
+   */
+
+  private static final void
+  boundTest (final String name,
+             final Function<Accumulator,Accumulator> f,
+             final Accumulator a) {
+    final double truth = f.apply(LongAccumulator.make()).doubleValue();
+    final Accumulator p = f.apply(a.clear());
+    final double pred = p.doubleValue();
+    final double bound = p.errorBound();
+    final double err = Math.abs(pred-truth);
+    Assertions.assertTrue(err <= (bound + (0.5*Math.ulp(truth))),
+      () -> a.getClass().getSimpleName() + " " + name
+      + "\ntruth=" + Double.toHexString(truth)
+      + "\npred =" + Double.toHexString(pred)
+      + "\nerr  =" + err + " > " + bound);
+    // half an ulp of a correctly rounded result leaves no slack
+    if (p.isExact()) {
+      Assertions.assertEquals(truth,pred,
+        () -> a.getClass().getSimpleName() + " " + name); } }
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void bounds () {
+    for (final Generator g : Common.generators(DIM)) {
+      final double[] x = (double[]) g.next();
+      final double[] y = (double[]) g.next();
+      final String name = g.name();
+      for (final Accumulator a : accumulators()) {
+        boundTest(name + " sum",b -> b.addAll(x),a);
+        boundTest(name + " abs",b -> b.addAbsAll(x),a);
+        boundTest(name + " l2",b -> b.add2All(x),a);
+        boundTest(name + " dot",b -> b.addProducts(x,y),a);
+        boundTest(name + " l1d",b -> b.addL1Distance(x,y),a);
+        boundTest(name + " l2d",b -> b.addL2Distance(x,y),a);
+        boundTest(name + " adds",
+          b -> {
+            for (final double xi : x) { b.add(xi); }
+            return b; },
+          a); } } }
+
+  /** Well conditioned sums should get a bound small enough to
+   * be useful.
+   */
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void tight () {
+    final double[] x = new double[DIM];
+    for (int i=0;i<DIM;i++) { x[i] = 1.0/(i+1); }
+    final double s = LongAccumulator.make().addAll(x).doubleValue();
+    final double ulp = Math.ulp(s);
+    Assertions.assertTrue(
+      DoubleAccumulator.make().addAll(x).errorBound() < (1.0e-9*s));
+    Assertions.assertTrue(
+      KahanAccumulator.make().addAll(x).errorBound() < (4.0*ulp));
+    Assertions.assertTrue(
+      DoubleDoubleAccumulator.make().addAll(x).errorBound() < ulp);
+    Assertions.assertTrue(
+      TripleDoubleAccumulator.make().addAll(x).errorBound()
+      <= (1.5*ulp)); }
+
+  /** A half-even tie broken by a much smaller term.
+   */
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void ties () {
+    final double[] x = { 1.0, 0x1.0p-53, 0x1.0p-200, };
+    final double[] y = { 1.0, 1.0, 1.0, };
+    for (final Accumulator a : accumulators()) {
+      boundTest("tie sum",b -> b.addAll(x),a);
+      boundTest("tie dot",b -> b.addProducts(x,y),a); } }
+
+  //--------------------------------------------------------------
+}
+//--------------------------------------------------------------
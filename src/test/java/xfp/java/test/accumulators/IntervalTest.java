@@ -0,0 +1,144 @@
+package xfp.java.test.accumulators;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import xfp.java.accumulators.Accumulator;
+import xfp.java.prng.Generator;
+import xfp.java.test.Common;
+
+//----------------------------------------------------------------
+/** {@link Accumulator#doubleValue(RoundingMode)} from exact
+ * accumulators should give the tightest <code>double</code>
+ * interval containing the exact sum, checked in
+ * {@link BigDecimal}.
+ * <p>
+ * <pre>
+ * mvn -q -Dtest=xfp/java/test/accumulators/IntervalTest test > IT.txt
+ * </pre>
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2019-10-17
+ */
+
+@SuppressWarnings("unchecked")
+public final class IntervalTest {
+
+  private static final int DIM = (4*1024)+1;
+
+  private static final List<String> accumulators () {
+    return List.of(
+      "xfp.java.accumulators.BigFloatAccumulator",
+      "xfp.java.accumulators.RationalFloatAccumulator",
+      "xfp.java.accumulators.ZhuHayesAccumulator",
+      "xfp.java.accumulators.LongAccumulator",
+      "xfp.java.accumulators.NealAccumulator"); }
+
+  private static final BigDecimal sum (final double[] x) {
+    BigDecimal s = BigDecimal.ZERO;
+    for (final double xi : x) { s = s.add(new BigDecimal(xi)); }
+    return s; }
+
+  /** <code>[lo,hi]</code> is the tightest enclosure of
+   * <code>s</code>, and the other modes pick the right end.
+   */
+  private static final void check (final String name,
+                                   final Accumulator a,
+                                   final BigDecimal s) {
+    final double lo = a.doubleValue(RoundingMode.FLOOR);
+    final double hi = a.doubleValue(RoundingMode.CEILING);
+    // beyond the double range
+    final BigDecimal max = new BigDecimal(Double.MAX_VALUE);
+    if (Double.POSITIVE_INFINITY == hi) {
+      Assertions.assertEquals(Double.MAX_VALUE,lo,name);
+      Assertions.assertTrue(0 < s.compareTo(max),name);
+      return; }
+    if (Double.NEGATIVE_INFINITY == lo) {
+      Assertions.assertEquals(-Double.MAX_VALUE,hi,name);
+      Assertions.assertTrue(0 > s.compareTo(max.negate()),name);
+      return; }
+    Assertions.assertTrue(0 >= new BigDecimal(lo).compareTo(s),name);
+    Assertions.assertTrue(0 <= new BigDecimal(hi).compareTo(s),name);
+    Assertions.assertEquals(
+      s.doubleValue(),a.doubleValue(RoundingMode.HALF_EVEN),name);
+    Assertions.assertEquals(
+      a.doubleValue(),a.doubleValue(RoundingMode.HALF_EVEN),name);
+    final int sign = s.signum();
+    Assertions.assertEquals(
+      (0 <= sign) ? lo : hi,a.doubleValue(RoundingMode.DOWN),name);
+    Assertions.assertEquals(
+      (0 <= sign) ? hi : lo,a.doubleValue(RoundingMode.UP),name);
+    if (0 == new BigDecimal(lo).compareTo(s)) {
+      Assertions.assertEquals(lo,hi,name);
+      Assertions.assertEquals(
+        lo,a.doubleValue(RoundingMode.UNNECESSARY),name); }
+    else {
+      Assertions.assertEquals(Math.nextUp(lo),hi,name);
+      Assertions.assertThrows(ArithmeticException.class,
+        () -> a.doubleValue(RoundingMode.UNNECESSARY)); } }
+
+  //--------------------------------------------------------------
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void sums () {
+    for (final Generator g : Common.generators(DIM)) {
+      final double[] x = (double[]) g.next();
+      final BigDecimal s = sum(x);
+      final BigDecimal sx = s.subtract(new BigDecimal(x[0]));
+      for (final String className : accumulators()) {
+        final String name = className + " " + g.name();
+        final Accumulator a = Common.makeAccumulator(className);
+        check(name,a.addAll(x),s);
+        // with exact cancellation
+        a.clear().addAll(x).add(-x[0]);
+        check(name,a,sx); } } }
+
+  /** Exact and inexact results near 1, overflow, and
+   * underflow.
+   */
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void edges () {
+    final double[][] xs = {
+      { },
+      { 1.0, },
+      { 1.0, 0x1.0p-60, },
+      { 1.0, -0x1.0p-60, },
+      { -1.0, 0x1.0p-60, },
+      { 1.0, 0x1.0p-53, },
+      { 1.0, 0x1.0p-53, 0x1.0p-1000, },
+      { 1.0, 0x1.0p-53, 0x1.0p-200, },
+      { -1.0, -0x1.0p-53, -0x1.0p-200, },
+      { 1.0, -0x1.0p-54, -0x1.0p-200, },
+      { Double.MIN_VALUE, 0.5*Double.MIN_NORMAL, -Double.MIN_NORMAL, },
+      { 0x1.0p-1074, 0x1.0p-1074, -0x1.0p-1073, 1.0e-300, -1.0e-300, },
+      { Double.MAX_VALUE, 0x1.0p970, },
+      { -Double.MAX_VALUE, -0x1.0p970, -1.0, }, };
+    for (final double[] x : xs) {
+      final BigDecimal s = sum(x);
+      for (final String className : accumulators()) {
+        final Accumulator a = Common.makeAccumulator(className).addAll(x);
+        // ZhuHayes overflows
+        if ((! a.noOverflow())
+          && (0 < s.abs().compareTo(new BigDecimal(Double.MAX_VALUE)))) {
+          continue; }
+        check(className,a,s); } }
+    for (final String className : accumulators()) {
+      final Accumulator a =
+        Common.makeAccumulator(className)
+        .addAll(new double[] { Double.MAX_VALUE, 0x1.0p970, 1.0, });
+      if (! a.noOverflow()) { continue; }
+      Assertions.assertEquals(
+        Double.POSITIVE_INFINITY,a.doubleValue(RoundingMode.CEILING));
+      Assertions.assertEquals(
+        Double.MAX_VALUE,a.doubleValue(RoundingMode.FLOOR)); } }
+
+  //--------------------------------------------------------------
+}
+//--------------------------------------------------------------
@@ -0,0 +1,119 @@
+package xfp.java.test.accumulators;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import xfp.java.accumulators.BigFloatAccumulator;
+import xfp.java.accumulators.LongAccumulator;
+import xfp.java.accumulators.MappedFiles;
+import xfp.java.prng.Generator;
+import xfp.java.test.Common;
+
+//----------------------------------------------------------------
+/** Sequential and parallel reductions of memory mapped files
+ * with {@link MappedFiles} should match exact reductions of the
+ * same arrays.
+ * <p>
+ * <pre>
+ * mvn -q -Dtest=xfp/java/test/accumulators/MappedFilesTest test > MFT.txt
+ * </pre>
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2019-10-17
+ */
+
+public final class MappedFilesTest {
+
+  // more than 2 chunks, with a partial one at the end
+  private static final int DIM = (2*MappedFiles.CHUNK)+1001;
+
+  private static final Path write (final double[] z)
+    throws IOException {
+    final Path file = Files.createTempFile("xfp",".bin");
+    file.toFile().deleteOnExit();
+    final ByteBuffer b =
+      ByteBuffer.allocate(z.length*Double.BYTES)
+      .order(ByteOrder.LITTLE_ENDIAN);
+    b.asDoubleBuffer().put(z);
+    try (FileChannel c =
+      FileChannel.open(file,StandardOpenOption.WRITE)) {
+      while (b.hasRemaining()) { c.write(b); } }
+    return file; }
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void files () throws IOException {
+    final LongAccumulator e = LongAccumulator.make();
+    for (final Generator g : Common.generators(DIM)) {
+      final double[] x = (double[]) g.next();
+      final double[] y = (double[]) g.next();
+      final Path fx = write(x);
+      final Path fy = write(y);
+      final String name = g.name();
+      final double sum = e.clear().addAll(x).doubleValue();
+      final double sum2 = e.clear().add2All(x).doubleValue();
+      final double dot = e.clear().addProducts(x,y).doubleValue();
+      final double l1d = e.clear().addL1Distance(x,y).doubleValue();
+      final double l2d = e.clear().addL2Distance(x,y).doubleValue();
+      Assertions.assertEquals(sum,MappedFiles.sum(fx),name);
+      Assertions.assertEquals(sum2,MappedFiles.sumOfSquares(fx),name);
+      Assertions.assertEquals(dot,MappedFiles.dot(fx,fy),name);
+      Assertions.assertEquals(l1d,MappedFiles.l1Distance(fx,fy),name);
+      Assertions.assertEquals(l2d,MappedFiles.l2Distance(fx,fy),name);
+      for (final int r : new int[] { 2, 7, }) {
+        Assertions.assertEquals(sum,
+          MappedFiles.sum(LongAccumulator::make,fx,r).doubleValue(),
+          name);
+        Assertions.assertEquals(sum,
+          MappedFiles.sum(BigFloatAccumulator::make,fx,r).doubleValue(),
+          name);
+        Assertions.assertEquals(sum2,
+          MappedFiles.sumOfSquares(LongAccumulator::make,fx,r)
+          .doubleValue(),
+          name);
+        Assertions.assertEquals(dot,
+          MappedFiles.dot(LongAccumulator::make,fx,fy,r).doubleValue(),
+          name);
+        Assertions.assertEquals(l1d,
+          MappedFiles.l1Distance(LongAccumulator::make,fx,fy,r)
+          .doubleValue(),
+          name);
+        Assertions.assertEquals(l2d,
+          MappedFiles.l2Distance(LongAccumulator::make,fx,fy,r)
+          .doubleValue(),
+          name); }
+      Files.delete(fx);
+      Files.delete(fy); } }
+
+  /** Files that aren't whole doubles, or of different lengths,
+   * are rejected.
+   */
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void badFiles () throws IOException {
+    final Path f0 = write(new double[] { 1.0, 2.0, });
+    final Path f1 = write(new double[] { 1.0, 2.0, 3.0, });
+    final Path f2 = Files.createTempFile("xfp",".bin");
+    f2.toFile().deleteOnExit();
+    Files.write(f2,new byte[] { 0, 1, 2, });
+    Assertions.assertThrows(IllegalArgumentException.class,
+      () -> MappedFiles.dot(f0,f1));
+    Assertions.assertThrows(IllegalArgumentException.class,
+      () -> MappedFiles.sum(f2));
+    Assertions.assertEquals(3.0,MappedFiles.sum(f0));
+    Files.delete(f0);
+    Files.delete(f1);
+    Files.delete(f2); }
+
+  //--------------------------------------------------------------
+}
+//--------------------------------------------------------------
@@ -0,0 +1,160 @@
+package xfp.java.test.accumulators;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.upokecenter.numbers.EInteger;
+import com.upokecenter.numbers.ERational;
+
+import xfp.java.accumulators.Collectors;
+import xfp.java.accumulators.MomentsAccumulator;
+import xfp.java.prng.Generator;
+import xfp.java.test.Common;
+
+//----------------------------------------------------------------
+/** Test {@link MomentsAccumulator} against 2 pass, textbook
+ * definitions, in {@link ERational} arithmetic.
+ * <p>
+ * <pre>
+ * mvn -q -Dtest=xfp/java/test/accumulators/MomentsAccumulatorTest test > MAT.txt
+ * </pre>
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2019-10-17
+ */
+
+public final class MomentsAccumulatorTest {
+
+  private static final int DIM = (1024)+1;
+
+  private static final ERational rational (final long n) {
+    return ERational.Create(EInteger.FromInt64(n),EInteger.getOne()); }
+
+  private static final EInteger integer (final BigInteger i) {
+    return EInteger.FromString(i.toString()); }
+
+  /** Every finite double is an integer times
+   * <code>2<sup>-1074</sup></code>.
+   */
+  private static final BigInteger scaled (final double x) {
+    return new BigDecimal(x).multiply(
+      new BigDecimal(BigInteger.ONE.shiftLeft(1074)))
+      .toBigIntegerExact(); }
+
+  /** <code>&Sigma;(x-mean)<sup>k</sup></code>, as
+   * <code>&Sigma;(n*x-&Sigma;x)<sup>k</sup>/n<sup>k</sup></code>,
+   * in integers scaled by <code>2<sup>1074</sup></code>.
+   */
+  private static final ERational
+  centralSum (final double[] x,
+              final int k) {
+    final int n = x.length;
+    final BigInteger[] xs = new BigInteger[n];
+    BigInteger sum = BigInteger.ZERO;
+    for (int i=0;i<n;i++) {
+      xs[i] = scaled(x[i]);
+      sum = sum.add(xs[i]); }
+    final BigInteger nn = BigInteger.valueOf(n);
+    BigInteger s = BigInteger.ZERO;
+    for (final BigInteger xi : xs) {
+      s = s.add(xi.multiply(nn).subtract(sum).pow(k)); }
+    return ERational.Create(
+      integer(s),integer(nn.pow(k).shiftLeft(1074*k))); }
+
+  private static final ERational sum (final double[] x) {
+    BigInteger s = BigInteger.ZERO;
+    for (final double xi : x) { s = s.add(scaled(xi)); }
+    return ERational.Create(
+      integer(s),integer(BigInteger.ONE.shiftLeft(1074))); }
+
+  /** Is <code>s</code> the correctly rounded square root of
+   * <code>v</code>? Ignores exact ties, which can't happen.
+   */
+  private static final boolean isSqrt (final double s,
+                                       final ERational v) {
+    final ERational h = ERational.FromDouble(0.5*Math.ulp(s));
+    final ERational lo = ERational.FromDouble(s).Subtract(h);
+    final ERational hi = ERational.FromDouble(s).Add(h);
+    return (0 <= v.compareTo(lo.Multiply(lo)))
+      && (0 >= v.compareTo(hi.Multiply(hi))); }
+
+  private static final void check (final String name,
+                                   final double[] x,
+                                   final MomentsAccumulator a) {
+    final int n = x.length;
+    Assertions.assertEquals(n,a.count(),name);
+    Assertions.assertEquals(
+      sum(x).Divide(rational(n)).ToDouble(),a.mean(),name);
+    final ERational ss = centralSum(x,2);
+    final ERational v = ss.Divide(rational(n-1));
+    final ERational pv = ss.Divide(rational(n));
+    Assertions.assertEquals(v.ToDouble(),a.variance(),name);
+    Assertions.assertEquals(pv.ToDouble(),a.populationVariance(),name);
+    Assertions.assertTrue(isSqrt(a.standardDeviation(),v),name);
+    Assertions.assertTrue(
+      isSqrt(a.populationStandardDeviation(),pv),name);
+    Assertions.assertEquals(0.0,a.centralMoment(1),name);
+    for (int k=2;k<=a.order();k++) {
+      Assertions.assertEquals(
+        centralSum(x,k).Divide(rational(n)).ToDouble(),
+        a.centralMoment(k),
+        name + " " + k); } }
+
+  //--------------------------------------------------------------
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void moments () {
+    for (final Generator g : Common.generators(DIM)) {
+      final double[] x = (double[]) g.next();
+      final String name = g.name();
+      check(name,x,MomentsAccumulator.make().addAll(x));
+      check(name,x,MomentsAccumulator.make(4).addAll(x));
+      // merge, parallel
+      final int k = x.length/3;
+      final MomentsAccumulator a0 =
+        MomentsAccumulator.make(3).addAll(Arrays.copyOfRange(x,0,k));
+      final MomentsAccumulator a1 =
+        MomentsAccumulator.make(3).addAll(
+          Arrays.copyOfRange(x,k,x.length));
+      check(name + " merged",x,a1.merge(a0));
+      check(name + " parallel",x,
+        Collectors.sum(
+          () -> MomentsAccumulator.make(4),
+          Arrays.stream(x).parallel())); } }
+
+  /** Large mean, small variance: the one pass textbook formula
+   * in <code>double</code> fails completely.
+   */
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void shifted () {
+    final double[] x0 = { 4.0, 7.0, 13.0, 16.0, };
+    for (final double shift : new double[] { 0.0, 1.0e9, 1.0e15, }) {
+      final double[] x = new double[x0.length];
+      for (int i=0;i<x.length;i++) { x[i] = shift + x0[i]; }
+      final MomentsAccumulator a = MomentsAccumulator.make(4).addAll(x);
+      Assertions.assertEquals(10.0 + shift,a.mean());
+      Assertions.assertEquals(30.0,a.variance());
+      Assertions.assertEquals(22.5,a.populationVariance());
+      Assertions.assertEquals(Math.sqrt(30.0),a.standardDeviation());
+      Assertions.assertEquals(0.0,a.centralMoment(3));
+      Assertions.assertEquals(688.5,a.centralMoment(4));
+      check("shift " + shift,x,a); }
+    final MomentsAccumulator a = MomentsAccumulator.make();
+    Assertions.assertTrue(Double.isNaN(a.mean()));
+    Assertions.assertTrue(Double.isNaN(a.add(1.0).variance()));
+    Assertions.assertEquals(0.0,a.populationVariance());
+    Assertions.assertThrows(IllegalArgumentException.class,
+      () -> a.centralMoment(3));
+    Assertions.assertThrows(IllegalArgumentException.class,
+      () -> a.merge(MomentsAccumulator.make(4))); }
+
+  //--------------------------------------------------------------
+}
+//--------------------------------------------------------------
@@ -0,0 +1,136 @@
+package xfp.java.test.accumulators;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import xfp.java.accumulators.Accumulators;
+import xfp.java.prng.Generator;
+import xfp.java.test.Common;
+
+//----------------------------------------------------------------
+/** Euclidean norms, distances, and <code>hypot</code>, from
+ * {@link Accumulators}, should be correctly rounded square
+ * roots of the exact sums of squares, checked in
+ * {@link BigDecimal}.
+ * <p>
+ * <pre>
+ * mvn -q -Dtest=xfp/java/test/accumulators/NormTest test > NoT.txt
+ * </pre>
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2019-10-17
+ */
+
+public final class NormTest {
+
+  private static final int DIM = (1024)+1;
+
+  private static final BigDecimal
+  sumOfSquares (final double[] z) {
+    BigDecimal s = BigDecimal.ZERO;
+    for (final double zi : z) {
+      final BigDecimal d = new BigDecimal(zi);
+      s = s.add(d.multiply(d)); }
+    return s; }
+
+  private static final BigDecimal
+  sumOfSquares (final double[] z0,
+                final double[] z1) {
+    BigDecimal s = BigDecimal.ZERO;
+    for (int i=0;i<z0.length;i++) {
+      final BigDecimal d =
+        new BigDecimal(z0[i]).subtract(new BigDecimal(z1[i]));
+      s = s.add(d.multiply(d)); }
+    return s; }
+
+  /** Is <code>r</code> the correctly rounded square root of
+   * <code>s</code>? Ties are checked separately.
+   */
+  private static final boolean isSqrt (final double r,
+                                       final BigDecimal s) {
+    if (0.0 == r) { return 0 == s.signum(); }
+    final BigDecimal br = new BigDecimal(r);
+    final BigDecimal lo =
+      br.subtract(new BigDecimal(0.5*Math.ulp(Math.nextDown(r))));
+    if (0 > s.compareTo(lo.multiply(lo))) { return false; }
+    if (Double.isInfinite(Math.nextUp(r))) {
+      return true; }
+    final BigDecimal hi = br.add(new BigDecimal(0.5*Math.ulp(r)));
+    return 0 >= s.compareTo(hi.multiply(hi)); }
+
+  //--------------------------------------------------------------
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void norms () {
+    for (final Generator g : Common.generators(DIM)) {
+      final double[] x = (double[]) g.next();
+      final double[] y = (double[]) g.next();
+      final String name = g.name();
+      Assertions.assertTrue(
+        isSqrt(Accumulators.l2Norm(x),sumOfSquares(x)),name);
+      Assertions.assertTrue(
+        isSqrt(Accumulators.l2Distance(x,y),sumOfSquares(x,y)),name);
+      for (int i=0;i+2<x.length;i+=97) {
+        final double[] z = { x[i], x[i+1], x[i+2], };
+        Assertions.assertTrue(
+          isSqrt(Accumulators.hypot(z[0],z[1]),
+            sumOfSquares(new double[] { z[0], z[1], })),
+          name);
+        Assertions.assertTrue(
+          isSqrt(Accumulators.hypot(z[0],z[1],z[2]),sumOfSquares(z)),
+          name); } } }
+
+  /** Exact results, intermediate overflow and underflow,
+   * ties, and non-finite arguments.
+   */
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void edges () {
+    Assertions.assertEquals(0.0,Accumulators.l2Norm(new double[0]));
+    Assertions.assertEquals(5.0,Accumulators.hypot(3.0,-4.0));
+    Assertions.assertEquals(3.0,Accumulators.hypot(1.0,2.0,-2.0));
+    Assertions.assertEquals(
+      5.0,
+      Accumulators.l2Distance(
+        new double[] { 1.0, 1.0, }, new double[] { 4.0, 5.0, }));
+    Assertions.assertEquals(5.0e300,Accumulators.hypot(3.0e300,4.0e300));
+    Assertions.assertEquals(
+      Math.sqrt(2.0)*1.0e200,
+      Accumulators.l2Norm(new double[] { 1.0e200, 1.0e200, }));
+    Assertions.assertEquals(
+      Double.MAX_VALUE,Accumulators.hypot(Double.MAX_VALUE,1.0));
+    Assertions.assertEquals(
+      Double.POSITIVE_INFINITY,
+      Accumulators.hypot(Double.MAX_VALUE,Double.MAX_VALUE));
+    Assertions.assertEquals(
+      Double.MIN_VALUE,Accumulators.hypot(Double.MIN_VALUE,0.0));
+    Assertions.assertEquals(
+      5*Double.MIN_VALUE,
+      Accumulators.hypot(3*Double.MIN_VALUE,4*Double.MIN_VALUE));
+    Assertions.assertEquals(
+      Math.sqrt(2.0)*0x1.0p-1000,
+      Accumulators.hypot(0x1.0p-1000,0x1.0p-1000));
+    // 1 + 2^-52 + 2^-106 = (1+2^-53)^2, an exact tie between
+    // 1 and 1+2^-52, which rounds to even; anything more rounds
+    // up, but the rounded sum is 1+2^-52, whose root rounds
+    // to 1
+    Assertions.assertEquals(
+      1.0,
+      Accumulators.l2Norm(new double[] { 1.0, 0x1.0p-26, 0x1.0p-53, }));
+    Assertions.assertEquals(
+      1.0 + 0x1.0p-52,
+      Accumulators.l2Norm(
+        new double[] { 1.0, 0x1.0p-26, 0x1.0p-53, 0x1.0p-600, }));
+    Assertions.assertEquals(
+      Double.POSITIVE_INFINITY,
+      Accumulators.hypot(Double.NaN,Double.NEGATIVE_INFINITY));
+    Assertions.assertTrue(
+      Double.isNaN(Accumulators.hypot(Double.NaN,1.0,2.0))); }
+
+  //--------------------------------------------------------------
+}
+//--------------------------------------------------------------
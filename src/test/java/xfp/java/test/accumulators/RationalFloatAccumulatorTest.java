@@ -2,8 +2,12 @@ package xfp.java.test.accumulators;
 
 import java.util.List;
 
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import xfp.java.accumulators.Accumulator;
+import xfp.java.accumulators.RationalFloatAccumulator;
+import xfp.java.numbers.RationalFloat;
 import xfp.java.test.Common;
 
 //----------------------------------------------------------------
@@ -14,7 +18,7 @@ import xfp.java.test.Common;
  * </pre>
  *
  * @author palisades dot lakes at gmail dot com
- * @version 2019-10-07
+ * @version 2019-10-17
  */
 
 public final class RationalFloatAccumulatorTest {
@@ -45,6 +49,67 @@ public final class RationalFloatAccumulatorTest {
     //Debug.DEBUG=false;
   }
 
+  /** Values with lazy normalization, reducing always, and
+   * occasionally.
+   */
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void lazy () {
+    final List<Accumulator> lazy =
+      List.of(
+        RationalFloatAccumulator.make(0),
+        RationalFloatAccumulator.make(4));
+    Common.l2Tests(
+      Common.generators(DIM),lazy,EFloatAccumulator.make());
+    Common.sumTests(
+      Common.generators(DIM),lazy,EFloatAccumulator.make());
+    Common.dotTests(
+      Common.generators(DIM),lazy,EFloatAccumulator.make()); }
+
+  private static final int words (final Accumulator a) {
+    return ((RationalFloat) a.value()).words(); }
+
+  /** A zero squared difference of tiny values leaves the
+   * numerator with about 1000 trailing zero bits, unless the
+   * sum is reduced.
+   * <code>make(0)</code> keeps the sum fully reduced;
+   * <code>make(t)</code>, smaller than <code>t</code> or twice
+   * the reduced size, so <code>make(64)</code> never reduces
+   * it.
+   */
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void sizes () {
+    final Accumulator never = RationalFloatAccumulator.make();
+    final Accumulator always = RationalFloatAccumulator.make(0);
+    final Accumulator t4 = RationalFloatAccumulator.make(4);
+    final Accumulator t8 = RationalFloatAccumulator.make(8);
+    final Accumulator t64 = RationalFloatAccumulator.make(64);
+    final List<Accumulator> all = List.of(never,always,t4,t8,t64);
+    for (int i=0;i<256;i++) {
+      final double z = 0x1.0p-500*(i+1);
+      for (final Accumulator a : all) { a.add(i+1.0).addL2(z,z); }
+      final RationalFloat s = (RationalFloat) always.value();
+      final int w = words(always);
+      Assertions.assertEquals(s.reduce(0).words(),w);
+      Assertions.assertTrue(words(t4) < Math.max(4,2*w));
+      Assertions.assertTrue(words(t8) < Math.max(8,2*w));
+      Assertions.assertTrue(words(never) > 30);
+      Assertions.assertEquals(words(never),words(t64)); }
+    // a reduced size of about 33 words, which doubling wouldn't
+    // reduce again
+    for (final Accumulator a : all) { a.add(0x1.0p-1000); }
+    for (int i=0;i<16;i++) {
+      final double z = 0x1.0p-530*(i+1);
+      for (final Accumulator a : all) { a.add(i+1.0).addL2(z,z); }
+      final RationalFloat s = (RationalFloat) always.value();
+      Assertions.assertEquals(s.reduce(0).words(),words(always)); }
+    for (final Accumulator a : all) {
+      Assertions.assertEquals(
+        never.doubleValue(),a.doubleValue()); } }
+
   //--------------------------------------------------------------
 }
 //--------------------------------------------------------------
@@ -0,0 +1,70 @@
+package xfp.java.test.accumulators;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import xfp.java.accumulators.LongAccumulator;
+import xfp.java.accumulators.ShewchukAccumulator;
+import xfp.java.prng.Generator;
+import xfp.java.test.Common;
+
+//----------------------------------------------------------------
+/** Test partial sums from {@link ShewchukAccumulator}.
+ * Totals are tested with the other accumulators in
+ * {@link SumTest}.
+ * <p>
+ * <pre>
+ * mvn -q -Dtest=xfp/java/test/accumulators/ShewchukAccumulatorTest test > SAT.txt
+ * </pre>
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2019-10-17
+ */
+
+public final class ShewchukAccumulatorTest {
+
+  private static final int DIM = 64*1024;
+
+  /** Every partial sum must match another exact accumulator.
+   */
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void partialSums () {
+    final ShewchukAccumulator a = ShewchukAccumulator.make();
+    final LongAccumulator b = LongAccumulator.make();
+    for (final Generator g : Common.generators(DIM)) {
+      final double[] x = (double[]) g.next();
+      final double[] y = (double[]) g.next();
+      Assertions.assertArrayEquals(b.partialSums(x),a.partialSums(x));
+      Assertions.assertArrayEquals(
+        b.partialDots(x,y),a.partialDots(x,y)); } }
+
+  /** Round once to <code>float</code>, and keep the sign of a
+   * zero sum.
+   */
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void edges () {
+    final ShewchukAccumulator a = ShewchukAccumulator.make();
+    Assertions.assertEquals(0x1.000002p0F,
+      a.add(1.0 + 0x1.0p-24).add(0x1.0p-80).floatValue());
+    Assertions.assertEquals(0x1.0p0F,
+      a.clear().add(1.0 + 0x1.0p-24).add(-0x1.0p-80).floatValue());
+    Assertions.assertEquals(-0x1.000002p0F,
+      a.clear().add(-1.0 - 0x1.0p-24).add(-0x1.0p-80).floatValue());
+    Assertions.assertEquals(0x1.fffffep-1F,
+      a.clear().add(1.0).add(-0x1.0p-25).add(-0x1.0p-80).floatValue());
+    Assertions.assertEquals(0x1.0p0F,
+      a.clear().add(1.0).add(-0x1.0p-80).floatValue());
+    Assertions.assertEquals(-0.0,
+      a.clear().addProduct(-2.35e-278,1.85e-302).doubleValue());
+    Assertions.assertEquals(-0.0F,a.floatValue());
+    Assertions.assertEquals(0.0,a.add(0.0).doubleValue());
+    Assertions.assertEquals(0.0,
+      a.clear().add(1.0).add(-1.0).doubleValue()); }
+
+  //--------------------------------------------------------------
+}
+//--------------------------------------------------------------
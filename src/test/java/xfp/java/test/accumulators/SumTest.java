@@ -12,7 +12,7 @@ import xfp.java.test.Common;
  * </pre>
  *
  * @author palisades dot lakes at gmail dot com
- * @version 2019-08-08
+ * @version 2019-10-17
  */
 
 public final class SumTest {
@@ -106,6 +106,33 @@ public final class SumTest {
     //Debug.DEBUG=false;
   }
 
+  @SuppressWarnings("static-method")
+  @Test
+  public final void merge () {
+    Common.mergeTests(
+      Common.generators(DIM),
+      Common.accumulators(),
+      EFloatAccumulator.make()); }
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void parallel () {
+    // small threshold to force splitting
+    Common.parallelTests(
+      Common.generators(DIM),
+      Common.accumulators(),
+      EFloatAccumulator.make(),
+      31); }
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void parallelScan () {
+    // small threshold to force splitting
+    Common.parallelScanTests(
+      Common.generators(DIM),
+      Common.accumulators(),
+      31); }
+
   @SuppressWarnings("static-method")
   @Test
   public final void infiniteSum () {
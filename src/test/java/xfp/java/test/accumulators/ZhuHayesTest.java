@@ -1,9 +1,20 @@
 package xfp.java.test.accumulators;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import xfp.java.accumulators.BigFloatAccumulator;
+import xfp.java.accumulators.ZhuHayesAccumulator;
+import xfp.java.numbers.Doubles;
+import xfp.java.prng.Generator;
 import xfp.java.test.Common;
 
 //----------------------------------------------------------------
@@ -14,7 +25,7 @@ import xfp.java.test.Common;
  * </pre>
  *
  * @author palisades dot lakes at gmail dot com
- * @version 2019-07-24
+ * @version 2019-10-17
  */
 
 public final class ZhuHayesTest {
@@ -96,6 +107,105 @@ public final class ZhuHayesTest {
     Common.overflowTests(
       Common.makeAccumulators(accumulators)); }
 
+  /** Separate accumulators, rounded concurrently, must agree
+   * with the same sums rounded one at a time.
+   */
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void threads ()
+    throws InterruptedException, ExecutionException {
+    final int nthreads = 4;
+    final ExecutorService pool = Executors.newFixedThreadPool(nthreads);
+    try {
+      for (final Generator g : Common.generators(TEST_DIM)) {
+        final double[][] x = new double[nthreads][];
+        final double[] expected = new double[nthreads];
+        for (int k=0;k<nthreads;k++) {
+          x[k] = (double[]) g.next();
+          expected[k] =
+            ZhuHayesAccumulator.make().addAll(x[k]).doubleValue(); }
+        final List<Future<double[]>> futures = new ArrayList<>();
+        for (int k=0;k<nthreads;k++) {
+          final double[] xk = x[k];
+          futures.add(pool.submit(() -> {
+            final ZhuHayesAccumulator a = ZhuHayesAccumulator.make();
+            final double[] z = new double[xk.length];
+            for (int i=0;i<xk.length;i++) {
+              z[i] = a.add(xk[i]).doubleValue(); }
+            return z; })); }
+        for (int k=0;k<nthreads;k++) {
+          final double[] z = futures.get(k).get();
+          Assertions.assertEquals(
+            expected[k],z[z.length-1],g.name()); } } }
+    finally { pool.shutdown(); } }
+
+  //--------------------------------------------------------------
+  // batches across a compaction
+  //--------------------------------------------------------------
+
+  private static final int COMPACTION_DIM = 33;
+
+  /** Adds between compactions. */
+  private static final int NADDS =
+    1 << (Doubles.SIGNIFICAND_BITS / 2);
+
+  private static final ByteBuffer encode (final ZhuHayesAccumulator a) {
+    final ByteBuffer b = ByteBuffer.allocate(a.encodedSize());
+    a.writeTo(b);
+    return b.flip(); }
+
+  /** The add count follows the 2 byte header. */
+  private static final int adds (final ZhuHayesAccumulator a) {
+    return encode(a).getInt(2); }
+
+  /** A copy of <code>a</code>, with room for only
+   * <code>room</code> more adds before it compacts.
+   */
+  private static final ZhuHayesAccumulator
+  nearLimit (final ZhuHayesAccumulator a,
+             final int room) {
+    final ByteBuffer b = encode(a);
+    b.putInt(2,NADDS-room);
+    return ZhuHayesAccumulator.make().readFrom(b); }
+
+  //--------------------------------------------------------------
+  /** Batches that start within a few adds of a compaction
+   * must match element by element adds, and the exact sum.
+   * With one add of room left, <code>addProducts</code>
+   * compacts before the first product.
+   */
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void compaction () {
+    for (final Generator g : Common.generators(COMPACTION_DIM)) {
+      final double[] x = (double[]) g.next();
+      final double[] y = (double[]) g.next();
+      final ZhuHayesAccumulator base = ZhuHayesAccumulator.make().addAll(y);
+      final double sum =
+        BigFloatAccumulator.make().addAll(y).addAll(x).doubleValue();
+      final double dot =
+        BigFloatAccumulator.make().addAll(y).addProducts(x,y)
+        .doubleValue();
+      for (int room=1;room<=4;room++) {
+        final String name = g.name() + " " + room;
+
+        final ZhuHayesAccumulator a = nearLimit(base,room).addAll(x);
+        final ZhuHayesAccumulator e = nearLimit(base,room);
+        for (final double xi : x) { e.add(xi); }
+        Assertions.assertTrue(adds(a) < (NADDS-room),name);
+        Assertions.assertEquals(encode(e),encode(a),name);
+        Assertions.assertEquals(sum,a.doubleValue(),name);
+
+        final ZhuHayesAccumulator p =
+          nearLimit(base,room).addProducts(x,y);
+        final ZhuHayesAccumulator q = nearLimit(base,room);
+        for (int i=0;i<x.length;i++) { q.addProduct(x[i],y[i]); }
+        Assertions.assertTrue(adds(p) < (NADDS-room),name);
+        Assertions.assertEquals(q.doubleValue(),p.doubleValue(),name);
+        Assertions.assertEquals(dot,p.doubleValue(),name); } } }
+
   //--------------------------------------------------------------
 }
 //--------------------------------------------------------------
@@ -1,5 +1,8 @@
 package xfp.java.test.numbers;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
 import java.util.function.BinaryOperator;
 
 import org.junit.jupiter.api.Assertions;
@@ -7,7 +10,10 @@ import org.junit.jupiter.api.Test;
 
 import xfp.java.numbers.BigFloat;
 import xfp.java.numbers.BigFloats;
+import xfp.java.numbers.Doubles;
+import xfp.java.numbers.MutableBigFloat;
 import xfp.java.numbers.Natural;
+import xfp.java.numbers.NaturalLong;
 import xfp.java.numbers.Numbers;
 import xfp.java.prng.Generator;
 import xfp.java.prng.PRNG;
@@ -80,6 +86,149 @@ public final class BigFloatTest {
       final BigFloat xx = x.multiply(x);
       Assertions.assertEquals(x2,xx); } }
 
+  /** {@link MutableBigFloat} must match the immutable
+   * {@link BigFloat} sums, including exact cancellation.
+   */
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void mutableTest () {
+    final Generator g =
+      Doubles.finiteGenerator(
+        PRNG.well44497b("seeds/Well44497b-2019-01-05.txt"));
+    for (int i=0;i<TRYS;i++) {
+      final MutableBigFloat m = MutableBigFloat.make();
+      BigFloat b = BigFloat.ZERO;
+      for (int j=0;j<=i;j++) {
+        final double x0 = g.nextDouble();
+        final double x1 = g.nextDouble();
+        m.add(x0).addProduct(x0,x1).addL2(x1,x0);
+        b = b.add(x0).addProduct(x0,x1).addL2(x1,x0);
+        Assertions.assertEquals(b.doubleValue(),m.doubleValue()); }
+      Assertions.assertEquals(0,b.compareTo(m.bigFloatValue()));
+      m.add(m).add(b.negate()).add(b.negate());
+      Assertions.assertTrue(m.isZero(),m.toString()); } }
+
+  /** The same sums, starting from a {@link NaturalLong}
+   * significand, stay on {@link NaturalLong} and match.
+   */
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void naturalLongTest () {
+    final Generator g =
+      Doubles.finiteGenerator(
+        PRNG.well44497b("seeds/Well44497b-2019-01-05.txt"));
+    for (int i=0;i<TRYS;i+=8) {
+      BigFloat b = BigFloat.ZERO;
+      BigFloat l = BigFloat.valueOf(true,NaturalLong.ZERO,0);
+      for (int j=0;j<=i;j++) {
+        final double x0 = g.nextDouble();
+        final double x1 = g.nextDouble();
+        b = b.add(x0).addProduct(x0,x1).addL2(x1,x0).add2(x1);
+        l = l.add(x0).addProduct(x0,x1).addL2(x1,x0).add2(x1);
+        Assertions.assertTrue(l.significand() instanceof NaturalLong);
+        Assertions.assertEquals(b,l);
+        Assertions.assertEquals(b.doubleValue(),l.doubleValue()); }
+      Assertions.assertEquals(b.square(),l.square());
+      Assertions.assertEquals(
+        b.abs().sqrt(RoundingMode.HALF_EVEN),
+        l.abs().sqrt(RoundingMode.HALF_EVEN));
+      final BigFloat z = l.add(b.negate());
+      Assertions.assertTrue(z.isZero());
+      Assertions.assertTrue(z.significand() instanceof NaturalLong); } }
+
+  private static final BigDecimal decimal (final double x) {
+    return new BigDecimal(x); }
+
+  /** Check every rounding mode against the floor and ceiling
+   * of the root, in exact {@link BigDecimal} arithmetic.
+   */
+  private static final void sqrt (final BigFloat x) {
+    final BigDecimal t = new BigDecimal(x.significand().bigIntegerValue());
+    final int e = x.exponent();
+    final BigDecimal xx =
+      (0 <= e)
+      ? t.multiply(new BigDecimal(BigInteger.ONE.shiftLeft(e)))
+        : t.divide(new BigDecimal(BigInteger.ONE.shiftLeft(-e)));
+    final double lo = x.sqrt(RoundingMode.FLOOR);
+    final double hi = x.sqrt(RoundingMode.CEILING);
+    final String msg = x.toString();
+    Assertions.assertEquals(lo,x.sqrt(RoundingMode.DOWN),msg);
+    Assertions.assertEquals(hi,x.sqrt(RoundingMode.UP),msg);
+    Assertions.assertTrue(0 >= decimal(lo).pow(2).compareTo(xx),msg);
+    if (Double.isInfinite(hi)) {
+      Assertions.assertEquals(Double.MAX_VALUE,lo,msg);
+      return; }
+    Assertions.assertTrue(0 <= decimal(hi).pow(2).compareTo(xx),msg);
+    final int exact = decimal(lo).pow(2).compareTo(xx);
+    if (0 == exact) {
+      Assertions.assertEquals(lo,hi,msg);
+      Assertions.assertEquals(lo,x.sqrt(RoundingMode.UNNECESSARY),msg);
+      Assertions.assertEquals(lo,x.sqrt(RoundingMode.HALF_EVEN),msg);
+      return; }
+    Assertions.assertEquals(Math.nextUp(lo),hi,msg);
+    Assertions.assertThrows(ArithmeticException.class,
+      () -> x.sqrt(RoundingMode.UNNECESSARY));
+    final BigDecimal mid =
+      decimal(lo).add(decimal(hi)).divide(BigDecimal.valueOf(2));
+    final int c = xx.compareTo(mid.pow(2));
+    final double even =
+      (0 == (Double.doubleToRawLongBits(lo) & 1L)) ? lo : hi;
+    Assertions.assertEquals(
+      (0 > c) ? lo : (0 < c) ? hi : even,
+      x.sqrt(RoundingMode.HALF_EVEN),msg);
+    Assertions.assertEquals(
+      (0 > c) ? lo : hi,
+      x.sqrt(RoundingMode.HALF_UP),msg);
+    Assertions.assertEquals(
+      (0 < c) ? hi : lo,
+      x.sqrt(RoundingMode.HALF_DOWN),msg); }
+
+  /** {@link BigFloat#sqrt(RoundingMode)} of exact products of
+   * doubles, which range far beyond <code>double</code>, exact
+   * squares, and the edges of the <code>double</code> range.
+   */
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void sqrtTest () {
+    final Generator g =
+      Doubles.finiteGenerator(
+        PRNG.well44497b("seeds/Well44497b-2019-01-07.txt"));
+    for (int i=0;i<TRYS;i++) {
+      final double x0 = Math.abs(g.nextDouble());
+      final double x1 = Math.abs(g.nextDouble());
+      sqrt(BigFloat.valueOf(x0).multiply(x1));
+      sqrt(BigFloat.valueOf(x0));
+      final BigFloat x2 = BigFloat.valueOf(x0).square();
+      sqrt(x2);
+      Assertions.assertEquals(x0,x2.sqrt(RoundingMode.UNNECESSARY)); }
+    for (final double x : new double[] {
+      1.0, 2.0, 3.0, Double.MIN_VALUE, 2*Double.MIN_VALUE,
+      Double.MIN_NORMAL, Double.MAX_VALUE, }) {
+      sqrt(BigFloat.valueOf(x));
+      sqrt(BigFloat.valueOf(x).multiply(x).add(BigFloat.valueOf(1.0))); }
+    Assertions.assertEquals(
+      Double.MAX_VALUE,
+      BigFloat.valueOf(Double.MAX_VALUE).square()
+      .sqrt(RoundingMode.UNNECESSARY));
+    Assertions.assertEquals(
+      Double.POSITIVE_INFINITY,
+      BigFloat.valueOf(Double.MAX_VALUE).multiply(4.0)
+      .multiply(Double.MAX_VALUE).sqrt(RoundingMode.HALF_EVEN));
+    Assertions.assertEquals(
+      Double.MAX_VALUE,
+      BigFloat.valueOf(Double.MAX_VALUE).multiply(4.0)
+      .multiply(Double.MAX_VALUE).sqrt(RoundingMode.FLOOR));
+    Assertions.assertEquals(
+      Double.MIN_VALUE,
+      BigFloat.valueOf(Double.MIN_VALUE).multiply(0.5)
+      .multiply(Double.MIN_VALUE).sqrt(RoundingMode.UP));
+    Assertions.assertEquals(0.0,BigFloat.ZERO.sqrt(RoundingMode.UP));
+    Assertions.assertTrue(
+      Double.isNaN(BigFloat.valueOf(-2.0).sqrt(RoundingMode.FLOOR))); }
+
   //--------------------------------------------------------------
 }
 //--------------------------------------------------------------
@@ -0,0 +1,140 @@
+package xfp.java.test.numbers;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import xfp.java.numbers.Natural;
+import xfp.java.numbers.NaturalLong;
+import xfp.java.prng.Generator;
+import xfp.java.prng.Generators;
+import xfp.java.prng.PRNG;
+import xfp.java.test.Common;
+
+//----------------------------------------------------------------
+/** Test {@link NaturalLong} against {@link BigInteger} and
+ * {@link Natural}.
+ * <p>
+ * <pre>
+ * mvn -q -Dtest=xfp/java/test/numbers/NaturalLongTest test > NLT.txt
+ * </pre>
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2019-10-17
+ */
+
+public final class NaturalLongTest {
+
+  private static final int TRYS = 63;
+
+  private static final void
+  ringlikeTest (final BigInteger z0,
+                final BigInteger z1) {
+    Common.naturalTest(
+      NaturalLong::valueOf,
+      NaturalLong::valueOf,
+      Natural::bigIntegerValue,
+      z0,z1); }
+
+  private static final void
+  longTest (final BigInteger z0,
+            final long u,
+            final int shift) {
+    final NaturalLong y0 = NaturalLong.valueOf(z0);
+    final BigInteger bu = new BigInteger(Long.toUnsignedString(u));
+    Assertions.assertEquals(z0.add(bu),y0.add(u).bigIntegerValue());
+    Assertions.assertEquals(
+      z0.multiply(bu),y0.multiply(u).bigIntegerValue());
+    Assertions.assertEquals(
+      z0,y0.add(u).subtract(u).bigIntegerValue());
+    Assertions.assertEquals(
+      z0.shiftLeft(shift),y0.shiftUp(shift).bigIntegerValue());
+    Assertions.assertEquals(
+      z0.shiftRight(shift),y0.shiftDown(shift).bigIntegerValue());
+    Assertions.assertEquals(z0.bitLength(),y0.hiBit());
+    Assertions.assertEquals(z0.testBit(shift),y0.testBit(shift));
+    final BigInteger bs = bu.shiftLeft(shift);
+    Assertions.assertEquals(
+      z0.add(bs),y0.add(u,shift).bigIntegerValue());
+    Assertions.assertEquals(
+      z0,y0.add(u,shift).subtract(u,shift).bigIntegerValue());
+    Assertions.assertEquals(
+      z0.compareTo(bu.shiftRight(1).shiftLeft(shift)),
+      y0.compareTo(u>>>1,shift));
+    Assertions.assertEquals(
+      z0.compareTo(bu.shiftRight(1)),y0.compareTo(u>>>1));
+    Assertions.assertEquals(
+      z0.shiftRight(shift).longValue(),y0.getShiftedLong(shift));
+    Assertions.assertEquals(
+      z0.setBit(shift),y0.setBit(shift).bigIntegerValue());
+    final Natural n0 = Natural.valueOf(z0);
+    Assertions.assertEquals(n0,y0.naturalValue());
+    Assertions.assertEquals(y0,NaturalLong.valueOf(n0));
+    // mixed representations: equal, same hash and encoding,
+    // NaturalLong results
+    Assertions.assertEquals(n0,y0);
+    Assertions.assertEquals(y0,n0);
+    Assertions.assertEquals(n0.hashCode(),y0.hashCode());
+    Assertions.assertEquals(n0.encodedSize(),y0.encodedSize());
+    Assertions.assertEquals(
+      n0.writeTo(ByteBuffer.allocate(n0.encodedSize())).flip(),
+      y0.writeTo(ByteBuffer.allocate(y0.encodedSize())).flip());
+    final Natural y2 = y0.add(n0);
+    final Natural n2 = n0.add(y0);
+    Assertions.assertTrue(y2 instanceof NaturalLong);
+    Assertions.assertTrue(n2 instanceof NaturalLong);
+    Assertions.assertFalse(n0.add(n0) instanceof NaturalLong);
+    Assertions.assertEquals(z0.shiftLeft(1),y2.bigIntegerValue());
+    Assertions.assertEquals(n2,y2);
+    Assertions.assertTrue(n0.multiply(y0) instanceof NaturalLong);
+    Assertions.assertTrue(n0.absDiff(y2) instanceof NaturalLong);
+    Assertions.assertTrue(
+      n0.add(y0,shift).subtract(y0) instanceof NaturalLong);
+    Assertions.assertEquals(y0.square(),n0.multiply(y0));
+    final int iw = (shift>>>5);
+    Assertions.assertEquals(
+      n0.setWord(iw,(int) u),y0.setWord(iw,(int) u));
+    Assertions.assertEquals(n0.setWord(iw,0),y0.setWord(iw,0));
+    final int i1 = Math.min(n0.hiInt(),2*iw+3);
+    Assertions.assertEquals(n0.words(iw,i1),y0.words(iw,i1));
+    Assertions.assertEquals(
+      n0.getShiftedInt(shift),y0.getShiftedInt(shift));
+    if (! n0.isZero()) {
+      final Natural q = n0.add(n0).divide(y0);
+      Assertions.assertTrue(q instanceof NaturalLong);
+      Assertions.assertEquals(Natural.valueOf(2L),q); }
+    Assertions.assertEquals(
+      z0.shiftLeft(shift).add(z0),
+      n0.add(y0,shift).bigIntegerValue());
+    Assertions.assertEquals(
+      0,Double.compare(z0.doubleValue(),y0.doubleValue()));
+    Assertions.assertEquals(
+      0,Float.compare(z0.floatValue(),y0.floatValue())); }
+
+  @SuppressWarnings({ "static-method" })
+  @Test
+  public final void naturalLong () {
+    final Generator gn =
+      Generators.bigIntegerGenerator(
+        PRNG.well44497b("seeds/Well44497b-2019-01-05.txt"));
+    final Generator gl =
+      Generators.bigIntegerGenerator(
+        PRNG.well44497b("seeds/Well44497b-2019-01-07.txt"));
+    for (int i=0;i<TRYS;i++) {
+      final BigInteger z0 = ((BigInteger) gn.next()).abs();
+      final BigInteger z1 = ((BigInteger) gn.next()).abs();
+      // shorter numbers, below the Karatsuba thresholds
+      final int s = (int) ((BigInteger) gl.next()).abs().mod(
+        BigInteger.valueOf(z0.bitLength()+1)).longValue();
+      final long u = ((BigInteger) gl.next()).longValue();
+      ringlikeTest(z0,z1);
+      ringlikeTest(z0.shiftRight(s),z1);
+      ringlikeTest(z1.shiftRight(s),z0.shiftRight(s/2));
+      longTest(z0,u,s);
+      longTest(z1.shiftRight(s),u,s); } }
+
+  //--------------------------------------------------------------
+}
+//--------------------------------------------------------------
@@ -1,10 +1,19 @@
 package xfp.java.test.numbers;
 
 import java.math.BigInteger;
+import java.util.List;
 
+import org.apache.commons.rng.UniformRandomProvider;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import xfp.java.numbers.Natural;
+import xfp.java.numbers.NaturalMultiply;
+import xfp.java.numbers.NaturalNTT;
+import xfp.java.numbers.NaturalSqrt;
+import xfp.java.prng.Generator;
+import xfp.java.prng.Generators;
+import xfp.java.prng.PRNG;
 import xfp.java.test.Common;
 
 //----------------------------------------------------------------
@@ -15,11 +24,184 @@ import xfp.java.test.Common;
  * </pre>
  *
  * @author palisades dot lakes at gmail dot com
- * @version 2019-09-04
+ * @version 2019-10-17
  */
 
 public final class NaturalTest {
 
+  /** Concatenate <code>n</code> generated numbers, to get
+   * operands large enough for Toom-Cook 3.
+   */
+  private static final BigInteger large (final Generator g,
+                                         final int n) {
+    BigInteger z = BigInteger.ZERO;
+    for (int i=0;i<n;i++) {
+      final BigInteger zi = ((BigInteger) g.next()).abs();
+      z = z.shiftLeft(zi.bitLength()).or(zi); }
+    return z; }
+
+  @SuppressWarnings({ "static-method" })
+  @Test
+  public final void parallelMultiply () {
+    final Generator g =
+      Generators.bigIntegerGenerator(
+        PRNG.well44497b("seeds/Well44497b-2019-01-05.txt"));
+    for (int i=1;i<16;i++) {
+      final BigInteger z0 = large(g,i);
+      final BigInteger z1 = large(g,17-i);
+      final Natural n0 = Natural.valueOf(z0);
+      final Natural n1 = Natural.valueOf(z1);
+      final BigInteger p = z0.multiply(z1);
+      final BigInteger s = z0.multiply(z0);
+      for (final int threshold : new int[] { 1, 64, Integer.MAX_VALUE, }) {
+        Assertions.assertEquals(p,
+          NaturalMultiply.multiply(n0,n1,threshold).bigIntegerValue());
+        Assertions.assertEquals(s,
+          NaturalMultiply.square(n0,threshold).bigIntegerValue()); }
+      Assertions.assertEquals(p,n0.multiply(n1).bigIntegerValue());
+      Assertions.assertEquals(s,n0.square().bigIntegerValue()); } }
+
+  /** Schoolbook sizes, on either side of the switch to 64 bit
+   * words.
+   */
+
+  @SuppressWarnings({ "static-method" })
+  @Test
+  public final void schoolbook () {
+    final UniformRandomProvider urp =
+      PRNG.well44497b("seeds/Well44497b-2019-01-07.txt");
+    for (int n0=1;n0<100;n0+=3) {
+      for (int n1=1;n1<100;n1+=7) {
+        final BigInteger z0 =
+          new BigInteger(1,Generators.nextBytes(urp,4*n0));
+        final BigInteger z1 =
+          new BigInteger(1,Generators.nextBytes(urp,4*n1));
+        final Natural u0 = Natural.valueOf(z0);
+        final Natural u1 = Natural.valueOf(z1);
+        Assertions.assertEquals(z0.multiply(z1),
+          u0.multiply(u1).bigIntegerValue());
+        Assertions.assertEquals(z0.multiply(z0),
+          u0.square().bigIntegerValue()); } } }
+
+  private static final void gcd (final BigInteger z0,
+                                 final BigInteger z1) {
+    final Natural n0 = Natural.valueOf(z0);
+    final Natural n1 = Natural.valueOf(z1);
+    final BigInteger g = z0.gcd(z1);
+    Assertions.assertEquals(g,n0.gcd(n1).bigIntegerValue());
+    Assertions.assertEquals(g,n1.gcd(n0).bigIntegerValue()); }
+
+  /** <code>{ F(n), F(n+1) }</code>, by doubling. */
+
+  private static final BigInteger[] fibonacci (final int n) {
+    if (0==n) { return new BigInteger[] { BigInteger.ZERO, BigInteger.ONE, }; }
+    final BigInteger[] f = fibonacci(n/2);
+    final BigInteger f0 = f[0];
+    final BigInteger f1 = f[1];
+    // F(2k) = F(k) (2 F(k+1) - F(k)), F(2k+1) = F(k)^2 + F(k+1)^2
+    final BigInteger g0 = f0.multiply(f1.shiftLeft(1).subtract(f0));
+    final BigInteger g1 = f0.multiply(f0).add(f1.multiply(f1));
+    if (0==(n%2)) { return new BigInteger[] { g0, g1, }; }
+    return new BigInteger[] { g1, g0.add(g1), }; }
+
+  /** Euclid, Lehmer, and half gcd, with common factors, and
+   * consecutive Fibonacci numbers, which have all quotients 1.
+   */
+
+  @SuppressWarnings({ "static-method" })
+  @Test
+  public final void gcd () {
+    final Generator g =
+      Generators.bigIntegerGenerator(
+        PRNG.well44497b("seeds/Well44497b-2019-01-05.txt"));
+    for (int i=0;i<32;i++) {
+      final BigInteger z0 = large(g,1+(i%4)).shiftRight(i*61);
+      final BigInteger z1 = large(g,1+(i/8));
+      final BigInteger z2 = large(g,1).shiftRight(i*97);
+      gcd(z0,z1);
+      gcd(z0.multiply(z2),z1.multiply(z2));
+      gcd(z0.multiply(z2),z0.add(BigInteger.ONE).multiply(z2)); }
+    BigInteger f0 = BigInteger.ONE;
+    BigInteger f1 = BigInteger.ONE;
+    for (int i=0;i<32768;i++) {
+      final BigInteger f2 = f0.add(f1);
+      f0 = f1;
+      f1 = f2;
+      if (0==(i%1024)) { gcd(f1,f0); } }
+    // above the half gcd threshold, too large for
+    // BigInteger.gcd, so with a known gcd
+    final BigInteger[] f = fibonacci(3200000);
+    final BigInteger z = large(g,4);
+    Assertions.assertEquals(z,
+      Natural.valueOf(f[1].multiply(z))
+      .gcd(Natural.valueOf(f[0].multiply(z)))
+      .bigIntegerValue()); }
+
+  private static final void sqrt (final BigInteger z) {
+    final BigInteger[] sr = z.sqrtAndRemainder();
+    final Natural n = Natural.valueOf(z);
+    for (final int threshold : new int[] { 1, 8, Integer.MAX_VALUE, }) {
+      final List<Natural> nsr = NaturalSqrt.sqrtAndRemainder(n,threshold);
+      Assertions.assertEquals(sr[0],nsr.get(0).bigIntegerValue());
+      Assertions.assertEquals(sr[1],nsr.get(1).bigIntegerValue()); }
+    Assertions.assertEquals(sr[0],n.sqrt().bigIntegerValue()); }
+
+  /** Against {@link BigInteger#sqrtAndRemainder()}, including
+   * perfect squares, and one less, by Newton's method and
+   * Karatsuba square root.
+   */
+
+  @SuppressWarnings({ "static-method" })
+  @Test
+  public final void sqrt () {
+    final Generator g =
+      Generators.bigIntegerGenerator(
+        PRNG.well44497b("seeds/Well44497b-2019-01-05.txt"));
+    for (final long z : new long[] { 0L, 1L, 2L, 3L, 4L, 99L, }) {
+      sqrt(BigInteger.valueOf(z)); }
+    // leading divisor word equal to the leading dividend word,
+    // in the Newton steps
+    final BigInteger m = BigInteger.ONE.shiftLeft(64).subtract(
+      BigInteger.valueOf(2048));
+    sqrt(m.multiply(m));
+    Assertions.assertEquals(m,
+      Natural.valueOf(m.multiply(m)).divide(Natural.valueOf(m))
+      .bigIntegerValue());
+    for (int i=0;i<64;i++) {
+      final BigInteger z = large(g,1+(i%8)).shiftRight(i*7);
+      sqrt(z);
+      sqrt(z.multiply(z));
+      sqrt(z.multiply(z).subtract(BigInteger.ONE).abs()); }
+    // all ones, and one more
+    for (final int b : new int[] { 63, 64, 65, 127, 128, 4095, 4096, }) {
+      final BigInteger z = BigInteger.ONE.shiftLeft(b);
+      sqrt(z.subtract(BigInteger.ONE));
+      sqrt(z); } }
+
+  @SuppressWarnings({ "static-method" })
+  @Test
+  public final void nttMultiply () {
+    final Generator g =
+      Generators.bigIntegerGenerator(
+        PRNG.well44497b("seeds/Well44497b-2019-01-07.txt"));
+    for (int i=0;i<32;i++) {
+      final BigInteger z0 = large(g,1+(i%8)).shiftRight(i*29);
+      final BigInteger z1 = large(g,1+(i/4));
+      // all one bits, the largest convolution coefficients
+      final BigInteger z2 =
+        BigInteger.ONE.shiftLeft(z1.bitLength()).subtract(BigInteger.ONE);
+      final Natural n0 = Natural.valueOf(z0);
+      final Natural n1 = Natural.valueOf(z1);
+      final Natural n2 = Natural.valueOf(z2);
+      Assertions.assertEquals(z0.multiply(z1),
+        NaturalNTT.multiply(n0,n1).bigIntegerValue());
+      Assertions.assertEquals(z2.multiply(z2),
+        NaturalNTT.multiply(n2,n2).bigIntegerValue());
+      Assertions.assertEquals(z0.multiply(z0),
+        NaturalNTT.square(n0).bigIntegerValue());
+      Assertions.assertEquals(z2.multiply(z2),
+        NaturalNTT.square(n2).bigIntegerValue()); } }
+
   @SuppressWarnings({ "static-method" })
   @Test
   public final void leNatural () {
@@ -1,12 +1,20 @@
 package xfp.java.test.numbers;
 
+import java.math.BigInteger;
+import java.math.RoundingMode;
 import java.util.function.BinaryOperator;
 
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import xfp.java.numbers.Doubles;
 import xfp.java.numbers.Natural;
+import xfp.java.numbers.NaturalLong;
 import xfp.java.numbers.Numbers;
 import xfp.java.numbers.RationalFloat;
+import xfp.java.prng.Generator;
+import xfp.java.prng.Generators;
+import xfp.java.prng.PRNG;
 import xfp.java.test.Common;
 
 //----------------------------------------------------------------
@@ -68,6 +76,156 @@ public final class RationalFloatTest {
       Common::compareTo, Common::compareTo);
   }
 
+  private static final int TRYS = 63;
+
+  /** <code>(2m+1) d / d 2<sup>e</sup></code> is an exact
+   * tie between two doubles, or floats, when <code>m</code>
+   * has the full significand bits, so the leading words can't
+   * decide the rounding.
+   */
+
+  private static final RationalFloat tie (final long m,
+                                          final BigInteger d,
+                                          final int e) {
+    final Natural dd = Natural.valueOf(d);
+    final Natural n = dd.multiply(Natural.valueOf((2*m)+1));
+    return RationalFloat.valueOf(true,n,dd,e); }
+
+  /** {@link RationalFloat#doubleValue(RoundingMode)} gives the
+   * tightest enclosure, including overflow and underflow.
+   */
+
+  @SuppressWarnings({ "static-method" })
+  @Test
+  public final void directedRounding () {
+    final Generator gn =
+      Generators.bigIntegerGenerator(
+        PRNG.well44497b("seeds/Well44497b-2019-01-05.txt"));
+    final Generator gl =
+      Generators.bigIntegerGenerator(
+        PRNG.well44497b("seeds/Well44497b-2019-01-07.txt"));
+    for (int i=0;i<TRYS;i++) {
+      final BigInteger z0 =
+        ((BigInteger) gn.next()).abs().add(BigInteger.ONE);
+      final BigInteger z1 = ((BigInteger) gn.next()).abs().setBit(0);
+      final long u = ((BigInteger) gl.next()).longValue();
+      final int e = (int) (u % 1200L);
+      final RationalFloat q =
+        RationalFloat.valueOf(
+          0L<=u,Natural.valueOf(z0),Natural.valueOf(z1),e);
+      final String msg = q.toString();
+      final double lo = q.doubleValue(RoundingMode.FLOOR);
+      final double hi = q.doubleValue(RoundingMode.CEILING);
+      Assertions.assertEquals(
+        q.doubleValue(),q.doubleValue(RoundingMode.HALF_EVEN),msg);
+      Assertions.assertEquals(
+        (0L<=u) ? lo : hi,q.doubleValue(RoundingMode.DOWN),msg);
+      Assertions.assertEquals(
+        (0L<=u) ? hi : lo,q.doubleValue(RoundingMode.UP),msg);
+      if (Double.POSITIVE_INFINITY == hi) {
+        Assertions.assertEquals(Double.MAX_VALUE,lo,msg);
+        continue; }
+      if (Double.NEGATIVE_INFINITY == lo) {
+        Assertions.assertEquals(-Double.MAX_VALUE,hi,msg);
+        continue; }
+      Assertions.assertTrue(0 >= RationalFloat.valueOf(lo).compareTo(q),msg);
+      Assertions.assertTrue(0 <= RationalFloat.valueOf(hi).compareTo(q),msg);
+      if (0 == RationalFloat.valueOf(lo).compareTo(q)) {
+        Assertions.assertEquals(lo,hi,msg); }
+      else {
+        Assertions.assertEquals(Math.nextUp(lo),hi,msg); } } }
+
+  @SuppressWarnings({ "static-method" })
+  @Test
+  public final void leadingWords () {
+    final Generator gn =
+      Generators.bigIntegerGenerator(
+        PRNG.well44497b("seeds/Well44497b-2019-01-05.txt"));
+    final Generator gl =
+      Generators.bigIntegerGenerator(
+        PRNG.well44497b("seeds/Well44497b-2019-01-07.txt"));
+    for (int i=0;i<TRYS;i++) {
+      final BigInteger z0 =
+        ((BigInteger) gn.next()).abs().add(BigInteger.ONE);
+      final BigInteger z1 = ((BigInteger) gn.next()).abs().setBit(0);
+      final Natural n0 = Natural.valueOf(z0);
+      final Natural n1 = Natural.valueOf(z1);
+      final long u = ((BigInteger) gl.next()).longValue();
+      // normal, subnormal, overflow, and underflow exponents
+      final int e = (int) (u % 1200L);
+      final RationalFloat q = RationalFloat.valueOf(0L<=u,n0,n1,e);
+      Common.doubleRoundingTest(
+        RationalFloat::valueOf, Numbers::doubleValue, dist,
+        Object::toString, q, Common::compareTo, Common::compareTo);
+      Common.floatRoundingTest(
+        RationalFloat::valueOf, Numbers::floatValue, dist,
+        Object::toString, q, Common::compareTo, Common::compareTo);
+
+      // exact ties, and just above and below
+      final int ed = -e/4;
+      final long md = (u >>> 11) | (1L << 52);
+      final RationalFloat qd = tie(md,z1,ed);
+      Assertions.assertEquals(
+        Math.scalb((double) (md + (md & 1L)),ed+1),
+        qd.doubleValue());
+      final RationalFloat dd =
+        RationalFloat.valueOf(true,Natural.valueOf(1L),n1,ed);
+      Common.doubleRoundingTest(
+        RationalFloat::valueOf, Numbers::doubleValue, dist,
+        Object::toString, qd.add(dd),
+        Common::compareTo, Common::compareTo);
+      Common.doubleRoundingTest(
+        RationalFloat::valueOf, Numbers::doubleValue, dist,
+        Object::toString, qd.subtract(dd),
+        Common::compareTo, Common::compareTo);
+
+      final int ef = -e/16;
+      final long mf = (u >>> 40) | (1L << 23);
+      final RationalFloat qf = tie(mf,z1,ef);
+      Assertions.assertEquals(
+        Math.scalb((float) (mf + (mf & 1L)),ef+1),
+        qf.floatValue());
+      final RationalFloat df =
+        RationalFloat.valueOf(true,Natural.valueOf(1L),n1,ef);
+      Common.floatRoundingTest(
+        RationalFloat::valueOf, Numbers::floatValue, dist,
+        Object::toString, qf.add(df),
+        Common::compareTo, Common::compareTo);
+      Common.floatRoundingTest(
+        RationalFloat::valueOf, Numbers::floatValue, dist,
+        Object::toString, qf.subtract(df),
+        Common::compareTo, Common::compareTo); } }
+
+  /** The same sums, starting from {@link NaturalLong}
+   * numerator and denominator, stay on {@link NaturalLong} and
+   * match.
+   */
+
+  @SuppressWarnings("static-method")
+  @Test
+  public final void naturalLongTest () {
+    final Generator g =
+      Doubles.finiteGenerator(
+        PRNG.well44497b("seeds/Well44497b-2019-01-05.txt"));
+    for (int i=0;i<TRYS;i+=4) {
+      RationalFloat q = RationalFloat.ZERO;
+      RationalFloat l = RationalFloat.valueOf(true,NaturalLong.ZERO,0);
+      for (int j=0;j<=i;j++) {
+        final double x0 = g.nextDouble();
+        final double x1 = g.nextDouble();
+        q = q.add(x0).addProduct(x0,x1).addL2(x1,x0).multiply(x1);
+        l = l.add(x0).addProduct(x0,x1).addL2(x1,x0).multiply(x1);
+        Assertions.assertTrue(l.numerator() instanceof NaturalLong);
+        Assertions.assertTrue(l.denominator() instanceof NaturalLong);
+        Assertions.assertEquals(q,l);
+        Assertions.assertEquals(q.doubleValue(),l.doubleValue()); }
+      final RationalFloat r = l.add(RationalFloat.valueOf(1.0)).reduce(0);
+      Assertions.assertTrue(r.numerator() instanceof NaturalLong);
+      Assertions.assertEquals(q.add(RationalFloat.valueOf(1.0)),r);
+      final RationalFloat z = l.subtract(q);
+      Assertions.assertTrue(z.isZero());
+      Assertions.assertTrue(z.numerator() instanceof NaturalLong); } }
+
   //--------------------------------------------------------------
 }
 //--------------------------------------------------------------